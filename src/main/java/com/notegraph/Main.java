@@ -3,6 +3,9 @@ package com.notegraph;
 import com.notegraph.controller.MainController;
 import com.notegraph.ui.LanguageManager;
 import com.notegraph.util.FileSystemManager;
+import com.notegraph.util.MetadataManager;
+import com.notegraph.util.NoteDateIndex;
+import com.notegraph.util.NoteHistory;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -125,6 +128,10 @@ public class Main extends Application {
      */
     private void reloadUI(Stage stage) {
         try {
+            if (mainController != null) {
+                mainController.detach();
+            }
+
             FXMLLoader loader = new FXMLLoader(
                     getClass().getResource("/fxml/MainWindow.fxml"),
                     LanguageManager.getInstance().getBundle()
@@ -145,5 +152,8 @@ public class Main extends Application {
     @Override
     public void stop() {
         logger.info("Завершение работы приложения");
+        MetadataManager.getInstance().flush();
+        NoteDateIndex.getInstance().flush();
+        NoteHistory.getInstance().flush();
     }
 }
\ No newline at end of file
@@ -2,6 +2,13 @@ package com.notegraph.controller;
 
 import com.notegraph.graph.*;
 import com.notegraph.model.Note;
+import com.notegraph.model.NoteSummary;
+import com.notegraph.model.SearchResult;
+import com.notegraph.service.BulkNoteService;
+import com.notegraph.service.NotePrefetchService;
+import com.notegraph.service.NoteSaveService;
+import com.notegraph.service.SearchService;
+import com.notegraph.service.VaultStatisticsService;
 import com.notegraph.service.impl.NoteServiceImpl;
 import com.notegraph.ui.*;
 import com.notegraph.util.*;
@@ -9,11 +16,12 @@ import com.notegraph.util.*;
 import javafx.animation.PauseTransition;
 import javafx.geometry.Rectangle2D;
 import javafx.geometry.Side;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
@@ -27,13 +35,14 @@ import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.*;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
 import javafx.scene.web.WebView;
 import javafx.scene.Scene;
 
 import javafx.stage.Screen;
 import javafx.stage.Stage;
 import javafx.util.Duration;
-import netscape.javascript.JSObject;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,7 +54,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Главный контроллер приложения NoteGraph.
@@ -54,8 +65,35 @@ public class MainController {
 
     private static final Logger logger = LoggerFactory.getLogger(MainController.class);
 
+    /** Задержка автосохранения после последнего нажатия клавиши. */
+    private static final Duration AUTOSAVE_DELAY = Duration.millis(1500);
+    private static final long SAVE_FLUSH_TIMEOUT_SECONDS = 10;
+    /** Пауза после ввода, после которой запускается поиск. */
+    private static final Duration SEARCH_DEBOUNCE = Duration.millis(250);
+    private static final int MIN_SEARCH_AS_YOU_TYPE_LENGTH = 2;
+    private static final int MAX_SIMILAR_NOTES = 20;
+    /** Сколько WebView превью держать на все вкладки. */
+    private static final int PREVIEW_POOL_SIZE = 3;
+    /** Через сколько минут без показа вкладка усыпляется (0 — не усыплять по времени). */
+    private static final String KEY_HIBERNATE_AFTER_MINUTES = "tab_hibernate_after_minutes";
+    private static final int DEFAULT_HIBERNATE_AFTER_MINUTES = 30;
+    /** Доля занятой кучи, при которой усыпляются все неактивные вкладки. */
+    private static final double MEMORY_PRESSURE_RATIO = 0.8;
+    private static final long HIBERNATION_CHECK_INTERVAL_MS = 60_000;
+
     private final NoteServiceImpl noteService = new NoteServiceImpl();
-    private final MarkdownRenderer markdownRenderer = new MarkdownRenderer();
+    private final NoteSaveService saveService = NoteSaveService.getInstance();
+    private final BulkNoteService bulkService = BulkNoteService.getInstance();
+    private final VaultStatisticsService statisticsService = VaultStatisticsService.getInstance();
+    /** Подписка на счётчики; снимается в {@link #detach()}. */
+    private final Runnable statisticsListener = () -> Platform.runLater(this::updateNotesCount);
+    private final NoteHistory noteHistory = NoteHistory.getInstance();
+    private final NotePrefetchService prefetchService = NotePrefetchService.getInstance();
+    private final VaultIndexer vaultIndexer = VaultIndexer.getInstance();
+    private final TitleSuggestionIndex suggestionIndex = TitleSuggestionIndex.getInstance();
+    private final TrigramIndex trigramIndex = TrigramIndex.getInstance();
+    private final SearchService searchService = SearchService.getInstance();
+    private final MarkdownRenderer markdownRenderer = MarkdownRenderer.getInstance();
     private final FileSystemManager fsManager = FileSystemManager.getInstance();
     private final MetadataManager metadataManager = MetadataManager.getInstance();
     private final LinkIndexManager linkIndexManager = LinkIndexManager.getInstance();
@@ -72,8 +110,11 @@ public class MainController {
     @FXML private HBox titleBar;
 
     private String currentSearchQuery = "";
+    private PauseTransition searchDebounce;
 
     private final Map<Path, Tab> openTabs = new HashMap<>();
+    private List<String> noteTitlesCache;
+    private VaultTreeModel treeModel;
     private Timer autoSaveTimer;
     private Path cutPath = null;
 
@@ -84,45 +125,50 @@ public class MainController {
     private final ThemeManager themeManager = ThemeManager.getInstance();
     private final FontManager fontManager = FontManager.getInstance();
 
+    private final WebViewPool webViewPool = new WebViewPool(PREVIEW_POOL_SIZE,
+            () -> new MarkdownPreview(new WebView(), markdownRenderer, new JavaBridge()));
+
     private double xOffset = 0;
     private double yOffset = 0;
 
     private boolean isMaximized = false;
     private double prevX, prevY, prevWidth, prevHeight;
 
-    private static class SearchResult {
-        Path notePath;
-        String noteTitle;
-        String matchedLine;
-        int lineNumber;
-
-        SearchResult(Path notePath, String noteTitle, String matchedLine, int lineNumber) {
-            this.notePath = notePath;
-            this.noteTitle = noteTitle;
-            this.matchedLine = matchedLine;
-            this.lineNumber = lineNumber;
-        }
-
-        @Override
-        public String toString() {
-            return noteTitle + " (строка " + lineNumber + "): " + matchedLine;
-        }
-    }
-
     private static class NoteTabContent {
         Tab tab;
         VBox container;
         TextField titleField;
         TextArea contentTextArea;
+        /** Текст редактора со ссылками и тегами; обновляется по правкам, а не разбором всего текста. */
+        NoteDocument document;
         ToggleButton editModeButton;
         ToggleButton previewModeButton;
         ScrollPane previewScrollPane;
         VBox editArea;
-        WebView webView;
+        /** Превью из общего пула; null, пока превью не показывали или его забрал пул. */
+        MarkdownPreview preview;
         Label updatedLabel;
         Label linksCountLabel;
         Note note;
         boolean isEditMode = true;
+
+        /** Хэш тела заметки, сохранённого на диске (или загруженного с него). */
+        String persistedHash;
+        PauseTransition saveDebounce;
+
+        /** Слушатели темы и шрифта; снимаются, когда вкладку закрывают или усыпляют. */
+        ChangeListener<Theme> themeListener;
+        ChangeListener<Object> fontListener;
+
+        /**
+         * Вкладка усыплена: узлы и текст освобождены, note — ленивая заметка.
+         * Для восстановления хранятся только каретка и прокрутка редактора.
+         */
+        boolean hibernated;
+        int caretPosition;
+        double scrollTop;
+        /** Когда вкладку последний раз показывали. */
+        long lastActive = System.currentTimeMillis();
     }
 
     @FXML
@@ -132,9 +178,19 @@ public class MainController {
         setupTreeView();
         setupSearch();
         setupAutoSave();
+        setupTabHibernation();
         setupTabPaneListener();
         createPlusTab();
-        refreshTree();
+        vaultIndexer.addIndex(suggestionIndex);
+        vaultIndexer.addIndex(trigramIndex);
+        vaultIndexer.addIndex(FullTextIndex.getInstance());
+        vaultIndexer.addIndex(NoteDateIndex.getInstance());
+        vaultIndexer.addIndex(SimilarityIndex.getInstance());
+        vaultIndexer.addIndex(TaskIndex.getInstance());
+        vaultIndexer.addIndex(searchService);
+        vaultIndexer.addIndex(statisticsService);
+        statisticsService.addListener(statisticsListener);
+        vaultIndexer.startScan();
         updateNotesCount();
         updateTexts();
         ThemeManager themeManager = ThemeManager.getInstance();
@@ -235,11 +291,7 @@ public class MainController {
     private void updateTexts() {
         LanguageManager lm = LanguageManager.getInstance();
 
-        if (notesCountLabel != null) {
-            notesCountLabel.setText(
-                    lm.format("notes.count", 0)
-            );
-        }
+        updateNotesCount();
 
         if (autoSaveLabel != null) {
             autoSaveLabel.setText(
@@ -294,9 +346,14 @@ public class MainController {
         logger.info("Обнаружены внешние изменения: добавлено={}, изменено={}, удалено={}",
                 changeSet.added.size(), changeSet.modified.size(), changeSet.removed.size());
 
-        // 5.1. Структурные изменения (новые/удалённые файлы) — обновляем дерево и счётчик
+        // 5.1. Структурные изменения (новые/удалённые файлы) — обновляем дерево, индексы и счётчик
+        treeModel.apply(changeSet);
+        changeSet.added.forEach(vaultIndexer::reindex);
+        changeSet.modified.forEach(vaultIndexer::reindex);
+        changeSet.modified.forEach(noteHistory::recordExternal);
+        changeSet.removed.forEach(vaultIndexer::reindex);
         if (!changeSet.added.isEmpty() || !changeSet.removed.isEmpty()) {
-            refreshTree();
+            noteTitlesCache = null;
             updateNotesCount();
         }
 
@@ -334,27 +391,28 @@ public class MainController {
             return;
         }
 
-        String diskContent;
-        try {
-            diskContent = Files.readString(notePath);
-        } catch (IOException e) {
-            logger.error("Не удалось прочитать изменённый файл: {}", notePath, e);
+        // Усыплённая вкладка перечитает файл сама, когда её выберут
+        if (content.hibernated) {
             return;
         }
 
-        String currentEditorText = content.contentTextArea.getText();
+        // Запись ещё идёт — на диске промежуточная версия собственного сохранения
+        if (saveService.isPending(notePath)) {
+            return;
+        }
 
-        // Если содержимое на диске совпадает с тем, что уже в редакторе —
-        // вероятно, это собственное сохранение приложения, ничего не делаем
-        if (diskContent.equals(currentEditorText)) {
+        Note reloaded = noteService.getNoteByPath(notePath);
+        if (reloaded == null) {
             return;
         }
 
-        // Сравниваем с тем, что было загружено в заметку при последнем чтении/сохранении.
-        // note.getBodyContent() хранит последнее известное приложению содержимое.
-        boolean hasUnsavedChanges = !currentEditorText.equals(content.note.getBodyContent());
+        // Тело на диске совпадает с последним сохранённым — это собственное
+        // сохранение приложения (или изменился только frontmatter), ничего не делаем
+        if (ContentHash.of(reloaded.getBodyContent()).equals(content.persistedHash)) {
+            return;
+        }
 
-        if (hasUnsavedChanges) {
+        if (isDirty(content)) {
             Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
             alert.setTitle(LanguageManager.getInstance().get("dialog.externalChange.title"));
             alert.setHeaderText(content.note.getTitle());
@@ -371,13 +429,8 @@ public class MainController {
         }
 
         try {
-            Note reloaded = noteService.getNoteByPath(notePath);
-
-            if (reloaded == null) {
-                return;
-            }
-
             content.note = reloaded;
+            markPersisted(content, reloaded.getBodyContent());
             content.contentTextArea.setText(reloaded.getBodyContent());
 
             if (content.previewScrollPane != null && content.previewScrollPane.isVisible()) {
@@ -525,27 +578,19 @@ public class MainController {
     }
 
     private ImageView icon(String name) {
-        var stream = getClass().getResourceAsStream("/icons/" + name);
-        if (stream == null) {
+        ImageView iv = Icons.view(name);
+        if (iv == null) {
             System.out.println("Иконка не найдена: " + name);
-            return null;
         }
-
-        Image img = new Image(stream);
-        ImageView iv = new ImageView(img);
-        iv.setFitWidth(16);
-        iv.setFitHeight(16);
         return iv;
     }
 
     private void setupTreeView() {
-        Path vaultPath = fsManager.getVaultPath();
-        TreeItem<Path> root = new TreeItem<>(vaultPath);
-        root.setExpanded(true);
-
-        buildFileTree(vaultPath, root);
-
-        notesTreeView.setRoot(root);
+        treeModel = new VaultTreeModel(notesTreeView, fsManager.getVaultPath());
+        treeModel.reload(
+                sortComboBox != null ? sortComboBox.getSelectionModel().getSelectedItem() : null,
+                metadataManager.getBookmarks()
+        );
         notesTreeView.setShowRoot(true);
 
         notesTreeView.setCellFactory(tv -> new TreeCell<Path>() {
@@ -559,7 +604,13 @@ public class MainController {
                     return;
                 }
 
-                if (Files.isDirectory(path)) {
+                if (!(getTreeItem() instanceof VaultTreeItem item)) {
+                    setText(null);
+                    setGraphic(null);
+                    return;
+                }
+
+                if (item.isDirectory()) {
 
                     setText(path.getFileName().toString());
                     setStyle("-fx-font-weight: bold;");
@@ -570,18 +621,15 @@ public class MainController {
                         setGraphic(icon("folder.png"));
                     }
 
-                } else if (fsManager.isNote(path)) {
+                } else {
 
                     String fileName = path.getFileName().toString();
                     String name = fileName.replaceAll("\\.md$", "");
 
-                    String relativePath = fsManager.getVaultPath().relativize(path).toString();
-                    boolean bookmarked = metadataManager.isBookmarked(relativePath);
-
                     setText(name);
                     setStyle("-fx-font-weight: normal;");
 
-                    if (bookmarked) {
+                    if (item.isBookmarked()) {
                         setGraphic(icon("star.png"));
                     } else {
                         setGraphic(icon("note.png"));
@@ -638,13 +686,21 @@ public class MainController {
 
         searchResultsList = new ListView<>();
         searchResultsList.setPrefHeight(200);
+        searchResultsList.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(SearchResult result, boolean empty) {
+                super.updateItem(result, empty);
+                setText(null);
+                setGraphic(empty || result == null ? null : createSearchResultView(result));
+            }
+        });
         VBox.setVgrow(searchResultsList, Priority.ALWAYS);
 
         searchResultsList.setOnMouseClicked(event -> {
             if (event.getClickCount() == 2) {
                 SearchResult result = searchResultsList.getSelectionModel().getSelectedItem();
                 if (result != null) {
-                    openNote(result.notePath);
+                    openNote(result.getNotePath());
                 }
             }
         });
@@ -659,8 +715,23 @@ public class MainController {
 
         searchPanel.getChildren().addAll(searchHeader, searchResultsList);
 
+        searchDebounce = new PauseTransition(SEARCH_DEBOUNCE);
+        searchDebounce.setOnFinished(e -> handleSearch());
+
         if (searchField != null) {
             searchField.setOnAction(e -> handleSearch());
+
+            // Поиск по мере ввода: запускается, когда пользователь перестал печатать
+            searchField.textProperty().addListener((obs, oldVal, newVal) -> {
+                String query = newVal.trim();
+                if (query.isEmpty()) {
+                    searchDebounce.stop();
+                    searchService.cancel();
+                } else if (query.length() >= MIN_SEARCH_AS_YOU_TYPE_LENGTH
+                        && !query.equalsIgnoreCase(currentSearchQuery)) {
+                    searchDebounce.playFromStart();
+                }
+            });
         }
 
         LanguageManager.getInstance().localeProperty().addListener((obs, oldVal, newVal) -> {
@@ -673,76 +744,40 @@ public class MainController {
         logger.debug("Поиск настроен");
     }
 
-    private void buildFileTree(Path directory, TreeItem<Path> parentItem) {
-        try {
-            List<Path> children = fsManager.getChildren(directory);
-
-            String sortKey = sortComboBox != null
-                    ? sortComboBox.getSelectionModel().getSelectedItem()
-                    : "sort.byNameAZ";
-
-            children.sort((a, b) -> {
-
-                boolean aIsDir = Files.isDirectory(a);
-                boolean bIsDir = Files.isDirectory(b);
-
-                if (aIsDir && !bIsDir) return -1;
-                if (!aIsDir && bIsDir) return 1;
-
-                switch (sortKey) {
-
-                    case "sort.byNameZA":
-                        return b.getFileName().toString()
-                                .compareToIgnoreCase(a.getFileName().toString());
-
-                    case "sort.byDateModified1":
-                        try {
-                            return Files.getLastModifiedTime(b)
-                                    .compareTo(Files.getLastModifiedTime(a));
-                        } catch (IOException e) {
-                            return 0;
-                        }
-
-                    case "sort.byDateModified2":
-                        try {
-                            return Files.getLastModifiedTime(a)
-                                    .compareTo(Files.getLastModifiedTime(b));
-                        } catch (IOException e) {
-                            return 0;
-                        }
-
-                    case "sort.byBookmarks":
-                        String relA = fsManager.getVaultPath().relativize(a).toString();
-                        String relB = fsManager.getVaultPath().relativize(b).toString();
-
-                        boolean aBookmarked = metadataManager.isBookmarked(relA);
-                        boolean bBookmarked = metadataManager.isBookmarked(relB);
-
-                        if (aBookmarked && !bBookmarked) return -1;
-                        if (!aBookmarked && bBookmarked) return 1;
-
-                        return a.getFileName().toString()
-                                .compareToIgnoreCase(b.getFileName().toString());
-
-                    case "sort.byNameAZ":
-                    default:
-                        return a.getFileName().toString()
-                                .compareToIgnoreCase(b.getFileName().toString());
-                }
-            });
-
-            for (Path child : children) {
-                TreeItem<Path> item = new TreeItem<>(child);
-                parentItem.getChildren().add(item);
-
-                if (Files.isDirectory(child)) {
-                    buildFileTree(child, item);
-                }
+    /**
+     * Строка результата поиска с подсветкой найденных слов
+     */
+    private TextFlow createSearchResultView(SearchResult result) {
+        String line = result.getMatchedLine();
+        int[] highlights = result.getHighlights();
+
+        TextFlow flow = new TextFlow();
+        Text header = new Text(result.getNoteTitle() + " (строка " + result.getLineNumber() + "): ");
+        header.getStyleClass().add("search-snippet");
+        flow.getChildren().add(header);
+
+        int position = 0;
+        for (int i = 0; i + 1 < highlights.length; i += 2) {
+            if (highlights[i] < position) {
+                continue;
             }
-
-        } catch (IOException e) {
-            logger.error("Ошибка при построении дерева", e);
+            if (highlights[i] > position) {
+                Text plain = new Text(line.substring(position, highlights[i]));
+                plain.getStyleClass().add("search-snippet");
+                flow.getChildren().add(plain);
+            }
+            Text match = new Text(line.substring(highlights[i], highlights[i + 1]));
+            match.getStyleClass().add("search-highlight");
+            flow.getChildren().add(match);
+            position = highlights[i + 1];
+        }
+        if (position < line.length()) {
+            Text plain = new Text(line.substring(position));
+            plain.getStyleClass().add("search-snippet");
+            flow.getChildren().add(plain);
         }
+
+        return flow;
     }
 
     private ContextMenu createTreeContextMenu() {
@@ -841,14 +876,15 @@ public class MainController {
 
     private void openNote(Path notePath) {
         try {
-            Note note = noteService.getNoteByPath(notePath);
+            Note note = prefetchService.takeNote(notePath);
+            if (note == null) {
+                note = noteService.getNoteByPath(notePath);
+            }
             if (note == null) {
                 showError("Error", "Failed to load note");
                 return;
             }
 
-            String relativePath = fsManager.getVaultPath().relativize(notePath).toString();
-            metadataManager.addRecentNote(relativePath);
             openNoteInCurrentTab(note);
 
         } catch (Exception e) {
@@ -896,16 +932,13 @@ public class MainController {
 
         if (currentTab.getUserData() instanceof NoteTabContent oldContent) {
             try {
-                if (oldContent.note != null && oldContent.contentTextArea != null) {
-                    oldContent.note.setBodyContent(oldContent.contentTextArea.getText());
-                    oldContent.note.extractOutgoingLinks();
-                    noteService.updateNote(oldContent.note);
-                }
+                persistNote(oldContent);
             } catch (Exception e) {
                 logger.error("Ошибка сохранения при переключении", e);
             }
 
             openTabs.remove(oldContent.note.getPath());
+            releaseTabResources(oldContent);
         }
 
         NoteTabContent newContent = createTabContent(note);
@@ -924,15 +957,7 @@ public class MainController {
         });
 
         openTabs.put(note.getPath(), currentTab);
-
-        try {
-            String relativePath = fsManager.getVaultPath()
-                    .relativize(note.getPath())
-                    .toString();
-            metadataManager.addRecentNote(relativePath);
-        } catch (Exception e) {
-            logger.warn("Ошибка добавления в recent notes", e);
-        }
+        onNoteOpened(note);
 
         logger.info("Заметка '{}' открыта в текущей вкладке успешно", note.getTitle());
     }
@@ -966,11 +991,7 @@ public class MainController {
             logger.debug("Закрытие вкладки '{}'", note.getTitle());
             try {
                 if (tab.getUserData() instanceof NoteTabContent tabContent) {
-                    if (tabContent.note != null && tabContent.contentTextArea != null) {
-                        tabContent.note.setBodyContent(tabContent.contentTextArea.getText());
-                        tabContent.note.extractOutgoingLinks();
-                        noteService.updateNote(tabContent.note);
-                    }
+                    persistNote(tabContent);
                 }
             } catch (Exception ex) {
                 logger.error("Ошибка сохранения", ex);
@@ -985,6 +1006,39 @@ public class MainController {
         notesTabPane.getTabs().add(index, tab);
 
         notesTabPane.getSelectionModel().select(tab);
+        onNoteOpened(note);
+    }
+
+    /**
+     * Заметка открыта во вкладке: учесть в истории открытий
+     * и начать предзагрузку связанных заметок
+     */
+    private void onNoteOpened(Note note) {
+        try {
+            String relativePath = fsManager.getVaultPath()
+                    .relativize(note.getPath())
+                    .toString();
+            metadataManager.recordOpen(relativePath);
+        } catch (Exception e) {
+            logger.warn("Ошибка добавления в recent notes", e);
+        }
+
+        suggestionIndex.noteOpened(note.getPath());
+        prefetchService.noteActivated(note);
+    }
+
+    /**
+     * Найти заметку по названию; предзагруженная заметка берётся из кэша
+     */
+    private Optional<Note> findNoteByTitle(String title) {
+        Optional<Path> path = NotePathIndex.getInstance().findByTitle(title);
+        if (path.isPresent()) {
+            Note cached = prefetchService.takeNote(path.get());
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        return noteService.getNoteByTitle(title);
     }
 
     /**
@@ -1021,10 +1075,18 @@ public class MainController {
     }
 
     private NoteTabContent createTabContent(Note note) {
-        LanguageManager lm = LanguageManager.getInstance();
-
         NoteTabContent content = new NoteTabContent();
         content.note = note;
+        buildTabContent(content);
+        return content;
+    }
+
+    /**
+     * Создать узлы вкладки для content.note: при открытии заметки и при пробуждении вкладки
+     */
+    private void buildTabContent(NoteTabContent content) {
+        LanguageManager lm = LanguageManager.getInstance();
+        Note note = content.note;
 
         content.container = new VBox(10);
         content.container.setPadding(new Insets(10));
@@ -1040,19 +1102,8 @@ public class MainController {
         content.editModeButton.setId("editButton");
         content.previewModeButton.setId("viewButton");
 
-        ImageView editIcon = new ImageView(
-                new Image(getClass().getResourceAsStream("/icons/edit.png"))
-        );
-        editIcon.setFitWidth(16);
-        editIcon.setFitHeight(16);
-        content.editModeButton.setGraphic(editIcon);
-
-        ImageView previewIcon = new ImageView(
-                new Image(getClass().getResourceAsStream("/icons/preview.png"))
-        );
-        previewIcon.setFitWidth(16);
-        previewIcon.setFitHeight(16);
-        content.previewModeButton.setGraphic(previewIcon);
+        content.editModeButton.setGraphic(Icons.view("edit.png"));
+        content.previewModeButton.setGraphic(Icons.view("preview.png"));
 
         content.editModeButton.setSelected(true);
 
@@ -1083,6 +1134,7 @@ public class MainController {
         content.contentTextArea.setWrapText(true);
         VBox.setVgrow(content.contentTextArea, Priority.ALWAYS);
 
+        setupDocument(content);
         setupBracketAutoComplete(content);
         setupAutoComplete(content);
 
@@ -1091,71 +1143,51 @@ public class MainController {
         content.editArea.setPrefWidth(Double.MAX_VALUE);
         content.editArea.setMaxWidth(Double.MAX_VALUE);
 
-        final long[] lastSaveTime = {System.currentTimeMillis()};
+        markPersisted(content, note.getBodyContent());
 
-        content.contentTextArea.textProperty().addListener((obs, oldVal, newVal) -> {
-            lastSaveTime[0] = System.currentTimeMillis();
+        // Сохранение через AUTOSAVE_DELAY после того, как пользователь перестал печатать
+        content.saveDebounce = new PauseTransition(AUTOSAVE_DELAY);
+        content.saveDebounce.setOnFinished(e -> saveNoteContent(content));
 
+        // InvalidationListener не собирает весь текст TextArea на каждое нажатие
+        content.contentTextArea.textProperty().addListener(obs -> {
             if (content.previewScrollPane.isVisible()) {
                 updatePreview(content);
             }
 
-            Platform.runLater(() -> {
-                if (System.currentTimeMillis() - lastSaveTime[0] >= 1000) {
-                    saveNoteContent(content);
-                    showAutoSaveIndicator(true);
-                }
-            });
+            // У закрытой вкладки таймера нет
+            if (content.saveDebounce != null) {
+                content.saveDebounce.playFromStart();
+            }
         });
 
         content.titleField.textProperty().addListener((obs, oldVal, newVal) -> {
-            lastSaveTime[0] = System.currentTimeMillis();
-
             if (content.previewScrollPane.isVisible()) {
                 updatePreview(content);
             }
-
-            Platform.runLater(() -> {
-                if (System.currentTimeMillis() - lastSaveTime[0] >= 1000) {
-                    saveNoteContent(content);
-                    showAutoSaveIndicator(true);
-                }
-            });
         });
 
         content.editArea.getChildren().addAll(content.titleField, content.contentTextArea);
 
-        content.webView = new WebView();
-        content.webView.getEngine().setJavaScriptEnabled(true);
-
-        content.previewScrollPane = new ScrollPane(content.webView);
+        // WebView берётся из пула при первом показе превью (attachPreview)
+        content.previewScrollPane = new ScrollPane();
         content.previewScrollPane.setFitToWidth(true);
         content.previewScrollPane.setVisible(false);
         content.previewScrollPane.setManaged(false);
 
-        content.webView.getEngine().getLoadWorker().stateProperty().addListener((obs, oldState, newState) -> {
-            if (newState == javafx.concurrent.Worker.State.SUCCEEDED) {
-                try {
-                    JSObject window = (JSObject) content.webView.getEngine().executeScript("window");
-                    JavaBridge bridge = new JavaBridge();
-                    window.setMember("javaApp", bridge);
-                } catch (Exception e) {
-                    logger.error("JS bridge error", e);
-                }
-            }
-        });
-
-        themeManager.themeProperty().addListener((obs, oldTheme, newTheme) -> {
+        content.themeListener = (obs, oldTheme, newTheme) -> {
             applyThemeToNoteContent(content, newTheme);
             updateToggleButtonsStyle(content);
 
             if (content.previewScrollPane.isVisible()) {
                 updatePreview(content);
             }
-        });
+        };
+        themeManager.themeProperty().addListener(content.themeListener);
 
-        fontManager.fontFamilyProperty().addListener((obs, o, n) -> applyFontToContent(content));
-        fontManager.fontSizeProperty().addListener((obs, o, n) -> applyFontToContent(content));
+        content.fontListener = (obs, o, n) -> applyFontToContent(content);
+        fontManager.fontFamilyProperty().addListener(content.fontListener);
+        fontManager.fontSizeProperty().addListener(content.fontListener);
 
         content.container.getChildren().addAll(
                 toolbar,
@@ -1183,6 +1215,11 @@ public class MainController {
                     saveNoteContent(content);
 
                     Path oldPath = content.note.getPath();
+                    if (!saveService.flush(oldPath, SAVE_FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                        logger.error("Заметка не сохранилась, переименование отменено: {}", oldPath);
+                        content.titleField.setText(oldTitle);
+                        return;
+                    }
                     Path newPath = oldPath.getParent().resolve(newTitle + ".md");
 
                     if (Files.exists(newPath)) {
@@ -1191,16 +1228,18 @@ public class MainController {
                     }
 
                     Files.move(oldPath, newPath);
+                    noteHistory.pathsMoved(Map.of(oldPath, newPath));
 
                     content.note.setTitle(newTitle);
-                    content.note.setPath(newPath);
+                    remapOpenTabs(oldPath, newPath);
 
                     if (content.tab != null) {
                         content.tab.setText(newTitle);
                     }
 
                     LinkIndexManager.getInstance().renameNote(oldTitle, newTitle);
-                    refreshTree();
+                    treeModel.move(oldPath, newPath);
+                    noteTitlesCache = null;
 
                 } catch (Exception e) {
                     logger.error("Ошибка переименования", e);
@@ -1208,8 +1247,134 @@ public class MainController {
                 }
             }
         });
+    }
 
-        return content;
+    /**
+     * Отдать WebView превью в пул и снять слушатели темы и шрифта
+     */
+    private void releaseTabResources(NoteTabContent content) {
+        // Отложенное сохранение закрытой вкладки могло бы заново создать удалённый файл
+        if (content.saveDebounce != null) {
+            content.saveDebounce.stop();
+            content.saveDebounce = null;
+        }
+
+        webViewPool.release(content);
+
+        if (content.themeListener != null) {
+            themeManager.themeProperty().removeListener(content.themeListener);
+            content.themeListener = null;
+        }
+        if (content.fontListener != null) {
+            fontManager.fontFamilyProperty().removeListener(content.fontListener);
+            fontManager.fontSizeProperty().removeListener(content.fontListener);
+            content.fontListener = null;
+        }
+    }
+
+    /**
+     * Раз в минуту усыплять вкладки, которые давно не показывались,
+     * а при нехватке памяти — все неактивные
+     */
+    private void setupTabHibernation() {
+        autoSaveTimer.scheduleAtFixedRate(new TimerTask() {
+            public void run() {
+                Platform.runLater(() -> hibernateIdleTabs());
+            }
+        }, HIBERNATION_CHECK_INTERVAL_MS, HIBERNATION_CHECK_INTERVAL_MS);
+    }
+
+    private void hibernateIdleTabs() {
+        Runtime runtime = Runtime.getRuntime();
+        long usedMemory = runtime.totalMemory() - runtime.freeMemory();
+        boolean memoryPressure = usedMemory > runtime.maxMemory() * MEMORY_PRESSURE_RATIO;
+
+        int minutes = metadataManager.getIntPreference(KEY_HIBERNATE_AFTER_MINUTES, DEFAULT_HIBERNATE_AFTER_MINUTES);
+        long idleLimit = minutes > 0 ? TimeUnit.MINUTES.toMillis(minutes) : Long.MAX_VALUE;
+        long now = System.currentTimeMillis();
+
+        int hibernated = 0;
+        for (Tab tab : notesTabPane.getTabs()) {
+            if (tab.getUserData() instanceof NoteTabContent content
+                    && (memoryPressure || now - content.lastActive >= idleLimit)
+                    && hibernateTab(content)) {
+                hibernated++;
+            }
+        }
+
+        if (hibernated > 0) {
+            logger.info("Усыплено вкладок: {} (нехватка памяти: {})", hibernated, memoryPressure);
+        }
+    }
+
+    /**
+     * Усыпить неактивную вкладку: освободить редактор, превью и текст заметки.
+     * Вкладка с несохранёнными правками сначала сохраняется, а усыпляется
+     * при следующей проверке, когда запись завершится.
+     *
+     * @return true, если вкладка усыплена
+     */
+    private boolean hibernateTab(NoteTabContent content) {
+        if (content.hibernated || content.tab == null || content.tab.isSelected()) {
+            return false;
+        }
+        if (isDirty(content)) {
+            persistNote(content);
+            return false;
+        }
+        if (saveService.isPending(content.note.getPath())) {
+            return false;
+        }
+
+        content.caretPosition = content.contentTextArea.getCaretPosition();
+        content.scrollTop = content.contentTextArea.getScrollTop();
+        releaseTabResources(content);
+
+        content.tab.setContent(null);
+        content.container = null;
+        content.titleField = null;
+        content.contentTextArea = null;
+        content.document = null;
+        content.editModeButton = null;
+        content.previewModeButton = null;
+        content.previewScrollPane = null;
+        content.editArea = null;
+        content.updatedLabel = null;
+        content.linksCountLabel = null;
+
+        // Заголовок и путь остаются, текст будет прочитан с диска при пробуждении
+        content.note = Note.lazy(NoteSummary.of(content.note), NoteParser::parseNote);
+        content.hibernated = true;
+
+        logger.debug("Вкладка усыплена: {}", content.note.getTitle());
+        return true;
+    }
+
+    /**
+     * Разбудить вкладку: перечитать заметку с диска (там могли быть внешние
+     * изменения) и заново создать узлы, вернув каретку, прокрутку и режим
+     */
+    private void wakeTab(NoteTabContent content) {
+        Note note = noteService.getNoteByPath(content.note.getPath());
+        if (note != null) {
+            content.note = note;
+        }
+
+        content.hibernated = false;
+        buildTabContent(content);
+        content.tab.setContent(content.container);
+
+        TextArea textArea = content.contentTextArea;
+        textArea.positionCaret(Math.min(content.caretPosition, textArea.getLength()));
+        double scrollTop = content.scrollTop;
+        Platform.runLater(() -> textArea.setScrollTop(scrollTop));
+
+        if (!content.isEditMode) {
+            content.previewModeButton.setSelected(true);
+            switchToPreviewMode(content);
+        }
+
+        logger.debug("Вкладка восстановлена: {}", content.note.getTitle());
     }
 
     private void showAutoSaveIndicator(boolean success) {
@@ -1231,24 +1396,61 @@ public class MainController {
         });
     }
 
+    /**
+     * Все правки текста редактора проходят через {@link NoteDocument} вкладки
+     */
+    private void setupDocument(NoteTabContent content) {
+        TextArea textArea = content.contentTextArea;
+        content.document = new NoteDocument(textArea.getText());
+
+        textArea.setTextFormatter(new TextFormatter<String>(change -> {
+            if (change.isContentChange()) {
+                String text = editorText(change.getText());
+                if (!text.equals(change.getText())) {
+                    change.setText(text);
+                }
+                content.document.replace(change.getRangeStart(), change.getRangeEnd(), text);
+            }
+            return change;
+        }));
+    }
+
+    /**
+     * Текст в том виде, в каком его вставит TextArea: управляющие символы,
+     * кроме перевода строки и табуляции, отбрасываются
+     */
+    private static String editorText(String text) {
+        StringBuilder sb = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean invalid = c == 0x7F || (c < 0x20 && c != '\n' && c != '\t');
+            if (invalid && sb == null) {
+                sb = new StringBuilder(text.length());
+                sb.append(text, 0, i);
+            } else if (!invalid && sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb != null ? sb.toString() : text;
+    }
+
     private void setupBracketAutoComplete(NoteTabContent content) {
         TextArea textArea = content.contentTextArea;
+        NoteDocument document = content.document;
 
         textArea.addEventFilter(KeyEvent.KEY_TYPED, event -> {
             if ("[".equals(event.getCharacter())) {
                 int caretPos = textArea.getCaretPosition();
-                String text = textArea.getText();
 
-                if (caretPos > 0 && caretPos <= text.length() && text.charAt(caretPos - 1) == '[') {
+                if (caretPos > 0 && caretPos <= document.length() && document.charAt(caretPos - 1) == '[') {
                     event.consume();
 
                     Platform.runLater(() -> {
                         try {
                             int currentPos = textArea.getCaretPosition();
-                            String currentText = textArea.getText();
 
-                            if (currentPos > 0 && currentPos <= currentText.length() &&
-                                    currentText.charAt(currentPos - 1) == '[') {
+                            if (currentPos > 0 && currentPos <= document.length() &&
+                                    document.charAt(currentPos - 1) == '[') {
 
                                 textArea.deleteText(currentPos - 1, currentPos);
                                 textArea.insertText(currentPos - 1, "[[]]");
@@ -1265,158 +1467,66 @@ public class MainController {
 
     private void setupAutoComplete(NoteTabContent content) {
         TextArea textArea = content.contentTextArea;
+        NoteDocument document = content.document;
         ContextMenu suggestionsMenu = new ContextMenu();
 
-        textArea.textProperty().addListener((obs, oldText, newText) -> {
-            if (newText == null || newText.isEmpty()) {
-                suggestionsMenu.hide();
-                return;
-            }
-
+        // Ссылка [[...]] не переходит на другую строку, поэтому разбирается только строка с кареткой
+        textArea.textProperty().addListener(obs -> {
             int caretPos = textArea.getCaretPosition();
 
-            if (caretPos < 0 || caretPos > newText.length()) {
-                suggestionsMenu.hide();
-                return;
-            }
-
-            if (caretPos < 2) {
+            if (caretPos < 2 || caretPos > document.length()) {
                 suggestionsMenu.hide();
                 return;
             }
 
             try {
-                int openPos = -1;
-                for (int i = Math.min(caretPos - 1, newText.length() - 1); i >= 0; i--) {
-                    if (i > 0 && i - 1 < newText.length() && i < newText.length()) {
-                        if (newText.charAt(i - 1) == '[' && newText.charAt(i) == '[') {
-                            openPos = i - 1;
-                            break;
-                        }
-                    }
-                }
+                int lineStart = document.lineStart(caretPos);
+                String line = document.substring(lineStart, document.lineEnd(caretPos));
+                int caret = caretPos - lineStart;
 
+                int openPos = line.lastIndexOf("[[", caret - 2);
                 if (openPos == -1) {
                     suggestionsMenu.hide();
                     return;
                 }
 
-                int closePos = -1;
-                for (int i = openPos + 2; i < newText.length() - 1; i++) {
-                    if (i + 1 < newText.length()) {
-                        if (newText.charAt(i) == ']' && newText.charAt(i + 1) == ']') {
-                            closePos = i;
-                            break;
-                        }
-                    }
+                int closePos = line.indexOf("]]", openPos + 2);
+                if (closePos != -1 && caret > closePos + 1) {
+                    suggestionsMenu.hide();
+                    return;
                 }
 
-                if (closePos != -1 && caretPos > closePos + 1) {
+                int inputStart = openPos + 2;
+                if (inputStart >= line.length()) {
                     suggestionsMenu.hide();
                     return;
                 }
 
-                if (caretPos > openPos + 1) {
-                    int inputStart = openPos + 2;
-
-                    if (inputStart >= newText.length()) {
-                        suggestionsMenu.hide();
-                        return;
-                    }
-
-                    String currentInput = "";
-                    if (caretPos > inputStart) {
-                        int endPos = Math.min(caretPos, newText.length());
-                        if (closePos != -1) {
-                            endPos = Math.min(endPos, closePos);
-                        }
-                        if (inputStart < endPos && inputStart < newText.length() && endPos <= newText.length()) {
-                            currentInput = newText.substring(inputStart, endPos);
-                        }
-                    }
-
-                    List<String> suggestions = getNoteSuggestions(currentInput);
-
-                    if (!suggestions.isEmpty()) {
-                        suggestionsMenu.getItems().clear();
-
-                        for (String suggestion : suggestions) {
-                            MenuItem item = new MenuItem(suggestion);
-                            item.setOnAction(e -> {
-                                try {
-                                    String currentText = textArea.getText();
-                                    int currentPos = textArea.getCaretPosition();
+                String currentInput = "";
+                int endPos = closePos != -1 ? Math.min(caret, closePos) : caret;
+                if (inputStart < endPos) {
+                    currentInput = line.substring(inputStart, endPos);
+                }
 
-                                    if (currentText == null || currentText.isEmpty()) {
-                                        suggestionsMenu.hide();
-                                        return;
-                                    }
+                List<String> suggestions = getNoteSuggestions(currentInput);
 
-                                    if (currentPos < 0 || currentPos > currentText.length()) {
-                                        suggestionsMenu.hide();
-                                        return;
-                                    }
+                if (!suggestions.isEmpty()) {
+                    suggestionsMenu.getItems().clear();
 
-                                    // Находим позицию [[
-                                    int startPos = -1;
-                                    for (int i = Math.min(currentPos - 1, currentText.length() - 1); i >= 0; i--) {
-                                        if (i > 0 && i - 1 < currentText.length() && i < currentText.length()) {
-                                            if (currentText.charAt(i - 1) == '[' && currentText.charAt(i) == '[') {
-                                                startPos = i - 1;
-                                                break;
-                                            }
-                                        }
-                                    }
-
-                                    if (startPos != -1) {
-                                        int insertPos = startPos + 2;
-
-                                        if (insertPos >= 0 && insertPos <= currentText.length()) {
-                                            boolean hasClosingAfter = false;
-                                            for (int i = currentPos; i < currentText.length() - 1; i++) {
-                                                if (i + 1 < currentText.length() &&
-                                                        currentText.charAt(i) == ']' &&
-                                                        currentText.charAt(i + 1) == ']') {
-                                                    hasClosingAfter = true;
-                                                    break;
-                                                }
-                                            }
-
-                                            String newText2;
-                                            if (hasClosingAfter) {
-                                                newText2 = currentText.substring(0, insertPos) +
-                                                        suggestion +
-                                                        (currentPos < currentText.length() ? currentText.substring(currentPos) : "");
-                                            } else {
-                                                newText2 = currentText.substring(0, insertPos) +
-                                                        suggestion +
-                                                        "]]" +
-                                                        (currentPos < currentText.length() ? currentText.substring(currentPos) : "");
-                                            }
-
-                                            textArea.setText(newText2);
-                                            int newCaretPos = insertPos + suggestion.length();
-                                            if (newCaretPos >= 0 && newCaretPos <= newText2.length()) {
-                                                textArea.positionCaret(newCaretPos);
-                                            }
-                                        }
-                                    }
-                                    suggestionsMenu.hide();
-                                } catch (Exception ex) {
-                                    suggestionsMenu.hide();
-                                }
-                            });
-                            suggestionsMenu.getItems().add(item);
-                        }
+                    for (String suggestion : suggestions) {
+                        MenuItem item = new MenuItem(suggestion);
+                        item.setOnAction(e -> {
+                            insertSuggestion(textArea, document, suggestion);
+                            suggestionsMenu.hide();
+                        });
+                        suggestionsMenu.getItems().add(item);
+                    }
 
-                        if (!suggestionsMenu.isShowing()) {
-                            try {
-                                suggestionsMenu.show(textArea, Side.BOTTOM, 0, 0);
-                            } catch (Exception e) {
-                            }
+                    if (!suggestionsMenu.isShowing()) {
+                        try {
+                            suggestionsMenu.show(textArea, Side.BOTTOM, 0, 0);
+                        } catch (Exception e) {
                         }
-                    } else {
-                        suggestionsMenu.hide();
                     }
                 } else {
                     suggestionsMenu.hide();
@@ -1433,7 +1543,38 @@ public class MainController {
         });
     }
 
+    /**
+     * Подставить название заметки в ссылку [[...]], в которой стоит каретка
+     */
+    private void insertSuggestion(TextArea textArea, NoteDocument document, String suggestion) {
+        int caretPos = textArea.getCaretPosition();
+        if (caretPos < 2 || caretPos > document.length()) {
+            return;
+        }
+
+        int lineStart = document.lineStart(caretPos);
+        String line = document.substring(lineStart, document.lineEnd(caretPos));
+        int caret = caretPos - lineStart;
+
+        int openPos = line.lastIndexOf("[[", caret - 2);
+        if (openPos == -1) {
+            return;
+        }
+
+        int insertPos = lineStart + openPos + 2;
+        boolean hasClosingAfter = line.indexOf("]]", caret) != -1;
+
+        textArea.replaceText(insertPos, caretPos, hasClosingAfter ? suggestion : suggestion + "]]");
+        textArea.positionCaret(insertPos + suggestion.length());
+    }
+
     private List<String> getNoteSuggestions(String currentInput) {
+        if (vaultIndexer.isScanComplete()) {
+            return suggestionIndex.suggest(currentInput, 5).stream()
+                    .map(suggestion -> suggestion.title)
+                    .collect(Collectors.toList());
+        }
+
         List<String> allNotes = getAllNoteTitles();
 
         if (allNotes.isEmpty()) {
@@ -1450,38 +1591,28 @@ public class MainController {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Названия всех заметок vault. Пока индекс не построен, берутся имена файлов
+     * (список кешируется до следующего изменения дерева).
+     */
     private List<String> getAllNoteTitles() {
-        List<String> titles = new ArrayList<>();
-        try {
-            TreeItem<Path> root = notesTreeView.getRoot();
-            if (root != null) {
-                collectAllNoteTitles(root, titles);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        NotePathIndex pathIndex = NotePathIndex.getInstance();
+        if (pathIndex.isReady()) {
+            return pathIndex.getTitles();
         }
-        return titles;
-    }
 
-    private void collectAllNoteTitles(TreeItem<Path> item, List<String> titles) {
-        if (item == null || item.getValue() == null) return;
-
-        try {
-            Path path = item.getValue();
-            if (fsManager.isNote(path)) {
-                String title = path.getFileName().toString().replace(".md", "");
-                if (title != null && !title.isEmpty()) {
-                    titles.add(title);
-                }
-            }
-
-            if (item.getChildren() != null) {
-                for (TreeItem<Path> child : item.getChildren()) {
-                    collectAllNoteTitles(child, titles);
+        if (noteTitlesCache == null) {
+            List<String> titles = new ArrayList<>();
+            try {
+                for (Path path : fsManager.getAllNotes()) {
+                    titles.add(path.getFileName().toString().replaceAll("\\.md$", ""));
                 }
+            } catch (IOException e) {
+                logger.error("Ошибка получения списка заметок", e);
             }
-        } catch (Exception e) {
+            noteTitlesCache = titles;
         }
+        return noteTitlesCache;
     }
 
     private void updateToggleButtonsStyle(NoteTabContent content) {
@@ -1552,9 +1683,14 @@ public class MainController {
         updatePreview(content);
     }
 
+    /**
+     * Обновить превью заметки. Пока превью скрыто, ничего не рендерится —
+     * switchToPreviewMode вызовет обновление при показе.
+     */
     private void updatePreview(NoteTabContent content) {
 
-        if (content == null || content.note == null) {
+        if (content == null || content.note == null || content.hibernated
+                || !content.previewScrollPane.isVisible()) {
             return;
         }
 
@@ -1563,48 +1699,118 @@ public class MainController {
         String markdown = content.contentTextArea.getText();
 
         content.note.setBodyContent(markdown);
-        content.note.extractTags();
+        content.note.setTags(content.document.getTags());
 
-        String markdownWithoutTags = markdown.replaceAll(
-                "(?m)^\\s*#([\\p{L}\\p{N}_-]+)\\s*$",
-                ""
-        );
+        if (content.preview == null && content.tab != null && !content.tab.isSelected()) {
+            // Неактивной вкладке WebView не нужен: превью возьмётся из пула при её выборе
+            return;
+        }
 
-        String html = markdownRenderer.renderToHtml(
-                "# " + title + "\n\n" + markdownWithoutTags
-        );
+        attachPreview(content).update(title, markdown);
+    }
 
-        content.webView.getEngine().loadContent(html);
+    /**
+     * Превью вкладки; если его нет, взять из пула и показать в previewScrollPane
+     */
+    private MarkdownPreview attachPreview(NoteTabContent content) {
+        if (content.preview == null) {
+            content.preview = webViewPool.acquire(content, () -> {
+                content.preview = null;
+                content.previewScrollPane.setContent(null);
+            });
+            content.previewScrollPane.setContent(content.preview.getWebView());
+        }
+        return content.preview;
     }
 
-    private void saveNoteContent(NoteTabContent content) {
-        if (content == null || content.note == null) {
+    /**
+     * Есть ли в редакторе изменения, не записанные на диск
+     */
+    private boolean isDirty(NoteTabContent content) {
+        return !ContentHash.of(content.contentTextArea.getText()).equals(content.persistedHash);
+    }
+
+    private void markPersisted(NoteTabContent content, String body) {
+        content.persistedHash = ContentHash.of(body);
+    }
+
+    /**
+     * Поставить заметку в очередь на сохранение, только если текст изменился
+     * с последнего сохранения. Сама запись выполняется в {@link NoteSaveService},
+     * результат приходит в {@link #onNoteSaved}.
+     *
+     * @return true, если сохранение было запущено
+     */
+    private boolean persistNote(NoteTabContent content) {
+        if (content == null || content.note == null || content.contentTextArea == null) {
+            return false;
+        }
+
+        if (content.saveDebounce != null) {
+            content.saveDebounce.stop();
+        }
+
+        String body = content.contentTextArea.getText();
+        if (ContentHash.of(body).equals(content.persistedHash)) {
+            return false;
+        }
+
+        content.note.setBodyContent(body);
+        content.note.setOutgoingLinks(content.document.getLinks());
+
+        markPersisted(content, body);
+
+        saveService.submit(NoteSaveService.snapshot(content.note, body))
+                .whenComplete((saved, error) ->
+                        Platform.runLater(() -> onNoteSaved(content, body, saved, error)));
+        return true;
+    }
+
+    /**
+     * Завершение фонового сохранения (FX-поток)
+     */
+    private void onNoteSaved(NoteTabContent content, String body, Note saved, Throwable error) {
+        if (error != null) {
+            // Текст не записан: снова считаем вкладку изменённой,
+            // если с тех пор её не успели сохранить ещё раз
+            if (ContentHash.of(body).equals(content.persistedHash)) {
+                content.persistedHash = null;
+            }
+            showAutoSaveIndicator(false);
             return;
         }
 
-        try {
-            LanguageManager lm = LanguageManager.getInstance();
+        if (content.hibernated) {
+            return;
+        }
 
-            content.note.setBodyContent(content.contentTextArea.getText());
-            content.note.extractOutgoingLinks();
+        content.note.setModified(saved.getModified());
 
-            noteService.updateNote(content.note);
+        LanguageManager lm = LanguageManager.getInstance();
 
-            if (content.updatedLabel != null) {
-                content.updatedLabel.setText(
-                        lm.format("text.changed", content.note.getModified())
-                );
-            }
+        if (content.updatedLabel != null) {
+            content.updatedLabel.setText(
+                    lm.format("text.changed", content.note.getModified())
+            );
+        }
 
-            if (content.linksCountLabel != null) {
-                content.linksCountLabel.setText(
-                        lm.format("text.links", content.note.getOutgoingLinks().size())
-                );
-            }
+        if (content.linksCountLabel != null) {
+            content.linksCountLabel.setText(
+                    lm.format("text.links", content.note.getOutgoingLinks().size())
+            );
+        }
+
+        showAutoSaveIndicator();
+        logger.debug("Заметка сохранена: {}", saved.getTitle());
+    }
 
-            showAutoSaveIndicator();
-            logger.debug("Заметка сохранена: {}", content.note.getTitle());
+    private void saveNoteContent(NoteTabContent content) {
+        if (content == null || content.note == null) {
+            return;
+        }
 
+        try {
+            persistNote(content);
         } catch (Exception e) {
             logger.error("Ошибка при сохранении заметки", e);
 
@@ -1654,7 +1860,7 @@ public class MainController {
         cleanupOpenTabs();
 
         try {
-            Optional<Note> existing = noteService.getNoteByTitle(title);
+            Optional<Note> existing = findNoteByTitle(title);
 
             if (existing.isPresent()) {
                 logger.info("Заметка '{}' найдена, открываем", title);
@@ -1698,8 +1904,7 @@ public class MainController {
 
                 openNoteInTab(newNote);
 
-                refreshTree();
-                updateNotesCount();
+                onNoteCreated(newNote);
 
                 logger.info("Новая заметка '{}' открыта", title);
             }
@@ -1731,7 +1936,11 @@ public class MainController {
 
             sortComboBox.getSelectionModel().select(0);
 
-            sortComboBox.setOnAction(e -> refreshTree());
+            sortComboBox.setOnAction(e -> {
+                if (treeModel != null) {
+                    treeModel.resort(sortComboBox.getSelectionModel().getSelectedItem());
+                }
+            });
 
             LanguageManager.getInstance().localeProperty().addListener((obs, oldVal, newVal) -> {
                 updateSortComboBoxTexts();
@@ -1759,6 +1968,10 @@ public class MainController {
         });
     }
 
+    /**
+     * Страховочное автосохранение: раз в 30 секунд записываются только
+     * вкладки с несохранёнными изменениями (основное сохранение — по паузе в наборе).
+     */
     private void setupAutoSave() {
         autoSaveTimer = new Timer(true);
         autoSaveTimer.scheduleAtFixedRate(new TimerTask() {
@@ -1841,7 +2054,32 @@ public class MainController {
         plusTab.setContent(new VBox());
         notesTabPane.getTabs().add(plusTab);
 
+        // Закрытая вкладка возвращает WebView превью в пул
+        notesTabPane.getTabs().addListener((ListChangeListener<Tab>) change -> {
+            while (change.next()) {
+                for (Tab tab : change.getRemoved()) {
+                    if (tab.getUserData() instanceof NoteTabContent content) {
+                        releaseTabResources(content);
+                    }
+                }
+            }
+        });
+
         notesTabPane.getSelectionModel().selectedItemProperty().addListener((o, old, n) -> {
+            if (old != null && old.getUserData() instanceof NoteTabContent previous) {
+                previous.lastActive = System.currentTimeMillis();
+            }
+            if (n != null && n.getUserData() instanceof NoteTabContent content) {
+                content.lastActive = System.currentTimeMillis();
+                if (content.hibernated) {
+                    wakeTab(content);
+                }
+                prefetchService.noteActivated(content.note);
+                // Превью этой вкладки могли забрать в пул, пока она была неактивна
+                if (content.previewScrollPane.isVisible()) {
+                    updatePreview(content);
+                }
+            }
             if (n != null && "PLUS_TAB".equals(n.getUserData())) {
                 if (old != null && !"PLUS_TAB".equals(old.getUserData())) {
                     Platform.runLater(() -> notesTabPane.getSelectionModel().select(old));
@@ -1852,17 +2090,40 @@ public class MainController {
         });
     }
 
-    private void refreshTree() {
-        TreeItem<Path> root = notesTreeView.getRoot();
-        root.getChildren().clear();
-        buildFileTree(fsManager.getVaultPath(), root);
+    /**
+     * Новая заметка создана приложением
+     */
+    private void onNoteCreated(Note note) {
+        treeModel.insert(note.getPath());
+        noteTitlesCache = null;
+        updateNotesCount();
+    }
+
+    /**
+     * Обновить пути открытых вкладок после переименования или переноса
+     * заметки или папки
+     */
+    private void remapOpenTabs(Path from, Path to) {
+        for (Path path : new ArrayList<>(openTabs.keySet())) {
+            if (!path.startsWith(from)) {
+                continue;
+            }
+
+            Path newPath = to.resolve(from.relativize(path));
+            Tab tab = openTabs.remove(path);
+            openTabs.put(newPath, tab);
 
-        fileWatcher.refreshSnapshotSilently();
+            if (tab.getUserData() instanceof NoteTabContent content) {
+                content.note.setPath(newPath);
+            }
+        }
     }
 
     private void updateNotesCount() {
         if (notesCountLabel != null) {
-            notesCountLabel.setText("Заметок: " + noteService.getNotesCount());
+            notesCountLabel.setText(
+                    LanguageManager.getInstance().format("notes.count", statisticsService.getNoteCount())
+            );
         }
     }
 
@@ -1894,8 +2155,7 @@ public class MainController {
             Note note = noteService.createNoteInDirectory(title, "", targetDir);
 
             openNoteInTab(note);
-            refreshTree();
-            updateNotesCount();
+            onNoteCreated(note);
 
         } catch (Exception e) {
             showError("Error", e.getMessage());
@@ -1918,8 +2178,7 @@ public class MainController {
                 String dailyContent = generateDailyNoteContent();
                 Note dailyNote = noteService.createNote(dateTitle, dailyContent);
                 openNoteInTab(dailyNote);
-                refreshTree();
-                updateNotesCount();
+                onNoteCreated(dailyNote);
                 logger.info("Создана новая ежедневная заметка: {}", dateTitle);
             }
         } catch (Exception e) {
@@ -1967,8 +2226,8 @@ public class MainController {
 
         dialog.showAndWait().ifPresent(name -> {
             try {
-                fsManager.createFolder(name, parentDir);
-                refreshTree();
+                Path folder = fsManager.createFolder(name, parentDir);
+                treeModel.insert(folder);
             } catch (Exception e) {
                 showError("Error", e.getMessage());
             }
@@ -2007,6 +2266,12 @@ public class MainController {
                     // 🔥 1. Получаем Note (ВАЖНО)
                     Note note = noteService.getNoteByPath(path);
 
+                    // Файл удаляется только после того, как допишутся его сохранения
+                    if (!saveService.flush(path, SAVE_FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                        showError("Error", "The note is still being saved. Try again later.");
+                        return;
+                    }
+
                     // 🔥 2. Закрываем вкладку (если открыта)
                     Tab tab = openTabs.get(path);
                     if (tab != null) {
@@ -2020,7 +2285,8 @@ public class MainController {
                     noteService.deleteNote(note);
 
                     // 🔥 4. Обновляем UI
-                    refreshTree();
+                    treeModel.remove(path);
+                    noteTitlesCache = null;
                     updateNotesCount();
 
                     // 🔥 5. Если вкладок не осталось — создаём пустую
@@ -2059,8 +2325,14 @@ public class MainController {
         d.showAndWait().ifPresent(n -> {
             try {
                 if (!n.trim().isEmpty()) {
-                    fsManager.rename(p, n);
-                    refreshTree();
+                    if (!saveService.flushAll(SAVE_FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                        showError("Error", "Some notes are still being saved. Try again later.");
+                        return;
+                    }
+                    Path renamed = bulkService.renameFolder(p, n);
+                    remapOpenTabs(p, renamed);
+                    treeModel.move(p, renamed);
+                    noteTitlesCache = null;
                 }
             } catch (Exception e) {
                 showError("Error", e.getMessage());
@@ -2083,9 +2355,13 @@ public class MainController {
         LanguageManager lm = LanguageManager.getInstance();
 
         try {
-            long cnt = Files.walk(p)
-                    .filter(x -> !x.equals(p))
-                    .count();
+            long cnt = statisticsService.getNoteCount(p);
+            if (cnt == 0) {
+                // Заметок нет, но могут быть другие файлы и пустые папки
+                try (Stream<Path> children = Files.list(p)) {
+                    cnt = children.count();
+                }
+            }
 
             String message = cnt > 0
                     ? lm.format("folder.delete.notEmpty", cnt)
@@ -2113,29 +2389,21 @@ public class MainController {
                                     }
                                     openTabs.remove(path);
                                 });
-                        Files.walk(p)
-                                .filter(Files::isRegularFile)
-                                .filter(fsManager::isNote)
-                                .forEach(notePath -> {
-                                    try {
-                                        Note note =
-                                                noteService.getNoteByPath(notePath);
-
-                                        if (note != null) {
-                                            noteService.deleteNote(note);
-                                        }
-                                    } catch (Exception ex) {
-                                        logger.error(
-                                                "Ошибка удаления заметки из индекса: {}",
-                                                notePath,
-                                                ex
-                                        );
-                                    }
-                                });
+                        if (!saveService.flushAll(SAVE_FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                            showError("Error", "Some notes are still being saved. Try again later.");
+                            return;
+                        }
 
-                        fsManager.delete(p);
+                        BulkNoteService.BulkResult result = bulkService.deleteFolder(p);
 
-                        refreshTree();
+                        if (result.isSuccessful()) {
+                            treeModel.remove(p);
+                        } else {
+                            // Папка осталась: из дерева убираются только удалённые заметки
+                            result.done.keySet().forEach(treeModel::remove);
+                            showError("Error", "Failed to delete " + result.failed.size() + " notes.");
+                        }
+                        noteTitlesCache = null;
                         updateNotesCount();
 
                     } catch (Exception e) {
@@ -2167,7 +2435,7 @@ public class MainController {
             boolean b = metadataManager.isBookmarked(rel);
             if (b) metadataManager.removeBookmark(rel);
             else metadataManager.addBookmark(rel);
-            refreshTree();
+            treeModel.setBookmarked(p, !b);
         } catch (Exception e) {
             showError("Error", e.getMessage());
         }
@@ -2208,12 +2476,16 @@ public class MainController {
             if (fsManager.isNote(cutPath)) {
                 moveNoteToFolder(cutPath, tgt);
             } else if (Files.isDirectory(cutPath)) {
-                Files.move(cutPath, dst);
+                if (!saveService.flushAll(SAVE_FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    showError("Error", "Some notes are still being saved. Try again later.");
+                    return;
+                }
+                bulkService.moveFolder(cutPath, tgt);
+                remapOpenTabs(cutPath, dst);
             }
 
+            treeModel.move(cutPath, dst);
             cutPath = null;
-            refreshTree();
-            updateNotesCount();
         } catch (Exception e) {
             showError("Error", e.getMessage());
         }
@@ -2230,6 +2502,10 @@ public class MainController {
                     saveNoteContent((NoteTabContent) t.getUserData());
                 }
             }
+            if (!saveService.flush(note, SAVE_FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                showError("Error", "The note is still being saved. Try again later.");
+                return;
+            }
 
             Note moved = noteService.moveNote(n, folder);
             if (openTabs.containsKey(note)) {
@@ -2245,87 +2521,178 @@ public class MainController {
     }
 
     @FXML
-    private void handleSearch() {
-        if (searchField == null || searchField.getText().trim().isEmpty()) {
-            hideSearch();
+    private void handleQuickOpen() {
+        new QuickOpenDialog().showAndWait().ifPresent(this::openNote);
+    }
+
+    @FXML
+    private void handleShowTags() {
+        new TagsDialog(this::renameTag).showAndWait().ifPresent(this::searchByTag);
+    }
+
+    /**
+     * Переименовать тег во всех заметках. Открытые вкладки перечитают
+     * изменённые файлы через наблюдатель за файлами.
+     */
+    private void renameTag(String oldTag, String newTag) {
+        if (!saveService.flushAll(SAVE_FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            showError("Error", "Some notes are still being saved. Try again later.");
             return;
         }
 
-        String query = searchField.getText().trim().toLowerCase();
-        currentSearchQuery = query;
+        NotePathIndex pathIndex = NotePathIndex.getInstance();
+        List<Path> paths = new ArrayList<>();
+        for (int id : pathIndex.idsOfTitles(TagIndexManager.getInstance().getNotesByTag(oldTag))) {
+            Path path = pathIndex.pathOf(id);
+            if (path != null) {
+                paths.add(path);
+            }
+        }
 
-        logger.info("Поиск: '{}'", query);
+        BulkNoteService.BulkResult result = bulkService.retagNotes(paths, Set.of(newTag), Set.of(oldTag));
+        logger.info("Тег #{} переименован в #{}: {} заметок", oldTag, newTag, result.done.size());
+        if (!result.isSuccessful()) {
+            showError("Error", "Failed to update " + result.failed.size() + " notes.");
+        }
+    }
 
-        new Thread(() -> {
-            try {
-                List<SearchResult> results = performSearch(query);
+    @FXML
+    private void handleShowHistory() {
+        Tab tab = notesTabPane.getSelectionModel().getSelectedItem();
+        if (tab == null || !(tab.getUserData() instanceof NoteTabContent content)) {
+            return;
+        }
 
-                Platform.runLater(() -> {
-                    searchResultsList.getItems().clear();
-                    searchResultsList.getItems().addAll(results);
-                    showSearch();
+        new HistoryDialog(content.note.getPath(), content.note.getTitle())
+                .showAndWait()
+                .ifPresent(text -> {
+                    // Восстановление — обычная правка: её можно отменить, и она сама попадёт в историю
+                    content.contentTextArea.replaceText(0, content.contentTextArea.getLength(), text);
+                    persistNote(content);
+                });
+    }
+
+    @FXML
+    private void handleShowTimeline() {
+        new TimelineDialog().showAndWait().ifPresent(this::openNote);
+    }
+
+    @FXML
+    private void handleShowTasks() {
+        new TasksDialog(this::toggleTask).showAndWait().ifPresent(this::openNote);
+    }
 
-                    logger.info("Найдено результатов: {}", results.size());
+    /**
+     * Переключить задачу. В открытой вкладке меняется символ в редакторе
+     * (и сохраняется как обычная правка), иначе — одна строка файла.
+     *
+     * @return false, если строка задачи изменилась или заметку не удалось прочитать
+     */
+    private boolean toggleTask(TaskIndex.Task task) {
+        Tab tab = openTabs.get(task.path);
+        if (tab != null && tab.getUserData() instanceof NoteTabContent content && !content.hibernated) {
+            int offset = TaskIndex.stateOffset(content.contentTextArea.getText(), task);
+            if (offset < 0) {
+                return false;
+            }
+            content.contentTextArea.replaceText(offset, offset + 1, task.done ? " " : "x");
+            persistNote(content);
+            return true;
+        }
+
+        Note note = noteService.getNoteByPath(task.path);
+        String body = note != null ? TaskIndex.toggle(note.getBodyContent(), task) : null;
+        if (body == null) {
+            logger.warn("Задача устарела: {} (строка {})", task.path, task.line + 1);
+            return false;
+        }
+        saveService.submit(NoteSaveService.snapshot(note, body))
+                .exceptionally(error -> {
+                    logger.error("Не удалось переключить задачу в {}", task.path, error);
+                    return null;
                 });
-            } catch (Exception e) {
-                logger.error("Ошибка поиска", e);
-                Platform.runLater(() -> showError("Ошибка поиска", e.getMessage()));
-            }
-        }).start();
+        return true;
+    }
+
+    @FXML
+    private void handleRelatedNotes() {
+        showSimilarNotes(false);
+    }
+
+    @FXML
+    private void handlePossibleDuplicates() {
+        showSimilarNotes(true);
     }
 
     /**
-     * Выполняет поиск по всем заметкам
+     * Показать в панели поиска заметки, похожие на открытую
      */
-    private List<SearchResult> performSearch(String query) throws Exception {
-        List<SearchResult> results = new ArrayList<>();
-        List<Path> allNotes = fsManager.getAllNotes();
+    private void showSimilarNotes(boolean duplicates) {
+        Tab tab = notesTabPane.getSelectionModel().getSelectedItem();
+        if (tab == null || !(tab.getUserData() instanceof NoteTabContent content)) {
+            return;
+        }
 
-        for (Path notePath : allNotes) {
-            try {
-                List<String> lines = Files.readAllLines(notePath);
-                String noteTitle = notePath.getFileName().toString().replaceAll("\\.md$", "");
-
-                if (noteTitle.toLowerCase().contains(query)) {
-                    results.add(new SearchResult(
-                            notePath,
-                            noteTitle,
-                            "Название содержит поисковый запрос",
-                            0
-                    ));
-                }
+        SimilarityIndex similarityIndex = SimilarityIndex.getInstance();
+        Path path = content.note.getPath();
+        List<SimilarityIndex.Match> matches = duplicates
+                ? similarityIndex.findDuplicates(path, MAX_SIMILAR_NOTES)
+                : similarityIndex.findRelated(path, MAX_SIMILAR_NOTES);
 
-                for (int i = 0; i < lines.size(); i++) {
-                    String line = lines.get(i);
-                    if (line.toLowerCase().contains(query)) {
-                        String preview = line.length() > 100
-                                ? line.substring(0, 100) + "..."
-                                : line;
-
-                        results.add(new SearchResult(
-                                notePath,
-                                noteTitle,
-                                preview.trim(),
-                                i + 1
-                        ));
-
-                        if (results.stream().filter(r -> r.notePath.equals(notePath)).count() >= 5) {
-                            break;
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                logger.warn("Ошибка чтения заметки: {}", notePath, e);
-            }
+        LanguageManager lm = LanguageManager.getInstance();
+        NotePathIndex pathIndex = NotePathIndex.getInstance();
+
+        searchService.cancel();
+        searchResultsList.getItems().clear();
+        for (SimilarityIndex.Match match : matches) {
+            String title = pathIndex.titleOf(match.path);
+            if (title == null) {
+                title = match.path.getFileName().toString().replaceAll("\\.md$", "");
+            }
+            searchResultsList.getItems().add(new SearchResult(
+                    match.path,
+                    title,
+                    lm.format("search.similarity", Math.round(match.similarity * 100)),
+                    0,
+                    match.similarity,
+                    new int[0]
+            ));
         }
+        showSearch();
 
-        results.sort((a, b) -> {
-            if (a.lineNumber == 0 && b.lineNumber != 0) return -1;
-            if (a.lineNumber != 0 && b.lineNumber == 0) return 1;
-            return a.noteTitle.compareToIgnoreCase(b.noteTitle);
-        });
+        logger.info("Похожих заметок для '{}': {}", content.note.getTitle(), matches.size());
+    }
+
+    @FXML
+    private void handleSearch() {
+        searchDebounce.stop();
+
+        if (searchField == null || searchField.getText().trim().isEmpty()) {
+            searchService.cancel();
+            hideSearch();
+            return;
+        }
 
-        return results;
+        String query = searchField.getText().trim();
+        currentSearchQuery = query;
+
+        logger.info("Поиск: '{}'", query);
+
+        searchResultsList.getItems().clear();
+        showSearch();
+
+        searchService.search(query,
+                (task, batch) -> Platform.runLater(() -> {
+                    if (!task.isCancelled()) {
+                        searchResultsList.getItems().addAll(batch);
+                    }
+                }),
+                (task, total) -> Platform.runLater(() -> {
+                    if (!task.isCancelled()) {
+                        searchResultsList.getItems().sort(SearchResult.ORDER);
+                        logger.info("Найдено результатов: {}", total);
+                    }
+                }));
     }
 
     /**
@@ -2378,12 +2745,22 @@ public class MainController {
         Platform.exit();
     }
 
+    /**
+     * Отписаться от сервисов, которые живут дольше контроллера.
+     * Вызывается при закрытии и перед заменой контроллера при перезагрузке UI.
+     */
+    public void detach() {
+        statisticsService.removeListener(statisticsListener);
+    }
+
     /**
      * Завершение работы приложения
      */
     public void shutdown() {
         logger.info("Завершение работы контроллера");
 
+        detach();
+
         fileWatcher.stop();
 
         for (Tab tab : notesTabPane.getTabs()) {
@@ -2391,10 +2768,7 @@ public class MainController {
                 NoteTabContent content = (NoteTabContent) tab.getUserData();
 
                 try {
-                    if (content.note != null && content.contentTextArea != null) {
-                        content.note.setBodyContent(content.contentTextArea.getText());
-                        content.note.extractOutgoingLinks();
-                        noteService.updateNote(content.note);
+                    if (persistNote(content)) {
                         logger.debug("Сохранена заметка при закрытии: {}", content.note.getTitle());
                     }
                 } catch (Exception e) {
@@ -2408,6 +2782,10 @@ public class MainController {
             autoSaveTimer = null;
         }
 
+        if (!saveService.flushAll(SAVE_FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            logger.error("Не все заметки успели сохраниться при закрытии");
+        }
+
         logger.info("Контроллер завершен");
     }
 
@@ -2464,31 +2842,14 @@ public class MainController {
         }
     }
 
+    /**
+     * Поиск по тегу выполняется как запрос tag:имя по индексам
+     */
     private void searchByTag(String tag) {
-        Set<String> noteTitles = TagIndexManager.getInstance().getNotesByTag(tag);
-
-        logger.info("Найдено {} заметок для тега #{}", noteTitles.size(), tag);
-
-        List<SearchResult> results = new ArrayList<>();
-
-        for (String title : noteTitles) {
-            Optional<Note> note = noteService.getNoteByTitle(title);
-            if (note.isPresent()) {
-                results.add(new SearchResult(
-                        note.get().getPath(),
-                        title,
-                        "Содержит тег #" + tag,
-                        0
-                ));
-            } else {
-                logger.warn("Заметка '{}' из индекса тегов не найдена в репозитории", title);
-            }
+        if (searchField == null) {
+            return;
         }
-
-        results.sort((a, b) -> a.noteTitle.compareToIgnoreCase(b.noteTitle));
-
-        searchResultsList.getItems().clear();
-        searchResultsList.getItems().addAll(results);
-        showSearch();
+        searchField.setText("tag:" + tag);
+        handleSearch();
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.notegraph.model;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -9,8 +11,22 @@ import java.util.regex.Pattern;
 /**
  * Модель заметки для файловой системы.
  * Заметка = .md файл с YAML frontmatter и markdown содержимым.
+ * <p>
+ * Заметки из списков создаются «ленивыми» ({@link #lazy}): текст, frontmatter
+ * и ссылки читаются из файла при первом обращении к ним, и только один раз.
  */
 public class Note {
+    public static final Pattern TAG_PATTERN = Pattern.compile("#([\\p{L}\\p{N}_-]+(?:/[\\p{L}\\p{N}_-]+)*)");
+    public static final Pattern LINK_PATTERN = Pattern.compile("\\[\\[([^\\]]+)\\]\\]");
+
+    /**
+     * Чтение заметки из файла
+     */
+    @FunctionalInterface
+    public interface Loader {
+        Note load(Path path) throws IOException;
+    }
+
     private Path path;
     private String title;
     private String content;
@@ -24,6 +40,12 @@ public class Note {
     private List<String> incomingLinks;
 
     private Integer legacyId;
+
+    /** Номер строки файла, с которой начинается тело (после frontmatter). */
+    private int bodyLineOffset;
+
+    /** Загрузчик содержимого ленивой заметки; null — содержимое уже в памяти. */
+    private Loader loader;
     
     /**
      * Конструктор для файловой системы
@@ -75,7 +97,49 @@ public class Note {
         this.path = null;
     }
 
-    
+
+    /**
+     * Заметка со сведениями из индекса; содержимое читается при первом обращении
+     */
+    public static Note lazy(NoteSummary summary, Loader loader) {
+        Note note = new Note(summary.getPath());
+        note.title = summary.getTitle();
+        note.created = summary.getCreated();
+        note.modified = summary.getModified();
+        note.loader = loader;
+        return note;
+    }
+
+    /**
+     * Прочитано ли содержимое заметки
+     */
+    public synchronized boolean isLoaded() {
+        return loader == null;
+    }
+
+    private synchronized void ensureLoaded() {
+        if (loader == null) {
+            return;
+        }
+        Loader current = loader;
+        loader = null;
+
+        Note loaded;
+        try {
+            loaded = current.load(path);
+        } catch (IOException e) {
+            loader = current;
+            throw new UncheckedIOException("Не удалось прочитать заметку: " + path, e);
+        }
+
+        content = loaded.content;
+        bodyContent = loaded.bodyContent;
+        bodyLineOffset = loaded.bodyLineOffset;
+        frontmatter = loaded.frontmatter;
+        tags = loaded.tags;
+        outgoingLinks = loaded.outgoingLinks;
+    }
+
     public Path getPath() {
         return path;
     }
@@ -100,10 +164,12 @@ public class Note {
     }
     
     public String getContent() {
+        ensureLoaded();
         return content;
     }
     
     public void setContent(String content) {
+        ensureLoaded();
         this.content = content;
         // Также устанавливаем bodyContent если frontmatter пустой
         if (this.bodyContent == null) {
@@ -112,6 +178,7 @@ public class Note {
     }
     
     public String getBodyContent() {
+        ensureLoaded();
         if (bodyContent == null) {
             return content;
         }
@@ -119,14 +186,26 @@ public class Note {
     }
     
     public void setBodyContent(String bodyContent) {
+        ensureLoaded();
         this.bodyContent = bodyContent;
     }
+
+    public int getBodyLineOffset() {
+        ensureLoaded();
+        return bodyLineOffset;
+    }
+
+    public void setBodyLineOffset(int bodyLineOffset) {
+        this.bodyLineOffset = bodyLineOffset;
+    }
     
     public Map<String, Object> getFrontmatter() {
+        ensureLoaded();
         return frontmatter;
     }
     
     public void setFrontmatter(Map<String, Object> frontmatter) {
+        ensureLoaded();
         this.frontmatter = frontmatter;
     }
     
@@ -151,6 +230,7 @@ public class Note {
     }
     
     public List<String> getOutgoingLinks() {
+        ensureLoaded();
         return outgoingLinks;
     }
     
@@ -211,25 +291,39 @@ public class Note {
      * Извлечь исходящие ссылки из содержимого (wikilinks [[название]])
      */
     public void extractOutgoingLinks() {
+        ensureLoaded();
         String textToSearch = bodyContent != null ? bodyContent : content;
         if (textToSearch == null) {
             return;
         }
         
         outgoingLinks.clear();
-        Pattern pattern = Pattern.compile("\\[\\[([^\\]]+)\\]\\]");
-        Matcher matcher = pattern.matcher(textToSearch);
+        Matcher matcher = LINK_PATTERN.matcher(textToSearch);
         
         while (matcher.find()) {
-            String link = matcher.group(1);
-            if (link.contains("|")) {
-                link = link.split("\\|")[0];
-            }
+            String link = linkTarget(matcher.group(1));
             if (!outgoingLinks.contains(link)) {
-                outgoingLinks.add(link.trim());
+                outgoingLinks.add(link);
             }
         }
     }
+
+    /**
+     * Исходящие ссылки, уже извлечённые из текста (например, редактором)
+     */
+    public void setOutgoingLinks(Collection<String> links) {
+        ensureLoaded();
+        outgoingLinks.clear();
+        outgoingLinks.addAll(links);
+    }
+
+    /**
+     * Название заметки из содержимого wiki-ссылки: [[название|подпись]] → «название»
+     */
+    public static String linkTarget(String linkText) {
+        int pipe = linkText.indexOf('|');
+        return (pipe >= 0 ? linkText.substring(0, pipe) : linkText).trim();
+    }
     
     @Override
     public int hashCode() {
@@ -249,26 +343,44 @@ public class Note {
     }
 
     public Set<String> getTags() {
+        ensureLoaded();
         return tags;
     }
 
     public void setTags(Set<String> tags) {
+        ensureLoaded();
         this.tags = tags;
     }
 
     /**
      * Извлечь теги из содержимого заметки.
-     * Тег начинается с символа #.
+     * Тег начинается с символа #, части вложенного тега разделяются / (#proj/alpha).
      */
     public void extractTags() {
 
+        ensureLoaded();
+
         tags.clear();
+        tags.addAll(findTags(bodyContent));
+    }
 
-        Pattern pattern = Pattern.compile("#([\\p{L}\\p{N}_-]+)");
-        Matcher matcher = pattern.matcher(bodyContent);
+    /**
+     * Теги в тексте (без #)
+     */
+    public static Set<String> findTags(String text) {
+
+        Set<String> found = new HashSet<>();
+
+        if (text == null) {
+            return found;
+        }
+
+        Matcher matcher = TAG_PATTERN.matcher(text);
 
         while (matcher.find()) {
-            tags.add(matcher.group(1));
+            found.add(matcher.group(1));
         }
+
+        return found;
     }
 }
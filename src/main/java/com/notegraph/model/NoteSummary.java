@@ -0,0 +1,72 @@
+package com.notegraph.model;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Краткие сведения о заметке для списков: без текста и frontmatter.
+ * Строится при индексации, поэтому для списка заметок файлы не читаются.
+ */
+public class NoteSummary {
+    private final Path path;
+    private final String title;
+    private final LocalDateTime created;
+    private final LocalDateTime modified;
+    private final int tagCount;
+    private final int linkCount;
+
+    public NoteSummary(Path path, String title, LocalDateTime created, LocalDateTime modified,
+                       int tagCount, int linkCount) {
+        this.path = path;
+        this.title = title;
+        this.created = created;
+        this.modified = modified;
+        this.tagCount = tagCount;
+        this.linkCount = linkCount;
+    }
+
+    /**
+     * Сведения о прочитанной заметке
+     */
+    public static NoteSummary of(Note note) {
+        Set<String> tags = new HashSet<>(note.getTags());
+        tags.addAll(Note.findTags(note.getBodyContent()));
+        return new NoteSummary(note.getPath(), note.getTitle(), note.getCreated(), note.getModified(),
+                tags.size(), note.getOutgoingLinks().size());
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public LocalDateTime getCreated() {
+        return created;
+    }
+
+    public LocalDateTime getModified() {
+        return modified;
+    }
+
+    public int getTagCount() {
+        return tagCount;
+    }
+
+    public int getLinkCount() {
+        return linkCount;
+    }
+
+    @Override
+    public String toString() {
+        return "NoteSummary{" +
+                "path=" + path +
+                ", title='" + title + '\'' +
+                ", modified=" + modified +
+                '}';
+    }
+}
@@ -0,0 +1,69 @@
+package com.notegraph.model;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+
+/**
+ * Результат поиска: заметка и найденная строка (0 — совпадение в названии)
+ */
+public class SearchResult {
+    /**
+     * По убыванию релевантности; при равной — совпадения в названии выше
+     * совпадений в тексте, дальше по названию.
+     */
+    public static final Comparator<SearchResult> ORDER = Comparator
+            .comparingDouble((SearchResult r) -> -r.score)
+            .thenComparing(r -> r.lineNumber != 0)
+            .thenComparing(r -> r.noteTitle, String.CASE_INSENSITIVE_ORDER);
+
+    private final Path notePath;
+    private final String noteTitle;
+    private final String matchedLine;
+    private final int lineNumber;
+    private final double score;
+    /** Пары [начало, конец) подсвечиваемых фрагментов в matchedLine. */
+    private final int[] highlights;
+
+    public SearchResult(Path notePath, String noteTitle, String matchedLine, int lineNumber) {
+        this(notePath, noteTitle, matchedLine, lineNumber, 0, new int[0]);
+    }
+
+    public SearchResult(Path notePath, String noteTitle, String matchedLine, int lineNumber,
+                        double score, int[] highlights) {
+        this.notePath = notePath;
+        this.noteTitle = noteTitle;
+        this.matchedLine = matchedLine;
+        this.lineNumber = lineNumber;
+        this.score = score;
+        this.highlights = highlights;
+    }
+
+    public Path getNotePath() {
+        return notePath;
+    }
+
+    public String getNoteTitle() {
+        return noteTitle;
+    }
+
+    public String getMatchedLine() {
+        return matchedLine;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public int[] getHighlights() {
+        return highlights;
+    }
+
+    @Override
+    public String toString() {
+        return noteTitle + " (строка " + lineNumber + "): " + matchedLine;
+    }
+}
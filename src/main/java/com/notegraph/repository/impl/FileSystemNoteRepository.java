@@ -1,9 +1,11 @@
 package com.notegraph.repository.impl;
 
 import com.notegraph.model.Note;
+import com.notegraph.model.NoteSummary;
 import com.notegraph.repository.NoteRepository;
 import com.notegraph.util.FileSystemManager;
 import com.notegraph.util.NoteParser;
+import com.notegraph.util.NotePathIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -69,6 +71,11 @@ public class FileSystemNoteRepository implements NoteRepository {
     
     @Override
     public Optional<Note> findByTitle(String title) {
+        NotePathIndex pathIndex = NotePathIndex.getInstance();
+        if (pathIndex.isReady()) {
+            return pathIndex.findByTitle(title).flatMap(this::findByPath);
+        }
+
         try {
             List<Path> allNotes = fsManager.getAllNotes();
             
@@ -101,8 +108,17 @@ public class FileSystemNoteRepository implements NoteRepository {
         }
     }
     
+    /**
+     * Все заметки. Пока индекс готов, заметки ленивые: файлы читаются
+     * только у тех, к чьему содержимому обратятся.
+     */
     @Override
     public List<Note> findAll() {
+        NotePathIndex pathIndex = NotePathIndex.getInstance();
+        if (pathIndex.isReady()) {
+            return toLazyNotes(pathIndex.getSummaries());
+        }
+
         try {
             List<Path> allNotes = fsManager.getAllNotes();
             List<Note> notes = new ArrayList<>();
@@ -123,6 +139,39 @@ public class FileSystemNoteRepository implements NoteRepository {
             return new ArrayList<>();
         }
     }
+
+    /**
+     * Сведения обо всех заметках (без текста)
+     */
+    public List<NoteSummary> findAllSummaries() {
+        NotePathIndex pathIndex = NotePathIndex.getInstance();
+        if (pathIndex.isReady()) {
+            return pathIndex.getSummaries();
+        }
+
+        try {
+            List<NoteSummary> summaries = new ArrayList<>();
+            for (Path notePath : fsManager.getAllNotes()) {
+                try {
+                    summaries.add(NoteSummary.of(NoteParser.parseNote(notePath)));
+                } catch (IOException e) {
+                    logger.warn("Не удалось прочитать заметку: {}", notePath, e);
+                }
+            }
+            return summaries;
+        } catch (IOException e) {
+            logger.error("Ошибка при получении всех заметок", e);
+            return new ArrayList<>();
+        }
+    }
+
+    private static List<Note> toLazyNotes(List<NoteSummary> summaries) {
+        List<Note> notes = new ArrayList<>(summaries.size());
+        for (NoteSummary summary : summaries) {
+            notes.add(Note.lazy(summary, NoteParser::parseNote));
+        }
+        return notes;
+    }
     
     @Override
     public Note update(Note note) {
@@ -171,13 +220,18 @@ public class FileSystemNoteRepository implements NoteRepository {
         
         String lowerQuery = titlePart.toLowerCase();
         
-        return findAll().stream()
-            .filter(note -> note.getTitle().toLowerCase().contains(lowerQuery))
-            .collect(Collectors.toList());
+        return toLazyNotes(findAllSummaries().stream()
+            .filter(summary -> summary.getTitle().toLowerCase().contains(lowerQuery))
+            .collect(Collectors.toList()));
     }
     
     @Override
     public int count() {
+        NotePathIndex pathIndex = NotePathIndex.getInstance();
+        if (pathIndex.isReady()) {
+            return pathIndex.size();
+        }
+
         try {
             return (int) fsManager.getAllNotes().size();
         } catch (IOException e) {
@@ -226,6 +280,18 @@ public class FileSystemNoteRepository implements NoteRepository {
      * Найти все заметки в конкретной папке (не рекурсивно)
      */
     public List<Note> findInFolder(Path folder) {
+        return toLazyNotes(findSummariesInFolder(folder));
+    }
+
+    /**
+     * Сведения о заметках в конкретной папке (не рекурсивно)
+     */
+    public List<NoteSummary> findSummariesInFolder(Path folder) {
+        NotePathIndex pathIndex = NotePathIndex.getInstance();
+        if (pathIndex.isReady()) {
+            return pathIndex.getSummariesIn(folder);
+        }
+
         try {
             List<Path> children = fsManager.getChildren(folder);
             
@@ -233,13 +299,13 @@ public class FileSystemNoteRepository implements NoteRepository {
                 .filter(fsManager::isNote)
                 .map(path -> {
                     try {
-                        return NoteParser.parseNote(path);
+                        return NoteSummary.of(NoteParser.parseNote(path));
                     } catch (IOException e) {
                         logger.warn("Не удалось прочитать заметку: {}", path, e);
                         return null;
                     }
                 })
-                .filter(note -> note != null)
+                .filter(summary -> summary != null)
                 .collect(Collectors.toList());
         } catch (IOException e) {
             logger.error("Ошибка при получении заметок из папки: {}", folder, e);
@@ -256,13 +322,19 @@ public class FileSystemNoteRepository implements NoteRepository {
         }
         
         String lowerQuery = query.toLowerCase();
-        
-        return findAll().stream()
-            .filter(note -> 
-                note.getTitle().toLowerCase().contains(lowerQuery) ||
-                (note.getBodyContent() != null && 
-                 note.getBodyContent().toLowerCase().contains(lowerQuery))
-            )
-            .collect(Collectors.toList());
+        List<Note> result = new ArrayList<>();
+
+        // Заметки читаются по одной; в памяти остаются только найденные
+        for (NoteSummary summary : findAllSummaries()) {
+            if (summary.getTitle().toLowerCase().contains(lowerQuery)) {
+                result.add(Note.lazy(summary, NoteParser::parseNote));
+                continue;
+            }
+            findByPath(summary.getPath())
+                .filter(note -> note.getBodyContent() != null
+                        && note.getBodyContent().toLowerCase().contains(lowerQuery))
+                .ifPresent(result::add);
+        }
+        return result;
     }
 }
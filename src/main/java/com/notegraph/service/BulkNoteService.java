@@ -0,0 +1,306 @@
+package com.notegraph.service;
+
+import com.notegraph.model.Note;
+import com.notegraph.util.FileSystemManager;
+import com.notegraph.util.FileWatcherService;
+import com.notegraph.util.LinkIndexManager;
+import com.notegraph.util.MetadataManager;
+import com.notegraph.util.NoteHistory;
+import com.notegraph.util.NoteParser;
+import com.notegraph.util.NotePathIndex;
+import com.notegraph.util.TagIndexManager;
+import com.notegraph.util.VaultIndexer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Пакетные операции над заметками: удаление, смена тегов,
+ * удаление, перемещение и переименование папок.
+ * <p>
+ * Файловые операции выполняются параллельно в пуле из нескольких потоков.
+ * Изменения индексов копятся до конца операции и применяются одним разом:
+ * index.json и tags.json записываются по одному разу на всю операцию,
+ * а не на каждую заметку.
+ */
+public class BulkNoteService {
+    private static final Logger logger = LoggerFactory.getLogger(BulkNoteService.class);
+    private static BulkNoteService instance;
+
+    private static final int THREADS = 4;
+
+    private final FileSystemManager fsManager = FileSystemManager.getInstance();
+    private final LinkIndexManager linkIndexManager = LinkIndexManager.getInstance();
+    private final TagIndexManager tagIndexManager = TagIndexManager.getInstance();
+    private final VaultIndexer vaultIndexer = VaultIndexer.getInstance();
+    private final NotePathIndex pathIndex = NotePathIndex.getInstance();
+    private final MetadataManager metadataManager = MetadataManager.getInstance();
+    private final FileWatcherService fileWatcher = FileWatcherService.getInstance();
+    private final NoteHistory noteHistory = NoteHistory.getInstance();
+    private final ExecutorService executor;
+
+    /**
+     * Итог пакетной операции
+     */
+    public static class BulkResult {
+        /** Обработанные заметки: старый путь → новый (для удаления — null). */
+        public final Map<Path, Path> done = new LinkedHashMap<>();
+        /** Заметки, которые обработать не удалось, и причина. */
+        public final Map<Path, Exception> failed = new LinkedHashMap<>();
+
+        public boolean isSuccessful() {
+            return failed.isEmpty();
+        }
+    }
+
+    /**
+     * Изменения индексов, накопленные за операцию
+     */
+    private class IndexChanges {
+        final Set<String> removedTitles = new LinkedHashSet<>();
+        final List<Path> removedPaths = new ArrayList<>();
+        final List<Note> updatedNotes = new ArrayList<>();
+        /** Заметки, у которых изменились связи или теги. */
+        final List<Note> retaggedNotes = new ArrayList<>();
+
+        void commit() {
+            linkIndexManager.commitBatch(removedTitles, retaggedNotes);
+            tagIndexManager.commitBatch(removedTitles, retaggedNotes);
+
+            for (Path path : removedPaths) {
+                vaultIndexer.noteRemoved(path);
+            }
+            for (Note note : updatedNotes) {
+                vaultIndexer.noteUpdated(note);
+            }
+        }
+    }
+
+    /**
+     * Файловая операция над одной заметкой (выполняется в пуле)
+     */
+    @FunctionalInterface
+    private interface NoteTask<T> {
+        T run(Path path) throws Exception;
+    }
+
+    private BulkNoteService() {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        this.executor = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread t = new Thread(r, "bulk-io-thread-" + threadNumber.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static synchronized BulkNoteService getInstance() {
+        if (instance == null) {
+            instance = new BulkNoteService();
+        }
+        return instance;
+    }
+
+    /**
+     * Удалить заметки
+     */
+    public BulkResult deleteNotes(Collection<Path> paths) {
+        BulkResult result = new BulkResult();
+        IndexChanges changes = new IndexChanges();
+
+        // Заголовки берутся из индекса путей, а не разбором каждого файла
+        Map<Path, String> titles = new HashMap<>();
+        for (Path path : paths) {
+            titles.put(path, titleOf(path));
+        }
+
+        Map<Path, Boolean> deleted = runAll(paths, path -> {
+            Files.deleteIfExists(path);
+            return true;
+        }, result);
+
+        for (Path path : deleted.keySet()) {
+            if (titles.get(path) != null) {
+                changes.removedTitles.add(titles.get(path));
+            }
+            changes.removedPaths.add(path);
+            result.done.put(path, null);
+        }
+
+        changes.commit();
+        logger.info("Удалено заметок: {}, ошибок: {}", result.done.size(), result.failed.size());
+        return result;
+    }
+
+    /**
+     * Удалить папку вместе со всеми заметками. Если какие-то заметки удалить
+     * не удалось, папка остаётся вместе с ними.
+     */
+    public BulkResult deleteFolder(Path folder) throws IOException {
+        BulkResult result = deleteNotes(notesUnder(folder));
+        if (result.isSuccessful()) {
+            fsManager.delete(folder);
+        } else {
+            logger.warn("Папка не удалена, остались заметки: {} ({})", folder, result.failed.size());
+        }
+        return result;
+    }
+
+    /**
+     * Переместить папку целиком (одной операцией). Пути заметок поддерева
+     * в индексах, закладках и недавних меняются без чтения файлов.
+     *
+     * @return новый путь папки
+     */
+    public Path moveFolder(Path folder, Path targetParent) throws IOException {
+        Path target = targetParent.resolve(folder.getFileName());
+        if (Files.exists(target)) {
+            throw new IOException("A file with this name already exists: " + target);
+        }
+
+        Files.move(folder, target);
+        subtreeMoved(folder, target);
+        return target;
+    }
+
+    /**
+     * Переименовать папку; пути заметок внутри меняются так же, как при перемещении
+     *
+     * @return новый путь папки
+     */
+    public Path renameFolder(Path folder, String newName) throws IOException {
+        Path renamed = fsManager.rename(folder, newName);
+        subtreeMoved(folder, renamed);
+        return renamed;
+    }
+
+    private void subtreeMoved(Path from, Path to) {
+        Map<Path, Path> moves = vaultIndexer.subtreeMoved(from, to);
+        fileWatcher.pathsMoved(moves);
+        noteHistory.pathsMoved(moves);
+
+        Path vaultPath = fsManager.getVaultPath();
+        metadataManager.remapPaths(vaultPath.relativize(from), vaultPath.relativize(to));
+    }
+
+    /**
+     * Добавить и убрать теги у заметок. Добавленные теги дописываются строкой
+     * в конец заметки, убранные вырезаются из текста.
+     */
+    public BulkResult retagNotes(Collection<Path> paths, Set<String> addTags, Set<String> removeTags) {
+        BulkResult result = new BulkResult();
+        IndexChanges changes = new IndexChanges();
+
+        Map<Path, Note> retagged = runAll(paths, path -> {
+            Note note = NoteParser.parseNote(path);
+            String body = retag(note.getBodyContent(), addTags, removeTags);
+            if (body.equals(note.getBodyContent())) {
+                // Нечего менять — индексы не трогаем
+                return null;
+            }
+            note.setBodyContent(body);
+            note.extractOutgoingLinks();
+            note.extractTags();
+            NoteParser.saveNote(note);
+            return note;
+        }, result);
+
+        for (Map.Entry<Path, Note> entry : retagged.entrySet()) {
+            if (entry.getValue() != null) {
+                changes.retaggedNotes.add(entry.getValue());
+                changes.updatedNotes.add(entry.getValue());
+            }
+            result.done.put(entry.getKey(), entry.getKey());
+        }
+
+        changes.commit();
+        logger.info("Изменены теги заметок: {}, ошибок: {}", result.done.size(), result.failed.size());
+        return result;
+    }
+
+    /**
+     * Текст заметки с добавленными и убранными тегами
+     */
+    static String retag(String body, Set<String> addTags, Set<String> removeTags) {
+        String text = body != null ? body : "";
+
+        for (String tag : removeTags) {
+            // Вместе с тегом вырезается пробел перед ним, а в начале строки — после него
+            String quoted = "#" + Pattern.quote(tag) + "(?![\\p{L}\\p{N}_/-])";
+            Pattern pattern = Pattern.compile(
+                    "(?m)^" + quoted + "[ \\t]?|[ \\t]?(?<![\\p{L}\\p{N}_/#-])" + quoted);
+            text = pattern.matcher(text).replaceAll("");
+        }
+
+        Set<String> present = Note.findTags(text);
+        String missing = addTags.stream()
+                .filter(tag -> !present.contains(tag))
+                .map(tag -> "#" + tag)
+                .collect(Collectors.joining(" "));
+        if (!missing.isEmpty()) {
+            text = text.isEmpty() || text.endsWith("\n")
+                    ? text + missing + "\n"
+                    : text + "\n\n" + missing + "\n";
+        }
+        return text;
+    }
+
+    /**
+     * Выполнить операцию для каждой заметки в пуле и дождаться всех.
+     * Ошибки собираются в result, успешные результаты возвращаются по путям.
+     */
+    private <T> Map<Path, T> runAll(Collection<Path> paths, NoteTask<T> task, BulkResult result) {
+        Map<Path, Future<T>> futures = new LinkedHashMap<>();
+        for (Path path : paths) {
+            futures.put(path, executor.submit(() -> task.run(path)));
+        }
+
+        Map<Path, T> done = new LinkedHashMap<>();
+        for (Map.Entry<Path, Future<T>> entry : futures.entrySet()) {
+            try {
+                done.put(entry.getKey(), entry.getValue().get());
+            } catch (ExecutionException e) {
+                Exception cause = e.getCause() instanceof Exception ex ? ex : e;
+                logger.error("Ошибка пакетной операции: {}", entry.getKey(), cause);
+                result.failed.put(entry.getKey(), cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.failed.put(entry.getKey(), e);
+            }
+        }
+        return done;
+    }
+
+    private String titleOf(Path path) {
+        String title = pathIndex.titleOf(path);
+        if (title != null) {
+            return title;
+        }
+        try {
+            return NoteParser.parseNote(path).getTitle();
+        } catch (IOException e) {
+            logger.warn("Не удалось прочитать заголовок: {}", path);
+            return null;
+        }
+    }
+
+    private List<Path> notesUnder(Path folder) throws IOException {
+        try (Stream<Path> stream = Files.walk(folder)) {
+            return stream
+                    .filter(Files::isRegularFile)
+                    .filter(fsManager::isNote)
+                    .collect(Collectors.toList());
+        }
+    }
+}
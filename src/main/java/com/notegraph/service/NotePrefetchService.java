@@ -0,0 +1,198 @@
+package com.notegraph.service;
+
+import com.notegraph.model.Note;
+import com.notegraph.util.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Предзагрузка заметок, которые, скорее всего, откроют следующими.
+ * <p>
+ * Когда заметка становится активной, в фоне (поток с низким приоритетом)
+ * читаются и рендерятся её исходящие ссылки и обратные ссылки. Кандидаты
+ * ранжируются по числу открытий из MetadataManager. Прочитанные заметки
+ * лежат в небольшом LRU-кэше, HTML блоков — в кэше MarkdownRenderer.
+ */
+public class NotePrefetchService {
+    private static final Logger logger = LoggerFactory.getLogger(NotePrefetchService.class);
+    private static NotePrefetchService instance;
+
+    /** Сколько заметок предзагружать для одной активной. */
+    private static final int MAX_PREFETCH = 8;
+    private static final int MAX_BACKLINKS = 4;
+    private static final int CACHE_SIZE = 32;
+
+    private final ExecutorService executor;
+    private final NotePathIndex pathIndex = NotePathIndex.getInstance();
+    private final LinkIndexManager linkIndexManager = LinkIndexManager.getInstance();
+    private final MetadataManager metadataManager = MetadataManager.getInstance();
+    private final MarkdownRenderer markdownRenderer = MarkdownRenderer.getInstance();
+    private final Path vaultPath = FileSystemManager.getInstance().getVaultPath();
+
+    /** Номер последнего запроса: устаревшие задачи прерываются. */
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Path activePath;
+
+    private static class CachedNote {
+        final Note note;
+        final long modified;
+
+        CachedNote(Note note, long modified) {
+            this.note = note;
+            this.modified = modified;
+        }
+    }
+
+    private final Map<Path, CachedNote> cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, CachedNote> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private NotePrefetchService() {
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "note-prefetch-thread");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    public static synchronized NotePrefetchService getInstance() {
+        if (instance == null) {
+            instance = new NotePrefetchService();
+        }
+        return instance;
+    }
+
+    /**
+     * Заметка стала активной: запланировать предзагрузку её соседей
+     */
+    public void noteActivated(Note note) {
+        if (note == null || note.getPath() == null || note.getPath().equals(activePath)) {
+            return;
+        }
+        activePath = note.getPath();
+
+        long current = generation.incrementAndGet();
+        String title = note.getTitle();
+        List<String> outgoing = new ArrayList<>(note.getOutgoingLinks());
+
+        executor.execute(() -> prefetch(current, title, outgoing));
+    }
+
+    /**
+     * Забрать предзагруженную заметку, если файл с тех пор не менялся.
+     * Заметка удаляется из кэша: дальше её меняет вкладка редактора.
+     *
+     * @return заметка или null, если в кэше её нет или она устарела
+     */
+    public Note takeNote(Path path) {
+        CachedNote cached;
+        synchronized (cache) {
+            cached = cache.remove(path);
+        }
+        if (cached == null) {
+            return null;
+        }
+
+        Long modified = lastModified(path);
+        return modified != null && modified == cached.modified ? cached.note : null;
+    }
+
+    private void prefetch(long requestGeneration, String title, List<String> outgoing) {
+        List<Path> candidates = rankCandidates(title, outgoing);
+
+        int loaded = 0;
+        for (Path path : candidates) {
+            if (generation.get() != requestGeneration) {
+                return;
+            }
+            if (prefetchNote(path)) {
+                loaded++;
+            }
+        }
+
+        if (loaded > 0) {
+            logger.debug("Предзагружено заметок для '{}': {}", title, loaded);
+        }
+    }
+
+    /**
+     * Исходящие ссылки важнее обратных; внутри группы — чаще открываемые выше
+     */
+    private List<Path> rankCandidates(String title, List<String> outgoing) {
+        Comparator<Path> byOpenCount = Comparator.comparingInt(this::openCount).reversed();
+
+        List<Path> forward = resolve(outgoing, title);
+        forward.sort(byOpenCount);
+
+        List<Path> backward = resolve(linkIndexManager.getBacklinks(title), title);
+        backward.removeAll(forward);
+        backward.sort(byOpenCount);
+
+        Set<Path> result = new LinkedHashSet<>(forward);
+        result.addAll(backward.subList(0, Math.min(MAX_BACKLINKS, backward.size())));
+
+        return new ArrayList<>(result).subList(0, Math.min(MAX_PREFETCH, result.size()));
+    }
+
+    private List<Path> resolve(Collection<String> titles, String ownTitle) {
+        List<Path> paths = new ArrayList<>();
+        for (String linked : new LinkedHashSet<>(titles)) {
+            if (linked == null || linked.equals(ownTitle)) {
+                continue;
+            }
+            pathIndex.findByTitle(linked).ifPresent(paths::add);
+        }
+        return paths;
+    }
+
+    private boolean prefetchNote(Path path) {
+        Long modified = lastModified(path);
+        if (modified == null) {
+            return false;
+        }
+
+        synchronized (cache) {
+            CachedNote cached = cache.get(path);
+            if (cached != null && cached.modified == modified) {
+                return false;
+            }
+        }
+
+        try {
+            Note note = NoteParser.parseNote(path);
+            markdownRenderer.prerender(note.getTitle(), note.getBodyContent());
+
+            synchronized (cache) {
+                cache.put(path, new CachedNote(note, modified));
+            }
+            return true;
+        } catch (Exception e) {
+            logger.debug("Не удалось предзагрузить заметку: {}", path, e);
+            return false;
+        }
+    }
+
+    private int openCount(Path path) {
+        return metadataManager.getOpenCount(vaultPath.relativize(path).toString());
+    }
+
+    private static Long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.notegraph.service;
+
+import com.notegraph.model.Note;
+import com.notegraph.service.impl.NoteServiceImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Фоновое сохранение заметок вне FX-потока.
+ * <p>
+ * Для каждого пути действует своя очередь: сохранения одной заметки
+ * выполняются строго по порядку, а несколько ожидающих записей одной заметки
+ * схлопываются в одну (записывается самый свежий снимок).
+ * Заметки с разными путями сохраняются параллельно.
+ */
+public class NoteSaveService {
+    private static final Logger logger = LoggerFactory.getLogger(NoteSaveService.class);
+    private static NoteSaveService instance;
+
+    private static final int THREADS = 2;
+
+    private final NoteServiceImpl noteService;
+    private final ExecutorService executor;
+
+    /** Очереди по путям; доступ только под монитором this. */
+    private final Map<Path, PathQueue> queues = new HashMap<>();
+
+    private static class PathQueue {
+        boolean running;
+        Note pending;
+        CompletableFuture<Note> pendingFuture;
+    }
+
+    private NoteSaveService() {
+        this.noteService = new NoteServiceImpl();
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        this.executor = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread t = new Thread(r, "note-save-thread-" + threadNumber.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static synchronized NoteSaveService getInstance() {
+        if (instance == null) {
+            instance = new NoteSaveService();
+        }
+        return instance;
+    }
+
+    /**
+     * Снимок заметки для записи: вкладка может продолжать менять исходный объект,
+     * пока сохранение выполняется в фоне.
+     */
+    public static Note snapshot(Note note, String bodyContent) {
+        Note copy = new Note(note.getPath());
+        copy.setTitle(note.getTitle());
+        copy.setFrontmatter(new HashMap<>(note.getFrontmatter()));
+        copy.setBodyContent(bodyContent);
+        copy.setCreated(note.getCreated());
+        copy.setModified(note.getModified());
+        return copy;
+    }
+
+    /**
+     * Поставить заметку в очередь на сохранение.
+     * Если для этого пути уже ждёт запись, она заменяется новым снимком
+     * и возвращается тот же future.
+     *
+     * @return future, завершающийся сохранённой заметкой (в потоке сохранения)
+     */
+    public synchronized CompletableFuture<Note> submit(Note snapshot) {
+        Path path = snapshot.getPath();
+        PathQueue queue = queues.computeIfAbsent(path, p -> new PathQueue());
+
+        if (queue.pending != null) {
+            queue.pending = snapshot;
+            logger.debug("Сохранение объединено с ожидающим: {}", path);
+            return queue.pendingFuture;
+        }
+
+        queue.pending = snapshot;
+        queue.pendingFuture = new CompletableFuture<>();
+        CompletableFuture<Note> future = queue.pendingFuture;
+
+        if (!queue.running) {
+            startNext(path, queue);
+        }
+
+        return future;
+    }
+
+    /**
+     * Дождаться завершения всех сохранений указанной заметки
+     * (например, перед переименованием, перемещением или удалением файла).
+     *
+     * @return true, если записи завершились до истечения таймаута
+     */
+    public synchronized boolean flush(Path path, long timeout, TimeUnit unit) {
+        return waitUntil(() -> !queues.containsKey(path), unit.toMillis(timeout));
+    }
+
+    /**
+     * Дождаться завершения всех сохранений.
+     *
+     * @return true, если все записи завершились до истечения таймаута
+     */
+    public synchronized boolean flushAll(long timeout, TimeUnit unit) {
+        return waitUntil(queues::isEmpty, unit.toMillis(timeout));
+    }
+
+    /**
+     * Есть ли незавершённые сохранения указанной заметки
+     */
+    public synchronized boolean isPending(Path path) {
+        return queues.containsKey(path);
+    }
+
+    /**
+     * Есть ли незавершённые сохранения
+     */
+    public synchronized boolean isIdle() {
+        return queues.isEmpty();
+    }
+
+    private void startNext(Path path, PathQueue queue) {
+        Note note = queue.pending;
+        CompletableFuture<Note> future = queue.pendingFuture;
+        queue.pending = null;
+        queue.pendingFuture = null;
+        queue.running = true;
+
+        executor.execute(() -> run(path, queue, note, future));
+    }
+
+    private void run(Path path, PathQueue queue, Note note, CompletableFuture<Note> future) {
+        try {
+            Note saved = noteService.updateNote(note);
+            future.complete(saved);
+        } catch (Throwable e) {
+            logger.error("Ошибка фонового сохранения заметки: {}", path, e);
+            future.completeExceptionally(e);
+        } finally {
+            synchronized (this) {
+                queue.running = false;
+                if (queue.pending != null) {
+                    startNext(path, queue);
+                } else {
+                    queues.remove(path);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    private boolean waitUntil(java.util.function.BooleanSupplier condition, long timeoutMillis) {
+        long deadline = timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : Long.MAX_VALUE;
+
+        while (!condition.getAsBoolean()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                logger.warn("Не дождались завершения сохранений ({} в очереди)", queues.size());
+                return false;
+            }
+            try {
+                wait(Math.min(remaining, 1000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+}
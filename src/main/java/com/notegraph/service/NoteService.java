@@ -1,6 +1,7 @@
 package com.notegraph.service;
 
 import com.notegraph.model.Note;
+import com.notegraph.model.NoteSummary;
 
 import java.nio.file.Path;
 import java.util.List;
@@ -37,6 +38,11 @@ public interface NoteService {
      */
     List<Note> getAllNotes();
 
+    /**
+     * Получить краткие сведения обо всех заметках (без чтения файлов)
+     */
+    List<NoteSummary> getNoteSummaries();
+
     /**
      * Удалить заметку по ID (deprecated - для обратной совместимости)
      */
@@ -0,0 +1,458 @@
+package com.notegraph.service;
+
+import com.notegraph.model.Note;
+import com.notegraph.model.SearchResult;
+import com.notegraph.util.FileSystemManager;
+import com.notegraph.util.FullTextIndex;
+import com.notegraph.util.TrigramIndex;
+import com.notegraph.util.VaultIndex;
+import com.notegraph.util.VaultIndexer;
+import com.notegraph.util.query.NoteQuery;
+import com.notegraph.util.query.QueryParser;
+import com.notegraph.util.query.QueryPlanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Полнотекстовый поиск в фоне.
+ * <p>
+ * Одновременно выполняется только один запрос: новый запрос отменяет предыдущий.
+ * Сначала запрос ищется по словам в {@link FullTextIndex}: лучшие заметки
+ * с фрагментами возвращаются сразу, без чтения файлов. Затем построчно
+ * проверяются остальные кандидаты из {@link TrigramIndex}, где запрос может
+ * быть частью слова, и их результаты дописываются пачками по мере нахождения.
+ * Для завершённых проверок без ранжированных результатов
+ * запоминается, в каких заметках нашлись совпадения: уточнённый запрос
+ * (содержащий предыдущий) проверяет только эти заметки. Любое изменение
+ * заметок сбрасывает этот кэш.
+ * <p>
+ * Запросы с условиями (tag:, path:, linksto:, modified:, created:, исключения)
+ * разбираются {@link QueryParser} и выполняются по индексам {@link QueryPlanner};
+ * файлы читаются только для проверки слов и фраз из запроса.
+ */
+public class SearchService implements VaultIndex {
+    private static final Logger logger = LoggerFactory.getLogger(SearchService.class);
+    private static SearchService instance;
+
+    private static final int MAX_LINES_PER_NOTE = 5;
+    private static final int MAX_RANKED_RESULTS = 50;
+    private static final int BATCH_SIZE = 50;
+    private static final long BATCH_INTERVAL_MS = 100;
+    private static final int CACHE_SIZE = 16;
+    /**
+     * С какой длины запроса искать с одной опечаткой, если точных совпадений нет:
+     * короче триграммный индекс не может отобрать кандидатов.
+     */
+    private static final int MIN_FUZZY_QUERY_LENGTH = 6;
+    /** С какой длины запроса допускать две опечатки. */
+    private static final int TWO_EDITS_QUERY_LENGTH = 9;
+    /** Сколько ждать первичной индексации для запроса с условиями. */
+    private static final long SCAN_WAIT_SECONDS = 30;
+    /** Как часто при ожидании индексации проверять отмену запроса. */
+    private static final long SCAN_POLL_MS = 200;
+
+    private final ExecutorService executor;
+    private final FileSystemManager fsManager = FileSystemManager.getInstance();
+    private final TrigramIndex trigramIndex = TrigramIndex.getInstance();
+    private final FullTextIndex fullTextIndex = FullTextIndex.getInstance();
+    private final VaultIndexer vaultIndexer = VaultIndexer.getInstance();
+    private final QueryPlanner queryPlanner = new QueryPlanner();
+
+    private SearchTask currentTask;
+    /** Увеличивается при каждом изменении заметок (под монитором matchCache). */
+    private long cacheVersion;
+
+    /** Запрос → заметки, в которых он найден. */
+    private final Map<String, Set<Path>> matchCache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Set<Path>> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Выполняющийся запрос
+     */
+    public static class SearchTask {
+        private final String rawQuery;
+        /** Запрос в нижнем регистре — для поиска по тексту. */
+        private final String query;
+        private volatile boolean cancelled;
+
+        private SearchTask(String rawQuery) {
+            this.rawQuery = rawQuery;
+            this.query = rawQuery.toLowerCase();
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private SearchService() {
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "search-thread");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static synchronized SearchService getInstance() {
+        if (instance == null) {
+            instance = new SearchService();
+        }
+        return instance;
+    }
+
+    /**
+     * Запустить поиск, отменив предыдущий.
+     * Обработчики вызываются в потоке поиска и только пока задача не отменена;
+     * задача передаётся им, чтобы отбросить результаты, пришедшие после отмены.
+     *
+     * @param onBatch    очередная пачка результатов
+     * @param onComplete поиск завершён; аргумент — общее число результатов
+     */
+    public synchronized SearchTask search(String query,
+                                          BiConsumer<SearchTask, List<SearchResult>> onBatch,
+                                          BiConsumer<SearchTask, Integer> onComplete) {
+        cancel();
+
+        SearchTask task = new SearchTask(query.trim());
+        currentTask = task;
+
+        executor.execute(() -> {
+            try {
+                run(task, onBatch, onComplete);
+            } catch (Exception e) {
+                logger.error("Ошибка поиска: '{}'", task.query, e);
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Отменить текущий поиск
+     */
+    public synchronized void cancel() {
+        if (currentTask != null) {
+            currentTask.cancel();
+            currentTask = null;
+        }
+    }
+
+    @Override
+    public void noteIndexed(Note note) {
+        clearCache();
+    }
+
+    @Override
+    public void noteRemoved(Path path) {
+        clearCache();
+    }
+
+    @Override
+    public void notesMoved(Map<Path, Path> moves, Function<Path, Note> reader) {
+        clearCache();
+    }
+
+    private void clearCache() {
+        synchronized (matchCache) {
+            matchCache.clear();
+            cacheVersion++;
+        }
+    }
+
+    private void run(SearchTask task,
+                     BiConsumer<SearchTask, List<SearchResult>> onBatch,
+                     BiConsumer<SearchTask, Integer> onComplete)
+            throws IOException {
+        long start = System.currentTimeMillis();
+        Batcher batcher = new Batcher(task, onBatch);
+        long version;
+        synchronized (matchCache) {
+            version = cacheVersion;
+        }
+
+        NoteQuery parsed = QueryParser.parse(task.rawQuery);
+        if (parsed.isStructured()) {
+            if (!awaitScan(task)) {
+                if (!task.isCancelled()) {
+                    // Без полных индексов условия проверить нельзя: поиск завершается пустым,
+                    // чтобы интерфейс не ждал результатов бесконечно
+                    logger.warn("Индексация не завершилась, запрос не выполнен: '{}'", task.rawQuery);
+                    finish(task, batcher, onComplete, start);
+                }
+                return;
+            }
+            logger.debug("Запрос с условиями: {}", parsed);
+            if (scanStructured(task, parsed, batcher)) {
+                finish(task, batcher, onComplete, start);
+            }
+            return;
+        }
+
+        // Сначала лучшие заметки по словам, за ними — заметки, где запрос
+        // встречается только как часть слова (например, «config» в «parseConfig»)
+        Set<Path> ranked = new HashSet<>();
+        if (vaultIndexer.isScanComplete()) {
+            for (SearchResult result : fullTextIndex.search(task.query, MAX_RANKED_RESULTS)) {
+                batcher.add(result);
+                ranked.add(result.getNotePath());
+            }
+        }
+
+        Set<Path> matched = new LinkedHashSet<>();
+        Collection<Path> candidates = candidates(task.query, 0);
+        if (candidates == null) {
+            // Короткий запрос индекс не сужает: весь vault обходится, только если по словам пусто
+            candidates = ranked.isEmpty() ? fsManager.getAllNotes() : List.of();
+        } else if (!ranked.isEmpty()) {
+            candidates = candidates.stream().filter(path -> !ranked.contains(path)).toList();
+        }
+        boolean completed = scan(task, candidates, 0, batcher, matched);
+
+        if (completed && matched.isEmpty() && ranked.isEmpty() && task.query.length() >= MIN_FUZZY_QUERY_LENGTH) {
+            int maxEdits = task.query.length() >= TWO_EDITS_QUERY_LENGTH ? 2 : 1;
+            Collection<Path> approximate = candidates(task.query, maxEdits);
+            // Без кандидатов из индекса (повторяющиеся триграммы, индексация не завершена)
+            // поиск с опечатками пропускается: обход всего vault на каждый запрос слишком дорог
+            if (approximate != null) {
+                completed = scan(task, approximate, maxEdits, batcher, new HashSet<>());
+            }
+        } else if (completed && ranked.isEmpty()) {
+            // При ранжированных результатах их заметки не проверялись, и список неполон
+            synchronized (matchCache) {
+                // Заметки, изменённые во время поиска, могли быть проверены до изменения
+                if (version == cacheVersion) {
+                    matchCache.put(task.query, matched);
+                }
+            }
+        }
+
+        if (!completed) {
+            logger.debug("Поиск отменён: '{}'", task.query);
+            return;
+        }
+
+        finish(task, batcher, onComplete, start);
+    }
+
+    /**
+     * Дождаться первичной индексации, не дольше SCAN_WAIT_SECONDS.
+     * Ждёт короткими отрезками, чтобы отменённый запрос не держал поток поиска.
+     *
+     * @return true, если индексация завершена
+     */
+    private boolean awaitScan(SearchTask task) {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(SCAN_WAIT_SECONDS);
+        while (!task.isCancelled()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            if (vaultIndexer.awaitScan(Math.min(remaining, SCAN_POLL_MS), TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void finish(SearchTask task, Batcher batcher, BiConsumer<SearchTask, Integer> onComplete, long start) {
+        batcher.flush();
+        if (!task.isCancelled()) {
+            onComplete.accept(task, batcher.total);
+        }
+        logger.info("Поиск '{}': {} результатов за {} мс",
+                task.query, batcher.total, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Какие заметки проверять: найденные для более короткого запроса
+     * или кандидаты из триграммного индекса
+     *
+     * @return null, если индекс не может сузить проверку
+     */
+    private Collection<Path> candidates(String query, int maxEdits) throws IOException {
+        if (maxEdits == 0) {
+            Set<Path> narrowed = null;
+            synchronized (matchCache) {
+                for (Map.Entry<String, Set<Path>> entry : matchCache.entrySet()) {
+                    if (query.contains(entry.getKey())
+                            && (narrowed == null || entry.getValue().size() < narrowed.size())) {
+                        narrowed = entry.getValue();
+                    }
+                }
+            }
+            if (narrowed != null) {
+                return new ArrayList<>(narrowed);
+            }
+        }
+
+        List<Path> candidates = null;
+        if (vaultIndexer.isScanComplete()) {
+            candidates = maxEdits == 0
+                    ? trigramIndex.findCandidates(query)
+                    : trigramIndex.findApproximateCandidates(query, maxEdits);
+        }
+        return candidates;
+    }
+
+    /**
+     * @param maxEdits 0 — точное совпадение подстроки, иначе допустимое число опечаток
+     * @return false, если поиск был отменён
+     */
+    private boolean scan(SearchTask task, Collection<Path> candidates, int maxEdits,
+                         Batcher batcher, Set<Path> matched) {
+        for (Path notePath : candidates) {
+            if (task.isCancelled()) {
+                return false;
+            }
+
+            try {
+                List<String> lines = Files.readAllLines(notePath);
+                String noteTitle = notePath.getFileName().toString().replaceAll("\\.md$", "");
+
+                if (matches(noteTitle, task.query, maxEdits)) {
+                    batcher.add(new SearchResult(
+                            notePath,
+                            noteTitle,
+                            "Название содержит поисковый запрос",
+                            0
+                    ));
+                    matched.add(notePath);
+                }
+
+                int found = 0;
+                for (int i = 0; i < lines.size() && found < MAX_LINES_PER_NOTE; i++) {
+                    String line = lines.get(i);
+                    if (matches(line, task.query, maxEdits)) {
+                        String preview = line.length() > 100
+                                ? line.substring(0, 100) + "..."
+                                : line;
+
+                        batcher.add(new SearchResult(notePath, noteTitle, preview.trim(), i + 1));
+                        matched.add(notePath);
+                        found++;
+                    }
+                }
+            } catch (Exception e) {
+                logger.warn("Ошибка чтения заметки: {}", notePath, e);
+            }
+        }
+        return !task.isCancelled();
+    }
+
+    /**
+     * Проверить кандидатов из планировщика по словам и фразам запроса.
+     * Если слов в запросе нет, файлы не читаются.
+     *
+     * @return false, если поиск был отменён
+     */
+    private boolean scanStructured(SearchTask task, NoteQuery query, Batcher batcher) {
+        List<String> required = query.getTextTerms();
+        List<String> excluded = query.getExcludedTextTerms();
+        List<Path> candidates = queryPlanner.execute(query);
+
+        for (Path notePath : candidates) {
+            if (task.isCancelled()) {
+                return false;
+            }
+
+            String noteTitle = notePath.getFileName().toString().replaceAll("\\.md$", "");
+            if (required.isEmpty() && excluded.isEmpty()) {
+                batcher.add(new SearchResult(notePath, noteTitle, "Соответствует запросу", 0));
+                continue;
+            }
+
+            try {
+                List<String> lines = Files.readAllLines(notePath);
+                String content = (noteTitle + "\n" + String.join("\n", lines)).toLowerCase();
+                if (!required.stream().allMatch(content::contains)
+                        || excluded.stream().anyMatch(content::contains)) {
+                    continue;
+                }
+
+                if (required.isEmpty()) {
+                    batcher.add(new SearchResult(notePath, noteTitle, "Соответствует запросу", 0));
+                    continue;
+                }
+
+                int found = 0;
+                for (int i = 0; i < lines.size() && found < MAX_LINES_PER_NOTE; i++) {
+                    String line = lines.get(i);
+                    String lower = line.toLowerCase();
+                    if (required.stream().anyMatch(lower::contains)) {
+                        String preview = line.length() > 100
+                                ? line.substring(0, 100) + "..."
+                                : line;
+                        batcher.add(new SearchResult(notePath, noteTitle, preview.trim(), i + 1));
+                        found++;
+                    }
+                }
+                if (found == 0) {
+                    batcher.add(new SearchResult(notePath, noteTitle, "Название содержит поисковый запрос", 0));
+                }
+            } catch (Exception e) {
+                logger.warn("Ошибка чтения заметки: {}", notePath, e);
+            }
+        }
+        return !task.isCancelled();
+    }
+
+    private static boolean matches(String text, String query, int maxEdits) {
+        return maxEdits == 0
+                ? text.toLowerCase().contains(query)
+                : TrigramIndex.containsApproximately(text, query, maxEdits);
+    }
+
+    /**
+     * Копит результаты и отдаёт их пачками: по размеру или по времени
+     */
+    private static class Batcher {
+        private final SearchTask task;
+        private final BiConsumer<SearchTask, List<SearchResult>> onBatch;
+        private List<SearchResult> batch = new ArrayList<>();
+        private long lastFlush = System.currentTimeMillis();
+        int total;
+
+        Batcher(SearchTask task, BiConsumer<SearchTask, List<SearchResult>> onBatch) {
+            this.task = task;
+            this.onBatch = onBatch;
+        }
+
+        void add(SearchResult result) {
+            batch.add(result);
+            total++;
+            if (batch.size() >= BATCH_SIZE || System.currentTimeMillis() - lastFlush >= BATCH_INTERVAL_MS) {
+                flush();
+            }
+        }
+
+        void flush() {
+            lastFlush = System.currentTimeMillis();
+            if (batch.isEmpty() || task.isCancelled()) {
+                return;
+            }
+            onBatch.accept(task, batch);
+            batch = new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.notegraph.service;
+
+import com.notegraph.model.Note;
+import com.notegraph.util.FileSystemManager;
+import com.notegraph.util.VaultIndex;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Статистика vault: число заметок (всего и по папкам), слов, ссылок, тегов
+ * и неразрешённых ссылок (на несуществующие заметки).
+ * <p>
+ * Счётчики обновляются по событиям {@link com.notegraph.util.VaultIndexer} —
+ * при сохранении, создании, удалении и перемещении заметок и при внешних
+ * изменениях файлов. Любой счётчик возвращается за O(1), без обхода vault.
+ */
+public class VaultStatisticsService implements VaultIndex {
+    private static VaultStatisticsService instance;
+
+    /**
+     * Вклад одной заметки в счётчики
+     */
+    private static final class NoteStats {
+        final String title;
+        final int words;
+        final Set<String> links;
+        final Set<String> tags;
+
+        NoteStats(String title, int words, Set<String> links, Set<String> tags) {
+            this.title = title;
+            this.words = words;
+            this.links = links;
+            this.tags = tags;
+        }
+    }
+
+    private final Path vaultPath = FileSystemManager.getInstance().getVaultPath();
+
+    private final Map<Path, NoteStats> statsByPath = new HashMap<>();
+    /** Папка → заметки в ней и во всех вложенных папках. */
+    private final Map<Path, Integer> notesUnder = new HashMap<>();
+    /** Название → сколько заметок с таким названием. */
+    private final Map<String, Integer> titleCounts = new HashMap<>();
+    /** Название → сколько заметок на него ссылаются. */
+    private final Map<String, Integer> linkTargets = new HashMap<>();
+    /** Тег → сколько заметок им отмечено. */
+    private final Map<String, Integer> tagCounts = new HashMap<>();
+
+    private long words;
+    private int links;
+    private int unresolvedLinks;
+
+    private volatile boolean scanComplete;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    private VaultStatisticsService() {
+    }
+
+    public static synchronized VaultStatisticsService getInstance() {
+        if (instance == null) {
+            instance = new VaultStatisticsService();
+        }
+        return instance;
+    }
+
+    /**
+     * Подписаться на изменения счётчиков. Вызывается не в FX-потоке
+     * и только после первичного сканирования.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void noteIndexed(Note note) {
+        Path path = note.getPath();
+        if (path == null) {
+            return;
+        }
+
+        Set<String> noteTags = new HashSet<>(note.getTags());
+        noteTags.addAll(Note.findTags(note.getBodyContent()));
+        NoteStats stats = new NoteStats(note.getTitle(), countWords(note.getBodyContent()),
+                new HashSet<>(note.getOutgoingLinks()), noteTags);
+
+        synchronized (this) {
+            remove(path);
+            add(path, stats);
+        }
+        fireChanged();
+    }
+
+    @Override
+    public void noteRemoved(Path path) {
+        synchronized (this) {
+            if (!remove(path)) {
+                return;
+            }
+        }
+        fireChanged();
+    }
+
+    @Override
+    public void notesMoved(Map<Path, Path> moves, Function<Path, Note> reader) {
+        synchronized (this) {
+            List<NoteStats> moved = new ArrayList<>(moves.size());
+            for (Path oldPath : moves.keySet()) {
+                moved.add(statsByPath.get(oldPath));
+                remove(oldPath);
+            }
+            int i = 0;
+            for (Path newPath : moves.values()) {
+                NoteStats stats = moved.get(i++);
+                if (stats != null) {
+                    add(newPath, stats);
+                }
+            }
+        }
+        fireChanged();
+    }
+
+    @Override
+    public void scanCompleted() {
+        scanComplete = true;
+        fireChanged();
+    }
+
+    public synchronized int getNoteCount() {
+        return statsByPath.size();
+    }
+
+    /**
+     * Заметки в папке и всех вложенных папках
+     */
+    public synchronized int getNoteCount(Path folder) {
+        return folder.equals(vaultPath) ? statsByPath.size() : notesUnder.getOrDefault(folder, 0);
+    }
+
+    public synchronized long getWordCount() {
+        return words;
+    }
+
+    /**
+     * Ссылки [[...]]: по одной на каждую пару «заметка — цель»
+     */
+    public synchronized int getLinkCount() {
+        return links;
+    }
+
+    /**
+     * Ссылки на заметки, которых нет в vault
+     */
+    public synchronized int getUnresolvedLinkCount() {
+        return unresolvedLinks;
+    }
+
+    /**
+     * Число различных тегов
+     */
+    public synchronized int getTagCount() {
+        return tagCounts.size();
+    }
+
+    private void add(Path path, NoteStats stats) {
+        statsByPath.put(path, stats);
+
+        for (Path folder = path.getParent(); folder != null && !folder.equals(vaultPath); folder = folder.getParent()) {
+            notesUnder.merge(folder, 1, Integer::sum);
+        }
+
+        words += stats.words;
+        links += stats.links.size();
+
+        if (stats.title != null && titleCounts.merge(stats.title, 1, Integer::sum) == 1) {
+            // Ссылки на это название стали разрешёнными
+            unresolvedLinks -= linkTargets.getOrDefault(stats.title, 0);
+        }
+        for (String target : stats.links) {
+            linkTargets.merge(target, 1, Integer::sum);
+            if (!titleCounts.containsKey(target)) {
+                unresolvedLinks++;
+            }
+        }
+        for (String tag : stats.tags) {
+            tagCounts.merge(tag, 1, Integer::sum);
+        }
+    }
+
+    private boolean remove(Path path) {
+        NoteStats stats = statsByPath.remove(path);
+        if (stats == null) {
+            return false;
+        }
+
+        for (Path folder = path.getParent(); folder != null && !folder.equals(vaultPath); folder = folder.getParent()) {
+            decrement(notesUnder, folder);
+        }
+
+        words -= stats.words;
+        links -= stats.links.size();
+
+        for (String target : stats.links) {
+            decrement(linkTargets, target);
+            if (!titleCounts.containsKey(target)) {
+                unresolvedLinks--;
+            }
+        }
+        if (stats.title != null && decrement(titleCounts, stats.title) == 0) {
+            // Заметок с этим названием не осталось
+            unresolvedLinks += linkTargets.getOrDefault(stats.title, 0);
+        }
+        for (String tag : stats.tags) {
+            decrement(tagCounts, tag);
+        }
+        return true;
+    }
+
+    private static <K> int decrement(Map<K, Integer> counts, K key) {
+        Integer count = counts.get(key);
+        if (count == null || count <= 1) {
+            counts.remove(key);
+            return 0;
+        }
+        counts.put(key, count - 1);
+        return count - 1;
+    }
+
+    private void fireChanged() {
+        if (!scanComplete) {
+            return;
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Число слов: последовательностей букв и цифр
+     */
+    static int countWords(String text) {
+        if (text == null) {
+            return 0;
+        }
+        int count = 0;
+        boolean inWord = false;
+        for (int i = 0; i < text.length(); i++) {
+            boolean letter = Character.isLetterOrDigit(text.charAt(i));
+            if (letter && !inWord) {
+                count++;
+            }
+            inWord = letter;
+        }
+        return count;
+    }
+}
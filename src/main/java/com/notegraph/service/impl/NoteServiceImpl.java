@@ -1,17 +1,21 @@
 package com.notegraph.service.impl;
 
 import com.notegraph.model.Note;
+import com.notegraph.model.NoteSummary;
 import com.notegraph.repository.NoteRepository;
 import com.notegraph.repository.impl.FileSystemNoteRepository;
 import com.notegraph.service.NoteService;
 import com.notegraph.util.FileSystemManager;
 import com.notegraph.util.LinkIndexManager;
+import com.notegraph.util.NoteHistory;
 import com.notegraph.util.TagIndexManager;
+import com.notegraph.util.VaultIndexer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -26,6 +30,7 @@ public class NoteServiceImpl implements NoteService {
     private final TagIndexManager tagIndexManager =
             TagIndexManager.getInstance();
     private final FileSystemManager fsManager;
+    private final VaultIndexer vaultIndexer = VaultIndexer.getInstance();
 
     public NoteServiceImpl() {
         this.noteRepository = new FileSystemNoteRepository();
@@ -71,6 +76,7 @@ public class NoteServiceImpl implements NoteService {
 
         linkIndexManager.updateNoteLinks(note);
         tagIndexManager.updateNoteTags(note);
+        vaultIndexer.noteUpdated(note);
 
         logger.info("Создана заметка: {}", title);
 
@@ -95,6 +101,7 @@ public class NoteServiceImpl implements NoteService {
 
         linkIndexManager.updateNoteLinks(note);
         tagIndexManager.updateNoteTags(note);
+        vaultIndexer.noteUpdated(note);
 
         logger.info(
                 "Обновлена заметка: {}",
@@ -127,6 +134,11 @@ public class NoteServiceImpl implements NoteService {
         return noteRepository.findAll();
     }
 
+    @Override
+    public List<NoteSummary> getNoteSummaries() {
+        return noteRepository.findAllSummaries();
+    }
+
     @Override
     public void deleteNote(Integer id) {
         logger.warn("deleteNote(Integer) вызван, но не поддерживается");
@@ -150,6 +162,7 @@ public class NoteServiceImpl implements NoteService {
         );
 
         noteRepository.delete(note);
+        vaultIndexer.noteRemoved(note.getPath());
 
         logger.info(
                 "Удалена заметка: {}",
@@ -185,7 +198,10 @@ public class NoteServiceImpl implements NoteService {
      * Переместить заметку в другую папку
      */
     public Note moveNote(Note note, Path targetFolder) {
+        Path oldPath = note.getPath();
         note = noteRepository.move(note, targetFolder);
+        vaultIndexer.noteMoved(oldPath, note);
+        NoteHistory.getInstance().pathsMoved(Map.of(oldPath, note.getPath()));
         logger.info("Заметка перемещена: {}", note.getPath());
         return note;
     }
@@ -226,6 +242,7 @@ public class NoteServiceImpl implements NoteService {
 
         linkIndexManager.updateNoteLinks(note);
         tagIndexManager.updateNoteTags(note);
+        vaultIndexer.noteUpdated(note);
 
         return note;
     }
@@ -237,9 +254,15 @@ public class NoteServiceImpl implements NoteService {
 
         tagIndexManager.clear();
 
-        List<Note> notes = getAllNotes();
+        List<NoteSummary> summaries = getNoteSummaries();
+
+        // Заметки читаются по одной, чтобы не держать в памяти весь vault
+        for (NoteSummary summary : summaries) {
 
-        for (Note note : notes) {
+            Note note = getNoteByPath(summary.getPath());
+            if (note == null) {
+                continue;
+            }
 
             note.extractTags();
 
@@ -248,7 +271,7 @@ public class NoteServiceImpl implements NoteService {
 
         logger.info(
                 "Переиндексация тегов завершена. Обработано {} заметок",
-                notes.size()
+                summaries.size()
         );
     }
 }
@@ -22,9 +22,7 @@ public class FontManager {
         metadataManager = MetadataManager.getInstance();
 
         String savedFamily = metadataManager.getPreference(KEY_FONT_FAMILY, "System");
-        String savedSizeStr = metadataManager.getPreference(KEY_FONT_SIZE, "14");
-
-        double savedSize = parseFontSize(savedSizeStr);
+        double savedSize = metadataManager.getDoublePreference(KEY_FONT_SIZE, 14);
 
         fontFamily.set(savedFamily);
         fontSize.set(savedSize);
@@ -37,7 +35,7 @@ public class FontManager {
 
         fontSize.addListener((obs, oldVal, newVal) -> {
             if (newVal != null && !newVal.equals(oldVal)) {
-                metadataManager.setPreference(KEY_FONT_SIZE, String.valueOf(newVal));
+                metadataManager.setPreference(KEY_FONT_SIZE, newVal.doubleValue());
             }
         });
     }
@@ -78,12 +76,4 @@ public class FontManager {
     public List<String> getAvailableFonts() {
         return Font.getFamilies();
     }
-
-    private double parseFontSize(String value) {
-        try {
-            return Double.parseDouble(value);
-        } catch (Exception e) {
-            return 14;
-        }
-    }
 }
\ No newline at end of file
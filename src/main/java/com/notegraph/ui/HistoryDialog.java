@@ -0,0 +1,97 @@
+package com.notegraph.ui;
+
+import com.notegraph.util.NoteHistory;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * История версий заметки: список версий от новых к старым и текст выбранной.
+ * Результат — текст версии, которую нужно восстановить.
+ */
+public class HistoryDialog extends Dialog<String> {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final NoteHistory history = NoteHistory.getInstance();
+
+    private final ListView<NoteHistory.Version> versionList;
+    private final TextArea previewArea;
+    /** Текст выбранной версии; null, если версию прочитать не удалось. */
+    private String selectedText;
+
+    public HistoryDialog(Path path, String title) {
+        LanguageManager lm = LanguageManager.getInstance();
+
+        setTitle(lm.get("history.title"));
+        setHeaderText(title);
+
+        versionList = new ListView<>();
+        versionList.getItems().setAll(history.getVersions(path));
+        versionList.setPlaceholder(new Label(lm.get("history.empty")));
+        versionList.setPrefSize(260, 440);
+        versionList.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(NoteHistory.Version version, boolean empty) {
+                super.updateItem(version, empty);
+                if (empty || version == null) {
+                    setText(null);
+                } else {
+                    String time = TIME_FORMAT.format(
+                            Instant.ofEpochMilli(version.time).atZone(ZoneId.systemDefault()));
+                    String source = lm.get(version.source == NoteHistory.Source.SAVE
+                            ? "history.save" : "history.external");
+                    setText(time + "  " + source);
+                }
+            }
+        });
+
+        previewArea = new TextArea();
+        previewArea.setEditable(false);
+        previewArea.setWrapText(true);
+        previewArea.setPrefSize(480, 440);
+        HBox.setHgrow(previewArea, Priority.ALWAYS);
+
+        versionList.getSelectionModel().selectedItemProperty().addListener((obs, old, version) -> {
+            selectedText = null;
+            if (version == null) {
+                previewArea.clear();
+                return;
+            }
+            try {
+                selectedText = history.read(version.hash);
+                previewArea.setText(selectedText);
+            } catch (IOException e) {
+                previewArea.setText(e.toString());
+            }
+        });
+
+        ButtonType restoreButton = new ButtonType(lm.get("history.restore"), ButtonBar.ButtonData.OK_DONE);
+        getDialogPane().setContent(new HBox(10, versionList, previewArea));
+        getDialogPane().getButtonTypes().addAll(restoreButton, ButtonType.CANCEL);
+        getDialogPane().lookupButton(restoreButton).disableProperty()
+                .bind(versionList.getSelectionModel().selectedItemProperty().isNull());
+
+        setResultConverter(buttonType -> buttonType == restoreButton ? selectedText : null);
+
+        applyTheme(ThemeManager.getInstance().getCurrentTheme());
+
+        if (!versionList.getItems().isEmpty()) {
+            versionList.getSelectionModel().selectFirst();
+        }
+    }
+
+    private void applyTheme(Theme theme) {
+        String css = theme == Theme.DARK
+                ? getClass().getResource("/css/dark-theme.css").toExternalForm()
+                : getClass().getResource("/css/light-theme.css").toExternalForm();
+
+        getDialogPane().getStylesheets().setAll(css);
+    }
+}
@@ -0,0 +1,58 @@
+package com.notegraph.ui;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Иконки из ресурсов /icons. Картинка загружается один раз,
+ * все ImageView приложения используют один и тот же Image.
+ */
+public final class Icons {
+
+    private static final Map<String, Image> images = new HashMap<>();
+
+    private Icons() {
+    }
+
+    /**
+     * Картинка иконки; null, если такой иконки нет
+     */
+    public static synchronized Image get(String name) {
+        Image image = images.get(name);
+        if (image != null) {
+            return image;
+        }
+
+        try (InputStream stream = Icons.class.getResourceAsStream("/icons/" + name)) {
+            if (stream == null) {
+                return null;
+            }
+            image = new Image(stream);
+        } catch (IOException e) {
+            return null;
+        }
+
+        images.put(name, image);
+        return image;
+    }
+
+    /**
+     * Иконка 16×16; null, если такой иконки нет
+     */
+    public static ImageView view(String name) {
+        Image image = get(name);
+        if (image == null) {
+            return null;
+        }
+
+        ImageView view = new ImageView(image);
+        view.setFitWidth(16);
+        view.setFitHeight(16);
+        return view;
+    }
+}
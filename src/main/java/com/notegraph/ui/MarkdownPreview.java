@@ -0,0 +1,162 @@
+package com.notegraph.ui;
+
+import com.google.gson.Gson;
+import com.notegraph.util.MarkdownRenderer;
+import javafx.concurrent.Worker;
+import javafx.scene.web.WebView;
+import netscape.javascript.JSObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Превью заметки в WebView с поблочным обновлением.
+ * <p>
+ * Страница загружается через loadContent только при первом показе и при смене
+ * темы/шрифта. Дальше на страницу передаются только изменившиеся блоки
+ * (функция ngPatch в шаблоне), поэтому позиция прокрутки сохраняется.
+ */
+public class MarkdownPreview {
+    private static final Logger logger = LoggerFactory.getLogger(MarkdownPreview.class);
+
+    private final WebView webView;
+    private final MarkdownRenderer renderer;
+    private final Object bridge;
+    private final Gson gson = new Gson();
+
+    /** Блоки, которые сейчас находятся в DOM. */
+    private List<String> shownBlocks = new ArrayList<>();
+
+    /** Блоки, которые нужно показать после загрузки страницы. */
+    private List<String> pendingBlocks;
+
+    private String templateKey;
+    private boolean pageReady = false;
+
+    /**
+     * @param bridge объект, доступный в странице как window.javaApp
+     */
+    public MarkdownPreview(WebView webView, MarkdownRenderer renderer, Object bridge) {
+        this.webView = webView;
+        this.renderer = renderer;
+        this.bridge = bridge;
+
+        webView.getEngine().setJavaScriptEnabled(true);
+        webView.getEngine().getLoadWorker().stateProperty().addListener((obs, oldState, newState) -> {
+            if (newState == Worker.State.SUCCEEDED) {
+                onPageLoaded();
+            }
+        });
+    }
+
+    public WebView getWebView() {
+        return webView;
+    }
+
+    /**
+     * Обновить превью. Вызывается в FX-потоке.
+     */
+    public void update(String title, String markdown) {
+        List<String> blocks = renderer.splitBlocks(renderer.preparePreviewSource(title, markdown));
+        String key = renderer.templateKey();
+
+        if (!key.equals(templateKey)) {
+            templateKey = key;
+            reload(blocks);
+            return;
+        }
+
+        if (!pageReady) {
+            pendingBlocks = blocks;
+            return;
+        }
+
+        patch(blocks);
+    }
+
+    /**
+     * Полная перезагрузка страницы (при следующем update)
+     */
+    public void invalidate() {
+        templateKey = null;
+    }
+
+    /**
+     * Освободить страницу: WebView возвращается в пул и будет показывать
+     * другую заметку. Следующий update загрузит страницу заново.
+     */
+    public void clear() {
+        templateKey = null;
+        pendingBlocks = null;
+        shownBlocks = new ArrayList<>();
+        pageReady = false;
+        webView.getEngine().loadContent("");
+    }
+
+    private void reload(List<String> blocks) {
+        pageReady = false;
+        pendingBlocks = null;
+        shownBlocks = blocks;
+        webView.getEngine().loadContent(renderer.renderPage(blocks));
+    }
+
+    private void onPageLoaded() {
+        try {
+            JSObject window = (JSObject) webView.getEngine().executeScript("window");
+            window.setMember("javaApp", bridge);
+        } catch (Exception e) {
+            logger.error("JS bridge error", e);
+        }
+
+        pageReady = true;
+
+        if (pendingBlocks != null) {
+            List<String> blocks = pendingBlocks;
+            pendingBlocks = null;
+            patch(blocks);
+        }
+    }
+
+    /**
+     * Заменяет в DOM только отличающийся участок между общим началом и общим концом.
+     */
+    private void patch(List<String> blocks) {
+        int oldSize = shownBlocks.size();
+        int newSize = blocks.size();
+
+        int prefix = 0;
+        while (prefix < oldSize && prefix < newSize
+                && shownBlocks.get(prefix).equals(blocks.get(prefix))) {
+            prefix++;
+        }
+
+        int suffix = 0;
+        while (suffix < oldSize - prefix && suffix < newSize - prefix
+                && shownBlocks.get(oldSize - 1 - suffix).equals(blocks.get(newSize - 1 - suffix))) {
+            suffix++;
+        }
+
+        int removeCount = oldSize - prefix - suffix;
+        List<String> inserted = new ArrayList<>();
+        for (int i = prefix; i < newSize - suffix; i++) {
+            inserted.add(renderer.renderBlock(blocks.get(i)));
+        }
+
+        shownBlocks = blocks;
+
+        if (removeCount == 0 && inserted.isEmpty()) {
+            return;
+        }
+
+        try {
+            webView.getEngine().executeScript(
+                    "ngPatch(" + prefix + ", " + removeCount + ", " + gson.toJson(inserted) + ")"
+            );
+        } catch (Exception e) {
+            logger.warn("Не удалось обновить превью поблочно, перезагрузка страницы", e);
+            reload(blocks);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.notegraph.ui;
+
+import com.notegraph.util.TitleSuggestionIndex;
+import com.notegraph.util.TitleSuggestionIndex.Suggestion;
+import javafx.application.Platform;
+import javafx.scene.control.*;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.VBox;
+
+import java.nio.file.Path;
+
+/**
+ * Быстрое открытие заметки по названию (Ctrl+O).
+ * Подсказки берутся из TitleSuggestionIndex и обновляются на каждый символ.
+ */
+public class QuickOpenDialog extends Dialog<Path> {
+
+    private static final int MAX_RESULTS = 20;
+
+    private final TitleSuggestionIndex suggestionIndex = TitleSuggestionIndex.getInstance();
+
+    private final TextField queryField;
+    private final ListView<Suggestion> resultsList;
+
+    public QuickOpenDialog() {
+        LanguageManager lm = LanguageManager.getInstance();
+
+        setTitle(lm.get("quickOpen.title"));
+
+        queryField = new TextField();
+        queryField.setPromptText(lm.get("quickOpen.prompt"));
+
+        resultsList = new ListView<>();
+        resultsList.setPrefSize(420, 300);
+
+        queryField.textProperty().addListener((obs, old, val) -> updateResults(val));
+
+        // Стрелки из поля ввода двигают выделение в списке
+        queryField.setOnKeyPressed(e -> {
+            MultipleSelectionModel<Suggestion> selection = resultsList.getSelectionModel();
+            if (e.getCode() == KeyCode.DOWN) {
+                selection.selectNext();
+                resultsList.scrollTo(selection.getSelectedIndex());
+                e.consume();
+            } else if (e.getCode() == KeyCode.UP) {
+                selection.selectPrevious();
+                resultsList.scrollTo(selection.getSelectedIndex());
+                e.consume();
+            }
+        });
+
+        resultsList.setOnMouseClicked(e -> {
+            if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2
+                    && resultsList.getSelectionModel().getSelectedItem() != null) {
+                setResult(resultsList.getSelectionModel().getSelectedItem().path);
+                close();
+            }
+        });
+
+        VBox content = new VBox(10, queryField, resultsList);
+        getDialogPane().setContent(content);
+        getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        setResultConverter(buttonType -> {
+            Suggestion selected = resultsList.getSelectionModel().getSelectedItem();
+            if (buttonType == ButtonType.OK && selected != null) {
+                return selected.path;
+            }
+            return null;
+        });
+
+        applyTheme(ThemeManager.getInstance().getCurrentTheme());
+
+        updateResults("");
+        Platform.runLater(queryField::requestFocus);
+    }
+
+    private void updateResults(String query) {
+        resultsList.getItems().setAll(suggestionIndex.suggest(query, MAX_RESULTS));
+        if (!resultsList.getItems().isEmpty()) {
+            resultsList.getSelectionModel().selectFirst();
+        }
+    }
+
+    private void applyTheme(Theme theme) {
+        String css = theme == Theme.DARK
+                ? getClass().getResource("/css/dark-theme.css").toExternalForm()
+                : getClass().getResource("/css/light-theme.css").toExternalForm();
+
+        getDialogPane().getStylesheets().setAll(css);
+    }
+}
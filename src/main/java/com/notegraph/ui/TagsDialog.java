@@ -0,0 +1,106 @@
+package com.notegraph.ui;
+
+import com.notegraph.model.Note;
+import com.notegraph.util.TagIndexManager;
+import com.notegraph.util.TagIndexManager.TagTreeNode;
+import javafx.scene.control.*;
+import javafx.scene.input.MouseButton;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Дерево тегов с числом заметок.
+ * Результат — тег для поиска: для тега с вложенными возвращается {@code тег/**}.
+ * Из контекстного меню тег можно переименовать во всех заметках.
+ */
+public class TagsDialog extends Dialog<String> {
+
+    private final TreeView<TagTreeNode> tagsTree;
+
+    /**
+     * @param onRename переименование тега: старое имя, новое имя (без #)
+     */
+    public TagsDialog(BiConsumer<String, String> onRename) {
+        LanguageManager lm = LanguageManager.getInstance();
+
+        setTitle(lm.get("tags.title"));
+
+        TreeItem<TagTreeNode> root = new TreeItem<>();
+        for (TagTreeNode node : TagIndexManager.getInstance().getTagTree()) {
+            root.getChildren().add(createItem(node));
+        }
+
+        tagsTree = new TreeView<>(root);
+        tagsTree.setShowRoot(false);
+        tagsTree.setPrefSize(360, 420);
+
+        tagsTree.setCellFactory(tv -> new TreeCell<>() {
+            @Override
+            protected void updateItem(TagTreeNode item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : "#" + item.name + "  (" + item.noteCount + ")");
+            }
+        });
+
+        tagsTree.setOnMouseClicked(e -> {
+            if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2 && selectedQuery() != null) {
+                setResult(selectedQuery());
+                close();
+            }
+        });
+
+        MenuItem renameItem = new MenuItem(lm.get("tags.rename"));
+        renameItem.setOnAction(e -> {
+            TreeItem<TagTreeNode> selected = tagsTree.getSelectionModel().getSelectedItem();
+            if (selected == null || selected.getValue() == null) {
+                return;
+            }
+            String tag = selected.getValue().tag;
+
+            TextInputDialog input = new TextInputDialog(tag);
+            input.setTitle(lm.get("tags.rename"));
+            input.setHeaderText("#" + tag);
+            input.setContentText(lm.get("tags.enterNewName"));
+            input.showAndWait()
+                    .map(name -> name.trim().replaceFirst("^#", ""))
+                    .filter(name -> Note.TAG_PATTERN.matcher("#" + name).matches() && !name.equals(tag))
+                    .ifPresent(name -> {
+                        close();
+                        onRename.accept(tag, name);
+                    });
+        });
+        tagsTree.setContextMenu(new ContextMenu(renameItem));
+
+        getDialogPane().setContent(tagsTree);
+        getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        setResultConverter(buttonType -> buttonType == ButtonType.OK ? selectedQuery() : null);
+
+        applyTheme(ThemeManager.getInstance().getCurrentTheme());
+    }
+
+    private static TreeItem<TagTreeNode> createItem(TagTreeNode node) {
+        TreeItem<TagTreeNode> item = new TreeItem<>(node);
+        for (TagTreeNode child : node.children) {
+            item.getChildren().add(createItem(child));
+        }
+        return item;
+    }
+
+    private String selectedQuery() {
+        TreeItem<TagTreeNode> selected = tagsTree.getSelectionModel().getSelectedItem();
+        if (selected == null || selected.getValue() == null) {
+            return null;
+        }
+        TagTreeNode node = selected.getValue();
+        return node.children.isEmpty() ? node.tag : node.tag + "/**";
+    }
+
+    private void applyTheme(Theme theme) {
+        String css = theme == Theme.DARK
+                ? getClass().getResource("/css/dark-theme.css").toExternalForm()
+                : getClass().getResource("/css/light-theme.css").toExternalForm();
+
+        getDialogPane().getStylesheets().setAll(css);
+    }
+}
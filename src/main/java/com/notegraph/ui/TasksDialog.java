@@ -0,0 +1,159 @@
+package com.notegraph.ui;
+
+import com.notegraph.util.TaskIndex;
+import com.notegraph.util.TaskIndex.Task;
+import javafx.application.Platform;
+import javafx.geometry.Pos;
+import javafx.scene.control.*;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+/**
+ * Задачи всех заметок из {@link TaskIndex}.
+ * Флажок переключает задачу, двойной щелчок открывает заметку.
+ */
+public class TasksDialog extends Dialog<Path> {
+
+    private final TaskIndex taskIndex = TaskIndex.getInstance();
+
+    /** Переключает задачу в заметке; false — задача устарела или не записана. */
+    private final Predicate<Task> toggler;
+
+    private final TextField filterField;
+    private final CheckBox showDoneBox;
+    private final ListView<Task> tasksList;
+
+    public TasksDialog(Predicate<Task> toggler) {
+        this.toggler = toggler;
+
+        LanguageManager lm = LanguageManager.getInstance();
+
+        setTitle(lm.get("tasks.title"));
+
+        filterField = new TextField();
+        filterField.setPromptText(lm.get("tasks.filter"));
+        HBox.setHgrow(filterField, Priority.ALWAYS);
+
+        showDoneBox = new CheckBox(lm.get("tasks.showDone"));
+
+        HBox header = new HBox(10, filterField, showDoneBox);
+        header.setAlignment(Pos.CENTER_LEFT);
+
+        tasksList = new ListView<>();
+        tasksList.setPrefSize(560, 420);
+        tasksList.setPlaceholder(new Label(lm.get("tasks.empty")));
+        tasksList.setCellFactory(list -> new TaskCell());
+
+        tasksList.setOnMouseClicked(e -> {
+            Task selected = tasksList.getSelectionModel().getSelectedItem();
+            if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2 && selected != null) {
+                setResult(selected.path);
+                close();
+            }
+        });
+
+        filterField.textProperty().addListener((obs, old, val) -> refresh());
+        showDoneBox.selectedProperty().addListener((obs, old, val) -> refresh());
+
+        getDialogPane().setContent(new VBox(10, header, tasksList));
+        getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+
+        setResultConverter(buttonType -> null);
+
+        applyTheme(ThemeManager.getInstance().getCurrentTheme());
+
+        refresh();
+        Platform.runLater(filterField::requestFocus);
+    }
+
+    private void refresh() {
+        String filter = filterField.getText().trim().toLowerCase(Locale.ROOT);
+        tasksList.getItems().clear();
+        for (Task task : taskIndex.getTasks(showDoneBox.isSelected())) {
+            if (filter.isEmpty() || matches(task, filter)) {
+                tasksList.getItems().add(task);
+            }
+        }
+    }
+
+    private static boolean matches(Task task, String filter) {
+        if (filter.startsWith("#")) {
+            String tag = filter.substring(1);
+            return task.tags.stream().anyMatch(t -> t.toLowerCase(Locale.ROOT).startsWith(tag));
+        }
+        return task.text.toLowerCase(Locale.ROOT).contains(filter)
+                || task.noteTitle.toLowerCase(Locale.ROOT).contains(filter);
+    }
+
+    /**
+     * Переключить задачу и сразу показать новое состояние,
+     * не дожидаясь, пока сохранение обновит индекс
+     */
+    private void toggle(Task task) {
+        int index = tasksList.getItems().indexOf(task);
+        if (index < 0 || !toggler.test(task)) {
+            refresh();
+            return;
+        }
+
+        Task toggled = task.toggled();
+        if (toggled.done && !showDoneBox.isSelected()) {
+            tasksList.getItems().remove(index);
+        } else {
+            tasksList.getItems().set(index, toggled);
+        }
+    }
+
+    private class TaskCell extends ListCell<Task> {
+        private final CheckBox checkBox = new CheckBox();
+        private final Label textLabel = new Label();
+        private final Label sourceLabel = new Label();
+        private final HBox box;
+
+        TaskCell() {
+            textLabel.setWrapText(true);
+            sourceLabel.setStyle("-fx-text-fill: gray;");
+            Region spacer = new Region();
+            HBox.setHgrow(spacer, Priority.ALWAYS);
+            box = new HBox(8, checkBox, textLabel, spacer, sourceLabel);
+            box.setAlignment(Pos.CENTER_LEFT);
+
+            checkBox.setOnAction(e -> {
+                if (getItem() != null) {
+                    toggle(getItem());
+                }
+            });
+        }
+
+        @Override
+        protected void updateItem(Task task, boolean empty) {
+            super.updateItem(task, empty);
+            setText(null);
+            if (empty || task == null) {
+                setGraphic(null);
+                return;
+            }
+            checkBox.setSelected(task.done);
+            textLabel.setText(task.text);
+            sourceLabel.setText(task.getDate() != null
+                    ? task.noteTitle + " · " + task.getDate()
+                    : task.noteTitle);
+            setGraphic(box);
+        }
+    }
+
+    private void applyTheme(Theme theme) {
+        String css = theme == Theme.DARK
+                ? getClass().getResource("/css/dark-theme.css").toExternalForm()
+                : getClass().getResource("/css/light-theme.css").toExternalForm();
+
+        getDialogPane().getStylesheets().setAll(css);
+    }
+}
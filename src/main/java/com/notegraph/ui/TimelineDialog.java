@@ -0,0 +1,143 @@
+package com.notegraph.ui;
+
+import com.notegraph.util.NoteDateIndex;
+import javafx.collections.ObservableList;
+import javafx.geometry.Pos;
+import javafx.scene.control.*;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Временная шкала: дни с числом созданных или изменённых заметок, от новых к старым.
+ * Заметки дня загружаются из {@link NoteDateIndex} при раскрытии дня.
+ */
+public class TimelineDialog extends Dialog<Path> {
+
+    private final NoteDateIndex dateIndex = NoteDateIndex.getInstance();
+
+    private final ComboBox<NoteDateIndex.Field> fieldBox;
+    private final TreeView<Object> timelineTree;
+
+    public TimelineDialog() {
+        LanguageManager lm = LanguageManager.getInstance();
+
+        setTitle(lm.get("timeline.title"));
+
+        fieldBox = new ComboBox<>();
+        fieldBox.getItems().setAll(NoteDateIndex.Field.MODIFIED, NoteDateIndex.Field.CREATED);
+        fieldBox.setValue(NoteDateIndex.Field.MODIFIED);
+        fieldBox.setCellFactory(list -> new FieldCell());
+        fieldBox.setButtonCell(new FieldCell());
+        fieldBox.valueProperty().addListener((obs, old, val) -> refresh());
+
+        HBox header = new HBox(10, new Label(lm.get("timeline.by")), fieldBox);
+        header.setAlignment(Pos.CENTER_LEFT);
+
+        timelineTree = new TreeView<>(new TreeItem<>());
+        timelineTree.setShowRoot(false);
+        timelineTree.setPrefSize(420, 460);
+        timelineTree.setCellFactory(tv -> new TreeCell<>() {
+            @Override
+            protected void updateItem(Object item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(null);
+                } else if (item instanceof Path path) {
+                    String name = path.getFileName().toString();
+                    setText(name.endsWith(".md") ? name.substring(0, name.length() - 3) : name);
+                } else {
+                    setText(item.toString());
+                }
+            }
+        });
+
+        timelineTree.setOnMouseClicked(e -> {
+            if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2 && selectedPath() != null) {
+                setResult(selectedPath());
+                close();
+            }
+        });
+
+        getDialogPane().setContent(new VBox(10, header, timelineTree));
+        getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        setResultConverter(buttonType -> buttonType == ButtonType.OK ? selectedPath() : null);
+
+        applyTheme(ThemeManager.getInstance().getCurrentTheme());
+
+        refresh();
+    }
+
+    private void refresh() {
+        NoteDateIndex.Field field = fieldBox.getValue();
+        TreeItem<Object> root = timelineTree.getRoot();
+        root.getChildren().clear();
+
+        for (Map.Entry<LocalDate, Integer> day : dateIndex.countByDay(field, null, null).entrySet()) {
+            root.getChildren().add(new DayItem(field, day.getKey(), day.getValue()));
+        }
+    }
+
+    private Path selectedPath() {
+        TreeItem<Object> selected = timelineTree.getSelectionModel().getSelectedItem();
+        return selected != null && selected.getValue() instanceof Path path ? path : null;
+    }
+
+    /**
+     * День на шкале; заметки загружаются при первом раскрытии
+     */
+    private class DayItem extends TreeItem<Object> {
+        private final NoteDateIndex.Field field;
+        private final LocalDate day;
+        private boolean loaded;
+
+        DayItem(NoteDateIndex.Field field, LocalDate day, int count) {
+            super(day + "  (" + count + ")");
+            this.field = field;
+            this.day = day;
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return false;
+        }
+
+        @Override
+        public ObservableList<TreeItem<Object>> getChildren() {
+            if (!loaded) {
+                loaded = true;
+                List<Path> paths = dateIndex.find(field, day, day);
+                Collections.reverse(paths);
+                for (Path path : paths) {
+                    super.getChildren().add(new TreeItem<>(path));
+                }
+            }
+            return super.getChildren();
+        }
+    }
+
+    private static class FieldCell extends ListCell<NoteDateIndex.Field> {
+        @Override
+        protected void updateItem(NoteDateIndex.Field field, boolean empty) {
+            super.updateItem(field, empty);
+            LanguageManager lm = LanguageManager.getInstance();
+            setText(empty || field == null ? null
+                    : lm.get(field == NoteDateIndex.Field.CREATED ? "timeline.created" : "timeline.modified"));
+        }
+    }
+
+    private void applyTheme(Theme theme) {
+        String css = theme == Theme.DARK
+                ? getClass().getResource("/css/dark-theme.css").toExternalForm()
+                : getClass().getResource("/css/light-theme.css").toExternalForm();
+
+        getDialogPane().getStylesheets().setAll(css);
+    }
+}
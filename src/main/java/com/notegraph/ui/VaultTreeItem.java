@@ -0,0 +1,329 @@
+package com.notegraph.ui;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.TreeItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * Элемент дерева vault с ленивой загрузкой.
+ * <p>
+ * Содержимое папки читается только при первом раскрытии: один проход
+ * DirectoryStream, атрибуты каждого файла читаются один раз и хранятся
+ * в элементе. Ключи сортировки (имя, дата, закладка) считаются заранее,
+ * поэтому сортировка не обращается к диску и к MetadataManager.
+ * Для сортировки по дате используется время изменения файла, а не дата
+ * из frontmatter: так дерево следует и за правками вне приложения.
+ */
+public class VaultTreeItem extends TreeItem<Path> {
+    private static final Logger logger = LoggerFactory.getLogger(VaultTreeItem.class);
+
+    public static final String SORT_MODIFIED_DESC = "sort.byDateModified1";
+    public static final String SORT_MODIFIED_ASC = "sort.byDateModified2";
+    public static final String SORT_NAME_AZ = "sort.byNameAZ";
+    public static final String SORT_NAME_ZA = "sort.byNameZA";
+    public static final String SORT_BOOKMARKS = "sort.byBookmarks";
+
+    /**
+     * Общие для всего дерева параметры
+     */
+    public static class Listing {
+        private final Path vaultPath;
+        private final Set<String> bookmarks;
+        private final Set<Path> expanded;
+        private String sortKey;
+
+        /**
+         * @param bookmarks относительные пути заметок в закладках
+         * @param expanded  папки, которые нужно раскрыть при загрузке
+         */
+        public Listing(Path vaultPath, String sortKey, Collection<String> bookmarks, Set<Path> expanded) {
+            this.vaultPath = vaultPath;
+            this.sortKey = sortKey != null ? sortKey : SORT_NAME_AZ;
+            this.bookmarks = new HashSet<>(bookmarks);
+            this.expanded = expanded != null ? new HashSet<>(expanded) : new HashSet<>();
+        }
+
+        public Path getVaultPath() {
+            return vaultPath;
+        }
+
+        public String getSortKey() {
+            return sortKey;
+        }
+
+        /**
+         * Раскрыть папку, когда она будет загружена
+         */
+        void expandOnLoad(Path path) {
+            expanded.add(path);
+        }
+
+        boolean isBookmarked(Path path) {
+            return bookmarks.contains(vaultPath.relativize(path).toString());
+        }
+    }
+
+    private final Listing listing;
+    private final boolean directory;
+    private final String sortName;
+    private long modified;
+    private boolean bookmarked;
+    private boolean loaded;
+
+    /** Загруженные дочерние элементы по пути (для поиска без перебора). */
+    private final Map<Path, VaultTreeItem> childrenByPath = new HashMap<>();
+
+    /**
+     * Корень дерева
+     */
+    public VaultTreeItem(Listing listing) {
+        this(listing, listing.vaultPath, true, 0L);
+    }
+
+    private VaultTreeItem(Listing listing, Path path, boolean directory, long modified) {
+        super(path);
+        this.listing = listing;
+        this.directory = directory;
+        this.modified = modified;
+        this.sortName = path.getFileName() != null
+                ? path.getFileName().toString().toLowerCase(Locale.ROOT)
+                : "";
+        this.bookmarked = !directory && listing.isBookmarked(path);
+    }
+
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    public boolean isNote() {
+        return !directory;
+    }
+
+    public boolean isBookmarked() {
+        return bookmarked;
+    }
+
+    public long getModified() {
+        return modified;
+    }
+
+    public Listing getListing() {
+        return listing;
+    }
+
+    /**
+     * Обновить отметку закладки без перечитывания папки
+     */
+    public void setBookmarked(boolean bookmarked) {
+        this.bookmarked = bookmarked;
+
+        String relative = listing.vaultPath.relativize(getValue()).toString();
+        if (bookmarked) {
+            listing.bookmarks.add(relative);
+        } else {
+            listing.bookmarks.remove(relative);
+        }
+
+        if (SORT_BOOKMARKS.equals(listing.sortKey) && getParent() instanceof VaultTreeItem parent) {
+            parent.reposition(this);
+        }
+    }
+
+    /**
+     * Создать элемент для пути или вернуть null, если путь не показывается
+     * в дереве (не существует, скрытая папка, не .md файл)
+     */
+    static VaultTreeItem create(Listing listing, Path path) {
+        BasicFileAttributes attrs = readAttributes(path);
+        if (attrs == null || !isTreeEntry(path, attrs)) {
+            return null;
+        }
+
+        VaultTreeItem item = new VaultTreeItem(listing, path, attrs.isDirectory(), attrs.lastModifiedTime().toMillis());
+        if (item.directory && listing.expanded.contains(path)) {
+            item.setExpanded(true);
+        }
+        return item;
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    VaultTreeItem child(Path path) {
+        return childrenByPath.get(path);
+    }
+
+    /**
+     * Вставить элемент на место по текущему порядку сортировки
+     */
+    void addChild(VaultTreeItem item) {
+        List<TreeItem<Path>> children = super.getChildren();
+        int index = Collections.binarySearch(children, item, comparator(listing.sortKey));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        children.add(index, item);
+        childrenByPath.put(item.getValue(), item);
+    }
+
+    void removeChild(VaultTreeItem item) {
+        super.getChildren().remove(item);
+        childrenByPath.remove(item.getValue());
+    }
+
+    /**
+     * Перечитать атрибуты и, если нужно, передвинуть элемент среди соседей
+     */
+    void refreshAttributes() {
+        BasicFileAttributes attrs = readAttributes(getValue());
+        if (attrs == null || attrs.lastModifiedTime().toMillis() == modified) {
+            return;
+        }
+        modified = attrs.lastModifiedTime().toMillis();
+
+        if (getParent() instanceof VaultTreeItem parent) {
+            parent.reposition(this);
+        }
+    }
+
+    private void reposition(VaultTreeItem item) {
+        List<TreeItem<Path>> children = super.getChildren();
+        Comparator<TreeItem<Path>> comparator = comparator(listing.sortKey);
+        int index = children.indexOf(item);
+
+        boolean afterPrevious = index == 0 || comparator.compare(children.get(index - 1), item) <= 0;
+        boolean beforeNext = index == children.size() - 1 || comparator.compare(item, children.get(index + 1)) <= 0;
+        if (afterPrevious && beforeNext) {
+            return;
+        }
+
+        removeChild(item);
+        addChild(item);
+    }
+
+    @Override
+    public boolean isLeaf() {
+        return !directory || (loaded && super.getChildren().isEmpty());
+    }
+
+    @Override
+    public ObservableList<TreeItem<Path>> getChildren() {
+        if (directory && !loaded) {
+            loaded = true;
+            List<VaultTreeItem> children = loadChildren();
+            for (VaultTreeItem child : children) {
+                childrenByPath.put(child.getValue(), child);
+            }
+            super.getChildren().setAll(children);
+        }
+        return super.getChildren();
+    }
+
+    /**
+     * Пересортировать уже загруженные папки (при смене порядка сортировки).
+     * Незагруженные папки будут отсортированы при раскрытии.
+     */
+    public void resort(String sortKey) {
+        listing.sortKey = sortKey != null ? sortKey : SORT_NAME_AZ;
+        resortLoaded();
+    }
+
+    /**
+     * Собрать пути раскрытых папок, не загружая нераскрытые
+     */
+    public void collectExpanded(Set<Path> result) {
+        if (!directory || !isExpanded()) {
+            return;
+        }
+        result.add(getValue());
+        if (!loaded) {
+            return;
+        }
+        for (TreeItem<Path> child : super.getChildren()) {
+            if (child instanceof VaultTreeItem item) {
+                item.collectExpanded(result);
+            }
+        }
+    }
+
+    private void resortLoaded() {
+        if (!loaded) {
+            return;
+        }
+        resortChildren();
+        for (TreeItem<Path> child : super.getChildren()) {
+            if (child instanceof VaultTreeItem item) {
+                item.resortLoaded();
+            }
+        }
+    }
+
+    private void resortChildren() {
+        FXCollections.sort(super.getChildren(), comparator(listing.sortKey));
+    }
+
+    private List<VaultTreeItem> loadChildren() {
+        List<VaultTreeItem> children = new ArrayList<>();
+        Path directoryPath = getValue();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directoryPath)) {
+            for (Path path : stream) {
+                VaultTreeItem item = create(listing, path);
+                if (item != null) {
+                    children.add(item);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Ошибка чтения папки: {}", directoryPath, e);
+        }
+
+        children.sort(comparator(listing.sortKey));
+        return children;
+    }
+
+    private static boolean isTreeEntry(Path path, BasicFileAttributes attrs) {
+        String name = path.getFileName().toString();
+        return (attrs.isDirectory() && !name.startsWith("."))
+                || (attrs.isRegularFile() && name.endsWith(".md"));
+    }
+
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            logger.debug("Не удалось прочитать атрибуты: {}", path);
+            return null;
+        }
+    }
+
+    /**
+     * Папки всегда выше заметок, внутри групп — по выбранному ключу
+     */
+    private static Comparator<TreeItem<Path>> comparator(String sortKey) {
+        Comparator<VaultTreeItem> byName = Comparator.comparing(item -> item.sortName);
+
+        Comparator<VaultTreeItem> order = switch (sortKey) {
+            case SORT_NAME_ZA -> byName.reversed();
+            case SORT_MODIFIED_DESC -> Comparator.comparingLong((VaultTreeItem item) -> item.modified).reversed();
+            case SORT_MODIFIED_ASC -> Comparator.comparingLong((VaultTreeItem item) -> item.modified);
+            case SORT_BOOKMARKS -> Comparator.comparing((VaultTreeItem item) -> !item.bookmarked).thenComparing(byName);
+            default -> byName;
+        };
+
+        Comparator<VaultTreeItem> full = Comparator
+                .comparing((VaultTreeItem item) -> !item.directory)
+                .thenComparing(order);
+
+        return (a, b) -> full.compare((VaultTreeItem) a, (VaultTreeItem) b);
+    }
+}
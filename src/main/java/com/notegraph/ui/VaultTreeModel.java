@@ -0,0 +1,192 @@
+package com.notegraph.ui;
+
+import com.notegraph.util.FileWatcherService;
+import javafx.scene.control.TreeView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Модель дерева vault: точечные изменения вместо полной перестройки.
+ * <p>
+ * Операции затрагивают только указанные пути и только уже загруженные папки —
+ * нераскрытые папки прочитают актуальное содержимое при раскрытии.
+ * Все операции идемпотентны: повторное событие о том же изменении
+ * (например, от FileWatcherService после собственной операции приложения)
+ * ничего не меняет.
+ * Вызывать только в FX-потоке.
+ */
+public class VaultTreeModel {
+    private static final Logger logger = LoggerFactory.getLogger(VaultTreeModel.class);
+
+    private final TreeView<Path> treeView;
+    private final Path vaultPath;
+    private VaultTreeItem root;
+
+    public VaultTreeModel(TreeView<Path> treeView, Path vaultPath) {
+        this.treeView = treeView;
+        this.vaultPath = vaultPath;
+    }
+
+    public VaultTreeItem getRoot() {
+        return root;
+    }
+
+    /**
+     * Построить дерево заново, сохранив раскрытые папки
+     */
+    public void reload(String sortKey, Collection<String> bookmarks) {
+        Set<Path> expanded = new HashSet<>();
+        if (root != null) {
+            root.collectExpanded(expanded);
+        }
+
+        root = new VaultTreeItem(new VaultTreeItem.Listing(vaultPath, sortKey, bookmarks, expanded));
+        root.setExpanded(true);
+        treeView.setRoot(root);
+    }
+
+    public void resort(String sortKey) {
+        root.resort(sortKey);
+    }
+
+    /**
+     * Найти элемент среди уже загруженных
+     */
+    public VaultTreeItem find(Path path) {
+        if (path.equals(vaultPath)) {
+            return root;
+        }
+        if (!path.startsWith(vaultPath)) {
+            return null;
+        }
+
+        VaultTreeItem item = root;
+        Path current = vaultPath;
+        for (Path name : vaultPath.relativize(path)) {
+            if (!item.isLoaded()) {
+                return null;
+            }
+            current = current.resolve(name);
+            item = item.child(current);
+            if (item == null) {
+                return null;
+            }
+        }
+        return item;
+    }
+
+    /**
+     * Добавить файл или папку (вместе с недостающими родительскими папками)
+     */
+    public void insert(Path path) {
+        if (!path.startsWith(vaultPath) || path.equals(vaultPath)) {
+            return;
+        }
+
+        VaultTreeItem item = root;
+        Path current = vaultPath;
+        for (Path name : vaultPath.relativize(path)) {
+            if (!item.isLoaded()) {
+                return;
+            }
+            current = current.resolve(name);
+
+            VaultTreeItem child = item.child(current);
+            if (child == null) {
+                child = VaultTreeItem.create(root.getListing(), current);
+                if (child != null) {
+                    item.addChild(child);
+                }
+                return;
+            }
+            item = child;
+        }
+
+        item.refreshAttributes();
+    }
+
+    /**
+     * Убрать элемент из дерева
+     */
+    public void remove(Path path) {
+        VaultTreeItem item = find(path);
+        if (item == null || item == root) {
+            return;
+        }
+        if (item.getParent() instanceof VaultTreeItem parent) {
+            parent.removeChild(item);
+        }
+    }
+
+    /**
+     * Перенос или переименование. Раскрытые папки внутри остаются раскрытыми.
+     */
+    public void move(Path from, Path to) {
+        VaultTreeItem item = find(from);
+        if (item != null) {
+            Set<Path> expanded = new HashSet<>();
+            item.collectExpanded(expanded);
+            for (Path path : expanded) {
+                root.getListing().expandOnLoad(to.resolve(from.relativize(path)));
+            }
+        }
+
+        remove(from);
+        insert(to);
+    }
+
+    /**
+     * Файл изменился: обновить дату и положение при сортировке по дате
+     */
+    public void update(Path path) {
+        VaultTreeItem item = find(path);
+        if (item != null) {
+            item.refreshAttributes();
+        }
+    }
+
+    public void setBookmarked(Path path, boolean bookmarked) {
+        VaultTreeItem item = find(path);
+        if (item != null) {
+            item.setBookmarked(bookmarked);
+            treeView.refresh();
+        }
+    }
+
+    /**
+     * Применить изменения, найденные FileWatcherService.
+     * Папки, которые исчезли вместе с заметками, тоже убираются.
+     */
+    public void apply(FileWatcherService.FileChangeSet changeSet) {
+        for (Path path : changeSet.removed) {
+            remove(path);
+            pruneMissingParents(path.getParent());
+        }
+        for (Path path : changeSet.added) {
+            insert(path);
+        }
+        for (Path path : changeSet.modified) {
+            update(path);
+        }
+
+        logger.debug("Дерево обновлено: +{} -{} ~{}",
+                changeSet.added.size(), changeSet.removed.size(), changeSet.modified.size());
+    }
+
+    private void pruneMissingParents(Path directory) {
+        Path current = directory;
+        while (current != null && !current.equals(vaultPath) && current.startsWith(vaultPath)) {
+            if (Files.exists(current)) {
+                return;
+            }
+            remove(current);
+            current = current.getParent();
+        }
+    }
+}
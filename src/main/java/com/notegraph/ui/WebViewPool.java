@@ -0,0 +1,83 @@
+package com.notegraph.ui;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Общий для вкладок пул превью ({@link MarkdownPreview} вместе с WebView).
+ * <p>
+ * WebView создаётся только при первом показе превью и не больше capacity штук.
+ * Когда свободных нет, превью забирается у вкладки, которая дольше всех
+ * его не обновляла; та получает уведомление и при следующем показе
+ * запросит превью снова.
+ */
+public class WebViewPool {
+
+    /**
+     * Превью, выданное вкладке
+     */
+    private static final class Lease {
+        final MarkdownPreview preview;
+        final Runnable onReclaimed;
+
+        Lease(MarkdownPreview preview, Runnable onReclaimed) {
+            this.preview = preview;
+            this.onReclaimed = onReclaimed;
+        }
+    }
+
+    private final int capacity;
+    private final Supplier<MarkdownPreview> factory;
+
+    /** Выданные превью, от давно использованных к недавним. */
+    private final LinkedHashMap<Object, Lease> leases = new LinkedHashMap<>(16, 0.75f, true);
+    private final Deque<MarkdownPreview> free = new ArrayDeque<>();
+
+    public WebViewPool(int capacity, Supplier<MarkdownPreview> factory) {
+        this.capacity = capacity;
+        this.factory = factory;
+    }
+
+    /**
+     * Превью для владельца (обычно вкладки). Повторный вызов возвращает то же превью,
+     * пока его не забрали. Вызывается в FX-потоке.
+     *
+     * @param onReclaimed вызывается, когда превью забирают для другого владельца;
+     *                    владелец должен убрать WebView из своей разметки
+     */
+    public MarkdownPreview acquire(Object owner, Runnable onReclaimed) {
+        Lease lease = leases.get(owner);
+        if (lease != null) {
+            return lease.preview;
+        }
+
+        MarkdownPreview preview = free.poll();
+        if (preview == null) {
+            if (leases.size() < capacity) {
+                preview = factory.get();
+            } else {
+                Iterator<Lease> oldest = leases.values().iterator();
+                Lease reclaimed = oldest.next();
+                oldest.remove();
+                reclaimed.onReclaimed.run();
+                preview = reclaimed.preview;
+                preview.clear();
+            }
+        }
+
+        leases.put(owner, new Lease(preview, onReclaimed));
+        return preview;
+    }
+
+    /**
+     * Вернуть превью владельца в пул (вкладка закрыта)
+     */
+    public void release(Object owner) {
+        Lease lease = leases.remove(owner);
+        if (lease != null) {
+            lease.onReclaimed.run();
+            lease.preview.clear();
+            free.push(lease.preview);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.notegraph.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Хэш содержимого заметки (SHA-256) для сравнения текста без хранения копий.
+ */
+public final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    /**
+     * SHA-256 строки в hex. Для null возвращается хэш пустой строки.
+     */
+    public static String of(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((text != null ? text : "").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+}
@@ -41,6 +41,13 @@ public class FileWatcherService {
     /** Снимок: путь файла -> время последнего изменения (millis). */
     private Map<Path, Long> lastSnapshot = new HashMap<>();
 
+    /**
+     * Переносы, сделанные приложением, пока идёт обход vault (null — обхода нет).
+     * Обход может увидеть файлы ещё по старым путям; такие пути переносятся
+     * в новом снимке перед сравнением.
+     */
+    private Map<Path, Path> movesDuringPoll;
+
     /** Callback, вызываемый при обнаружении изменений (выполняется НЕ в FX-потоке). */
     private Consumer<FileChangeSet> onChangeListener;
 
@@ -103,57 +110,85 @@ public class FileWatcherService {
     }
 
     /**
-     * Принудительно выполняет проверку прямо сейчас (например, после
-     * операций самого приложения, чтобы обновить снимок без ложного срабатывания).
+     * Файлы перемещены самим приложением: перенести их в снимке,
+     * чтобы следующая проверка не приняла перенос за удаление и добавление
      */
-    public void refreshSnapshotSilently() {
-        lastSnapshot = takeSnapshot();
+    public synchronized void pathsMoved(Map<Path, Path> moves) {
+        applyMoves(lastSnapshot, moves);
+        if (movesDuringPoll != null) {
+            movesDuringPoll.putAll(moves);
+        }
+    }
+
+    private static void applyMoves(Map<Path, Long> snapshot, Map<Path, Path> moves) {
+        for (Map.Entry<Path, Path> move : moves.entrySet()) {
+            Long modified = snapshot.remove(move.getKey());
+            if (modified != null) {
+                snapshot.put(move.getValue(), modified);
+            }
+        }
     }
 
     private void checkForChanges() {
         try {
-            Map<Path, Long> currentSnapshot = takeSnapshot();
-
-            Set<Path> added = new HashSet<>();
-            Set<Path> modified = new HashSet<>();
-            Set<Path> removed = new HashSet<>();
-
-            for (Map.Entry<Path, Long> entry : currentSnapshot.entrySet()) {
-                Path path = entry.getKey();
-                Long currentTime = entry.getValue();
-                Long previousTime = lastSnapshot.get(path);
-
-                if (previousTime == null) {
-                    added.add(path);
-                } else if (!previousTime.equals(currentTime)) {
-                    modified.add(path);
-                }
+            synchronized (this) {
+                movesDuringPoll = new HashMap<>();
             }
 
-            for (Path path : lastSnapshot.keySet()) {
-                if (!currentSnapshot.containsKey(path)) {
-                    removed.add(path);
-                }
+            // Обход vault — без блокировки: pathsMoved вызывается из FX-потока
+            Map<Path, Long> currentSnapshot = takeSnapshot();
+
+            FileChangeSet changeSet;
+            synchronized (this) {
+                applyMoves(currentSnapshot, movesDuringPoll);
+                movesDuringPoll = null;
+                changeSet = compare(currentSnapshot);
+                lastSnapshot = currentSnapshot;
             }
 
-            if (!added.isEmpty() || !modified.isEmpty() || !removed.isEmpty()) {
+            if (!changeSet.isEmpty()) {
                 logger.info("FileWatcherService: обнаружены изменения (добавлено={}, изменено={}, удалено={})",
-                        added.size(), modified.size(), removed.size());
-
-                FileChangeSet changeSet = new FileChangeSet(added, modified, removed);
+                        changeSet.added.size(), changeSet.modified.size(), changeSet.removed.size());
 
                 if (onChangeListener != null) {
                     onChangeListener.accept(changeSet);
                 }
             }
 
-            lastSnapshot = currentSnapshot;
-
         } catch (Exception e) {
             logger.error("Ошибка при проверке изменений файловой системы", e);
         }
     }
 
+    /**
+     * Сравнить снимок с предыдущим
+     */
+    private FileChangeSet compare(Map<Path, Long> currentSnapshot) {
+        Set<Path> added = new HashSet<>();
+        Set<Path> modified = new HashSet<>();
+        Set<Path> removed = new HashSet<>();
+
+        for (Map.Entry<Path, Long> entry : currentSnapshot.entrySet()) {
+            Path path = entry.getKey();
+            Long currentTime = entry.getValue();
+            Long previousTime = lastSnapshot.get(path);
+
+            if (previousTime == null) {
+                added.add(path);
+            } else if (!previousTime.equals(currentTime)) {
+                modified.add(path);
+            }
+        }
+
+        for (Path path : lastSnapshot.keySet()) {
+            if (!currentSnapshot.containsKey(path)) {
+                removed.add(path);
+            }
+        }
+
+        return new FileChangeSet(added, modified, removed);
+    }
+
     /**
      * Строит снимок: рекурсивно обходит vault, собирает пути .md файлов
      * и их время последнего изменения.
@@ -0,0 +1,390 @@
+package com.notegraph.util;
+
+import com.notegraph.model.Note;
+import com.notegraph.model.SearchResult;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Полнотекстовый индекс по словам с ранжированием BM25.
+ * <p>
+ * Для каждого слова хранятся заметки и позиции вхождений в тексте. Слова
+ * из названия и заголовков дают дополнительный вес; свежие заметки и заметки,
+ * на которые много ссылаются, поднимаются выше. Текст заметок хранится
+ * в индексе, поэтому фрагменты с подсветкой строятся без чтения файлов.
+ */
+public class FullTextIndex implements VaultIndex {
+    private static FullTextIndex instance;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double TITLE_BOOST = 3.0;
+    private static final double HEADING_BOOST = 1.5;
+    /** Прибавка к весу только что изменённой заметки; убывает с периодом RECENCY_DAYS. */
+    private static final double RECENCY_BOOST = 0.2;
+    private static final double RECENCY_DAYS = 30;
+    private static final double BACKLINK_BOOST = 0.1;
+
+    /** Сколько слов может подставить последнее (недописанное) слово запроса. */
+    private static final int MAX_PREFIX_EXPANSIONS = 32;
+    private static final int SNIPPET_LENGTH = 120;
+    private static final int SNIPPET_CONTEXT = 30;
+
+    /** Число обратных ссылок по названию заметки. */
+    private final ToIntFunction<String> backlinkCounts;
+
+    /** Слово → (документ → позиции вхождений в тексте). */
+    private final TreeMap<String, Map<Integer, int[]>> postings = new TreeMap<>();
+    private final Map<Path, Integer> docsByPath = new HashMap<>();
+    /** Документы по номеру; null — свободный номер. */
+    private final List<Doc> docs = new ArrayList<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    private long totalLength;
+
+    private static final class Doc {
+        Path path;
+        String title;
+        String text;
+        /** Номер строки файла, с которой начинается текст (после frontmatter). */
+        int lineOffset;
+        String[] terms;
+        Set<String> titleTerms;
+        Set<String> headingTerms;
+        int length;
+        long modified;
+    }
+
+    private record Token(String term, int offset) {
+    }
+
+    private FullTextIndex() {
+        this(LinkIndexManager.getInstance()::getBacklinkCount);
+    }
+
+    FullTextIndex(ToIntFunction<String> backlinkCounts) {
+        this.backlinkCounts = backlinkCounts;
+    }
+
+    public static synchronized FullTextIndex getInstance() {
+        if (instance == null) {
+            instance = new FullTextIndex();
+        }
+        return instance;
+    }
+
+    @Override
+    public synchronized void noteIndexed(Note note) {
+        if (note.getPath() == null) {
+            return;
+        }
+        removeDoc(note.getPath());
+
+        Doc doc = new Doc();
+        doc.path = note.getPath();
+        doc.title = note.getTitle() != null
+                ? note.getTitle()
+                : note.getPath().getFileName().toString().replaceAll("\\.md$", "");
+        doc.text = note.getBodyContent() != null ? note.getBodyContent() : "";
+        doc.lineOffset = bodyLineOffset(note);
+        doc.modified = note.getModified() != null
+                ? note.getModified().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : 0L;
+
+        doc.titleTerms = new HashSet<>();
+        for (Token token : tokenize(doc.title)) {
+            doc.titleTerms.add(token.term());
+        }
+        doc.headingTerms = new HashSet<>();
+        for (String line : doc.text.split("\n")) {
+            if (line.startsWith("#")) {
+                for (Token token : tokenize(line)) {
+                    doc.headingTerms.add(token.term());
+                }
+            }
+        }
+
+        List<Token> tokens = tokenize(doc.text);
+        Map<String, List<Integer>> positions = new HashMap<>();
+        for (Token token : tokens) {
+            positions.computeIfAbsent(token.term(), k -> new ArrayList<>()).add(token.offset());
+        }
+        // Слова названия ищутся, даже если в тексте их нет
+        for (String term : doc.titleTerms) {
+            positions.computeIfAbsent(term, k -> new ArrayList<>());
+        }
+
+        int id = freeIds.isEmpty() ? docs.size() : freeIds.pop();
+        if (id == docs.size()) {
+            docs.add(doc);
+        } else {
+            docs.set(id, doc);
+        }
+        docsByPath.put(doc.path, id);
+
+        doc.terms = positions.keySet().toArray(new String[0]);
+        doc.length = tokens.size();
+        totalLength += doc.length;
+
+        for (Map.Entry<String, List<Integer>> entry : positions.entrySet()) {
+            int[] offsets = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(id, offsets);
+        }
+    }
+
+    @Override
+    public synchronized void noteRemoved(Path path) {
+        removeDoc(path);
+    }
+
+    @Override
+    public synchronized void notesMoved(Map<Path, Path> moves, Function<Path, Note> reader) {
+        List<Integer> ids = new ArrayList<>(moves.size());
+        for (Path oldPath : moves.keySet()) {
+            ids.add(docsByPath.remove(oldPath));
+        }
+        int i = 0;
+        for (Path newPath : moves.values()) {
+            Integer id = ids.get(i++);
+            if (id != null) {
+                docs.get(id).path = newPath;
+                docsByPath.put(newPath, id);
+            }
+        }
+    }
+
+    /**
+     * Лучшие заметки по запросу (все слова запроса должны встретиться;
+     * последнее слово может быть недописанным).
+     *
+     * @return результаты по убыванию релевантности; пустой список, если в запросе нет слов
+     */
+    public synchronized List<SearchResult> search(String query, int limit) {
+        List<String> queryTerms = new ArrayList<>();
+        for (Token token : tokenize(query)) {
+            if (!queryTerms.contains(token.term())) {
+                queryTerms.add(token.term());
+            }
+        }
+        if (queryTerms.isEmpty() || docsByPath.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        boolean lastIsPrefix = !Character.isWhitespace(query.charAt(query.length() - 1));
+        double averageLength = Math.max(1.0, (double) totalLength / docsByPath.size());
+
+        Map<Integer, Double> scores = null;
+        Map<Integer, List<String>> matchedTerms = new HashMap<>();
+
+        for (int i = 0; i < queryTerms.size(); i++) {
+            List<String> expansions = expand(queryTerms.get(i), lastIsPrefix && i == queryTerms.size() - 1);
+            Map<Integer, Double> termScores = new HashMap<>();
+
+            for (String term : expansions) {
+                Map<Integer, int[]> termPostings = postings.get(term);
+                double idf = idf(termPostings.size());
+
+                for (Map.Entry<Integer, int[]> entry : termPostings.entrySet()) {
+                    int id = entry.getKey();
+                    if (scores != null && !scores.containsKey(id)) {
+                        continue;
+                    }
+                    Doc doc = docs.get(id);
+                    double score = bm25(entry.getValue().length, doc.length, averageLength, idf);
+                    if (doc.titleTerms.contains(term)) {
+                        score += TITLE_BOOST * idf;
+                    }
+                    if (doc.headingTerms.contains(term)) {
+                        score += HEADING_BOOST * idf;
+                    }
+                    termScores.merge(id, score, Math::max);
+                    matchedTerms.computeIfAbsent(id, k -> new ArrayList<>()).add(term);
+                }
+            }
+
+            // Все слова запроса обязательны: пересечение с уже найденным
+            if (scores != null) {
+                Map<Integer, Double> previous = scores;
+                termScores.replaceAll((id, score) -> score + previous.get(id));
+            }
+            scores = termScores;
+            if (scores.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        PriorityQueue<Map.Entry<Integer, Double>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            Doc doc = docs.get(entry.getKey());
+            double score = entry.getValue() * recencyFactor(doc, now) * popularityFactor(doc);
+            top.add(Map.entry(entry.getKey(), score));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<SearchResult> results = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            Map.Entry<Integer, Double> entry = top.poll();
+            results.add(snippet(entry.getKey(), matchedTerms.get(entry.getKey()), entry.getValue()));
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    private List<String> expand(String term, boolean prefix) {
+        List<String> result = new ArrayList<>();
+        if (postings.containsKey(term)) {
+            result.add(term);
+        }
+        if (prefix) {
+            for (String candidate : postings.subMap(term, false, term + Character.MAX_VALUE, false).keySet()) {
+                if (result.size() >= MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    private double idf(int documentFrequency) {
+        int n = docsByPath.size();
+        return Math.log(1 + (n - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static double bm25(int frequency, int length, double averageLength, double idf) {
+        return idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+    }
+
+    private static double recencyFactor(Doc doc, long now) {
+        if (doc.modified <= 0) {
+            return 1.0;
+        }
+        double ageDays = Math.max(0, now - doc.modified) / (double) Duration.ofDays(1).toMillis();
+        return 1.0 + RECENCY_BOOST * Math.exp(-ageDays / RECENCY_DAYS);
+    }
+
+    private double popularityFactor(Doc doc) {
+        return 1.0 + BACKLINK_BOOST * Math.log1p(backlinkCounts.applyAsInt(doc.title));
+    }
+
+    /**
+     * Фрагмент текста вокруг места, где рядом встречается больше всего слов запроса
+     */
+    private SearchResult snippet(int id, List<String> terms, double score) {
+        Doc doc = docs.get(id);
+
+        List<int[]> hits = new ArrayList<>();
+        for (String term : terms) {
+            int[] offsets = postings.get(term).get(id);
+            for (int offset : offsets) {
+                hits.add(new int[]{offset, offset + term.length(), terms.indexOf(term)});
+            }
+        }
+        if (hits.isEmpty()) {
+            return new SearchResult(doc.path, doc.title, "Название содержит поисковый запрос", 0,
+                    score, new int[0]);
+        }
+        hits.sort(Comparator.comparingInt(hit -> hit[0]));
+
+        // Окно длиной SNIPPET_LENGTH с наибольшим числом разных слов запроса
+        int bestStart = hits.get(0)[0];
+        int bestDistinct = 0;
+        for (int i = 0; i < hits.size(); i++) {
+            Set<Integer> distinct = new HashSet<>();
+            for (int j = i; j < hits.size() && hits.get(j)[1] - hits.get(i)[0] <= SNIPPET_LENGTH; j++) {
+                distinct.add(hits.get(j)[2]);
+            }
+            if (distinct.size() > bestDistinct) {
+                bestDistinct = distinct.size();
+                bestStart = hits.get(i)[0];
+            }
+        }
+
+        int start = Math.max(0, bestStart - SNIPPET_CONTEXT);
+        while (start > 0 && start < bestStart && Character.isLetterOrDigit(doc.text.charAt(start - 1))) {
+            start++;
+        }
+        int end = Math.min(doc.text.length(), start + SNIPPET_LENGTH);
+
+        String prefix = start > 0 ? "..." : "";
+        String suffix = end < doc.text.length() ? "..." : "";
+        String fragment = prefix + doc.text.substring(start, end).replace('\n', ' ').replace('\r', ' ') + suffix;
+
+        List<Integer> highlights = new ArrayList<>();
+        for (int[] hit : hits) {
+            if (hit[0] >= start && hit[1] <= end) {
+                highlights.add(hit[0] - start + prefix.length());
+                highlights.add(hit[1] - start + prefix.length());
+            }
+        }
+
+        int lineNumber = doc.lineOffset + 1;
+        for (int i = 0; i < bestStart; i++) {
+            if (doc.text.charAt(i) == '\n') {
+                lineNumber++;
+            }
+        }
+
+        return new SearchResult(doc.path, doc.title, fragment, lineNumber, score,
+                highlights.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private void removeDoc(Path path) {
+        Integer id = docsByPath.remove(path);
+        if (id == null) {
+            return;
+        }
+
+        Doc doc = docs.get(id);
+        for (String term : doc.terms) {
+            Map<Integer, int[]> termPostings = postings.get(term);
+            termPostings.remove(id);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= doc.length;
+        docs.set(id, null);
+        freeIds.push(id);
+    }
+
+    /**
+     * Слова текста с позициями: последовательности букв и цифр
+     * в нижнем регистре, ё = е
+     */
+    private static List<Token> tokenize(String text) {
+        String normalized = TrigramIndex.normalize(text);
+        List<Token> tokens = new ArrayList<>();
+
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(new Token(normalized.substring(start, i), start));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Сколько строк файла занимает frontmatter
+     */
+    private static int bodyLineOffset(Note note) {
+        if (note.getBodyLineOffset() > 0) {
+            return note.getBodyLineOffset();
+        }
+        // Заметка не из файла (только что сохранена). Формат NoteParser.saveNote: ---, поля, ---, пустая строка
+        Map<String, Object> frontmatter = note.getFrontmatter();
+        return frontmatter == null || frontmatter.isEmpty() ? 0 : frontmatter.size() + 3;
+    }
+}
@@ -9,8 +9,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 /**
@@ -86,7 +88,15 @@ public class LinkIndexManager {
             data.put("outgoing", outgoingLinksIndex);
             
             String json = gson.toJson(data);
-            Files.writeString(indexFile, json);
+            // Через временный файл: прерванная запись не портит индекс
+            Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+            Files.writeString(temp, json);
+            try {
+                Files.move(temp, indexFile,
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
             logger.debug("Индекс связей сохранен");
         } catch (IOException e) {
             logger.error("Ошибка при сохранении индекса", e);
@@ -109,15 +119,42 @@ public class LinkIndexManager {
     /**
      * Обновить индекс для конкретной заметки
      */
-    public void updateNoteLinks(Note note) {
+    public synchronized void updateNoteLinks(Note note) {
+        if (applyNoteLinks(note)) {
+            saveIndex();
+            logger.debug("Обновлены связи для заметки: {}", note.getTitle());
+        }
+    }
+
+    /**
+     * Обновить связи заметки в памяти
+     *
+     * @return true, если индекс изменился
+     */
+    private boolean applyNoteLinks(Note note) {
         String noteTitle = note.getTitle();
 
         if (noteTitle == null || noteTitle.isBlank()) {
             logger.warn("Пропущено обновление индекса: пустой заголовок");
-            return;
+            return false;
+        }
+
+        Set<String> newOutgoingLinks = new HashSet<>();
+        for (String link : note.getOutgoingLinks()) {
+            if (link != null && !link.isBlank()) {
+                newOutgoingLinks.add(link);
+            }
+        }
+
+        Set<String> oldOutgoingLinks = outgoingLinksIndex.get(noteTitle);
+        if (newOutgoingLinks.equals(oldOutgoingLinks)) {
+            // Связи не изменились — индекс не переписываем
+            return false;
+        }
+        if (oldOutgoingLinks == null) {
+            oldOutgoingLinks = new HashSet<>();
         }
 
-        Set<String> oldOutgoingLinks = outgoingLinksIndex.getOrDefault(noteTitle, new HashSet<>());
         for (String targetTitle : oldOutgoingLinks) {
             if (targetTitle == null || targetTitle.isBlank()) continue;
 
@@ -130,13 +167,6 @@ public class LinkIndexManager {
             }
         }
 
-        Set<String> newOutgoingLinks = new HashSet<>();
-        for (String link : note.getOutgoingLinks()) {
-            if (link != null && !link.isBlank()) {
-                newOutgoingLinks.add(link);
-            }
-        }
-
         outgoingLinksIndex.put(noteTitle, newOutgoingLinks);
 
         for (String targetTitle : newOutgoingLinks) {
@@ -145,18 +175,46 @@ public class LinkIndexManager {
             backlinksIndex.put(targetTitle, backlinks);
         }
 
-        saveIndex();
-        logger.debug("Обновлены связи для заметки: {}", noteTitle);
+        return true;
     }
     
     /**
      * Удалить заметку из индекса
      */
-    public void removeNote(String noteTitle) {
+    public synchronized void removeNote(String noteTitle) {
+        if (removeNoteLinks(noteTitle)) {
+            saveIndex();
+            logger.debug("Удалены связи для заметки: {}", noteTitle);
+        }
+    }
+
+    /**
+     * Применить изменения нескольких заметок разом: индекс записывается один раз
+     *
+     * @param removedTitles удалённые заметки
+     * @param updatedNotes  заметки с изменёнными связями
+     */
+    public synchronized void commitBatch(Collection<String> removedTitles, Collection<Note> updatedNotes) {
+        boolean changed = false;
+        for (String title : removedTitles) {
+            changed |= removeNoteLinks(title);
+        }
+        for (Note note : updatedNotes) {
+            changed |= applyNoteLinks(note);
+        }
+
+        if (changed) {
+            saveIndex();
+            logger.debug("Пакетное обновление связей: удалено {}, обновлено {}",
+                    removedTitles.size(), updatedNotes.size());
+        }
+    }
+
+    private boolean removeNoteLinks(String noteTitle) {
 
         if (noteTitle == null || noteTitle.isBlank()) {
             logger.warn("Пропущено удаление из индекса: пустой заголовок");
-            return;
+            return false;
         }
 
         Set<String> outgoingLinks = outgoingLinksIndex.getOrDefault(noteTitle, new HashSet<>());
@@ -172,15 +230,13 @@ public class LinkIndexManager {
             }
         }
 
-        outgoingLinksIndex.remove(noteTitle);
-        backlinksIndex.remove(noteTitle);
-
-        saveIndex();
-        logger.debug("Удалены связи для заметки: {}", noteTitle);
+        boolean removed = outgoingLinksIndex.remove(noteTitle) != null;
+        removed |= backlinksIndex.remove(noteTitle) != null;
+        return removed || !outgoingLinks.isEmpty();
     }
 
 
-    public Map<String, Set<String>> getGraph() {
+    public synchronized Map<String, Set<String>> getGraph() {
         Map<String, Set<String>> copy = new HashMap<>();
         for (Map.Entry<String, Set<String>> entry : outgoingLinksIndex.entrySet()) {
             copy.put(entry.getKey(), new HashSet<>(entry.getValue()));
@@ -188,7 +244,23 @@ public class LinkIndexManager {
         return copy;
     }
 
-    public void renameNote(String oldTitle, String newTitle) {
+    /**
+     * Названия заметок, которые ссылаются на указанную
+     */
+    public synchronized Set<String> getBacklinks(String noteTitle) {
+        Set<String> backlinks = backlinksIndex.get(noteTitle);
+        return backlinks != null ? new HashSet<>(backlinks) : new HashSet<>();
+    }
+
+    /**
+     * Сколько заметок ссылается на указанную (без копирования множества)
+     */
+    public synchronized int getBacklinkCount(String noteTitle) {
+        Set<String> backlinks = backlinksIndex.get(noteTitle);
+        return backlinks != null ? backlinks.size() : 0;
+    }
+
+    public synchronized void renameNote(String oldTitle, String newTitle) {
         if (oldTitle.equals(newTitle)) return;
 
         Set<String> outgoing = outgoingLinksIndex.remove(oldTitle);
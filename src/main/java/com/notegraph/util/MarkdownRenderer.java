@@ -3,81 +3,249 @@ package com.notegraph.util;
 import com.notegraph.ui.FontManager;
 import com.notegraph.ui.Theme;
 import com.notegraph.ui.ThemeManager;
+import com.notegraph.util.markdown.NoteMarkdownExtension;
 
+import org.commonmark.Extension;
 import org.commonmark.node.Node;
 import org.commonmark.parser.Parser;
 import org.commonmark.renderer.html.HtmlRenderer;
 import org.commonmark.ext.gfm.tables.TablesExtension;
 import org.commonmark.ext.autolink.AutolinkExtension;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class MarkdownRenderer {
 
+    private static MarkdownRenderer instance;
+
     private final ThemeManager themeManager = ThemeManager.getInstance();
 
+    private static final int BLOCK_CACHE_SIZE = 4096;
+
+    private static final Pattern TAG_ONLY_LINE = Pattern.compile("(?m)^\\s*#([\\p{L}\\p{N}_-]+(?:/[\\p{L}\\p{N}_-]+)*)\\s*$");
+
+    private static final Pattern LIST_ITEM = Pattern.compile("([-*+]|\\d+[.)])\\s");
+
+    /** Определение ссылки: {@code [метка]: адрес}. */
+    private static final Pattern LINK_DEFINITION = Pattern.compile(" {0,3}\\[[^\\]]+]:\\s*\\S.*");
+
+    /** Ограда блока кода: три и более ` или ~. */
+    private static final Pattern FENCE = Pattern.compile("[ \\t]*(`{3,}|~{3,})");
+
+    private static final List<Extension> EXTENSIONS = List.of(
+            NoteMarkdownExtension.create(),
+            TablesExtension.create(),
+            AutolinkExtension.create()
+    );
+
     private final Parser parser = Parser.builder()
-            .extensions(List.of(
-                    TablesExtension.create(),
-                    AutolinkExtension.create()
-            ))
+            .extensions(EXTENSIONS)
             .build();
 
     private final HtmlRenderer renderer = HtmlRenderer.builder()
+            .extensions(EXTENSIONS)
             .escapeHtml(false)
             .build();
 
+    /** Кэш HTML по исходному тексту блока (LRU). */
+    private final Map<String, String> blockCache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > BLOCK_CACHE_SIZE;
+        }
+    };
+
+    private MarkdownRenderer() {
+    }
+
+    public static synchronized MarkdownRenderer getInstance() {
+        if (instance == null) {
+            instance = new MarkdownRenderer();
+        }
+        return instance;
+    }
+
+    /**
+     * Рендеринг markdown в HTML-страницу.
+     * Wiki-ссылки, теги и задачи разбираются самим парсером (см. {@link NoteMarkdownExtension}).
+     */
     public String renderToHtml(String markdown) {
         if (markdown == null || markdown.isBlank()) {
             return wrapInHtmlTemplate("");
         }
 
-        markdown = processWikiLinks(markdown);
+        return renderPage(splitBlocks(markdown));
+    }
 
-        Node document = parser.parse(markdown);
-        String html = renderer.render(document);
+    /**
+     * Исходный markdown для превью: заголовок заметки + тело без строк, состоящих только из тегов.
+     */
+    public String preparePreviewSource(String title, String markdown) {
+        String markdownWithoutTags = TAG_ONLY_LINE.matcher(markdown).replaceAll("");
+        return "# " + title + "\n\n" + markdownWithoutTags;
+    }
 
-        html = processTaskLists(html);
-        html = processTags(html);
+    /**
+     * Разбить markdown на блоки верхнего уровня.
+     * Блоки разделяются пустыми строками; огороженный код, продолжения с отступом
+     * и пункты одного списка остаются в одном блоке.
+     * <p>
+     * Блок рендерится отдельно от остального текста, поэтому определения ссылок
+     * ({@code [x]: url}) всего документа дописываются в конец каждого блока, где
+     * может встретиться ссылка. В HTML определения не выводятся, а при их изменении
+     * меняется текст блоков, и превью их перерисовывает.
+     */
+    public List<String> splitBlocks(String markdown) {
+        List<String> blocks = new ArrayList<>();
+        if (markdown == null || markdown.isEmpty()) {
+            return blocks;
+        }
+
+        StringBuilder current = new StringBuilder();
+        StringBuilder definitions = new StringBuilder();
+        boolean currentIsList = false;
+        boolean blankSeen = false;
+        String fence = null;
+
+        int lineStart = 0;
+        int length = markdown.length();
+
+        while (lineStart < length) {
+            int lineEnd = markdown.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = length;
+            }
+            String line = markdown.substring(lineStart, lineEnd);
+            lineStart = lineEnd + 1;
+
+            if (fence != null) {
+                current.append(line).append('\n');
+                if (closesFence(line, fence)) {
+                    fence = null;
+                }
+                continue;
+            }
+
+            if (line.isBlank()) {
+                blankSeen = current.length() > 0;
+                continue;
+            }
+
+            boolean indented = line.charAt(0) == ' ' || line.charAt(0) == '\t';
+            boolean listItem = LIST_ITEM.matcher(line).lookingAt();
+
+            if (blankSeen) {
+                if (indented || (listItem && currentIsList)) {
+                    current.append('\n');
+                } else {
+                    blocks.add(current.toString());
+                    current.setLength(0);
+                }
+                blankSeen = false;
+            }
+
+            if (current.length() == 0) {
+                currentIsList = listItem;
+            }
+            current.append(line).append('\n');
+
+            Matcher opening = FENCE.matcher(line);
+            if (opening.lookingAt()) {
+                fence = opening.group(1);
+            } else if (LINK_DEFINITION.matcher(line).matches()) {
+                definitions.append(line).append('\n');
+            }
+        }
+
+        if (current.length() > 0) {
+            blocks.add(current.toString());
+        }
 
-        return wrapInHtmlTemplate(html);
+        if (definitions.length() > 0) {
+            // Последний блок может остаться внутри незакрытой ограды —
+            // определения в нём стали бы текстом кода
+            int last = fence != null ? blocks.size() - 1 : blocks.size();
+            for (int i = 0; i < last; i++) {
+                String block = blocks.get(i);
+                if (block.indexOf(']') >= 0) {
+                    blocks.set(i, block + "\n" + definitions);
+                }
+            }
+        }
+
+        return blocks;
     }
 
     /**
-     * Преобразует #тег в кликабельную ссылку.
-     * Срабатывает только если # стоит в начале строки/после пробела
-     * и не внутри HTML-тега или атрибута (после рендера commonmark текст внутри тегов остаётся как есть,
-     * поэтому достаточно требовать "не цифра перед #" и "слово после #").
+     * Закрывает ли строка ограду: тот же символ, не короче открывающей
+     * и без текста после неё
      */
-    private String processTags(String html) {
-        return html.replaceAll(
-                "(?<![\\w&])#([A-Za-zА-Яа-яЁё0-9_-]+)",
-                "<a href='#' onclick=\"window.javaApp.openTag('$1'); return false;\" class=\"tag\">#$1</a>"
-        );
+    private static boolean closesFence(String line, String fence) {
+        Matcher closing = FENCE.matcher(line);
+        if (!closing.lookingAt()) {
+            return false;
+        }
+        String run = closing.group(1);
+        return run.charAt(0) == fence.charAt(0)
+                && run.length() >= fence.length()
+                && line.substring(closing.end()).isBlank();
     }
 
-    private String processWikiLinks(String text) {
-        text = text.replaceAll(
-                "\\[\\[([^\\]|]+)\\|([^\\]]+)\\]\\]",
-                "<a href='#' onclick=\"window.javaApp.openNote('$1'); return false;\" class=\"wiki-link\">$2</a>"
-        );
+    /**
+     * HTML одного блока. Результат кэшируется по исходному тексту блока.
+     */
+    public String renderBlock(String block) {
+        synchronized (blockCache) {
+            String cached = blockCache.get(block);
+            if (cached != null) {
+                return cached;
+            }
+        }
 
-        text = text.replaceAll(
-                "\\[\\[([^\\]]+)\\]\\]",
-                "<a href='#' onclick=\"window.javaApp.openNote('$1'); return false;\" class=\"wiki-link\">$1</a>"
-        );
+        String html = renderer.render(parser.parse(block));
+
+        synchronized (blockCache) {
+            blockCache.put(block, html);
+        }
+        return html;
+    }
+
+    /**
+     * Заранее отрендерить блоки превью заметки в кэш (вызывается из фоновых потоков)
+     */
+    public void prerender(String title, String markdown) {
+        for (String block : splitBlocks(preparePreviewSource(title, markdown))) {
+            renderBlock(block);
+        }
+    }
 
-        return text;
+    /**
+     * Полная HTML-страница из блоков. Каждый блок оборачивается в отдельный div,
+     * чтобы потом его можно было заменить через {@code ngPatch}.
+     */
+    public String renderPage(List<String> blocks) {
+        StringBuilder content = new StringBuilder();
+        for (String block : blocks) {
+            content.append("<div class=\"ng-block\">")
+                    .append(renderBlock(block))
+                    .append("</div>\n");
+        }
+        return wrapInHtmlTemplate(content.toString());
     }
 
-    private String processTaskLists(String html) {
-        return html
-                .replaceAll("<li>\\[x\\] (.+?)</li>",
-                        "<li><input type='checkbox' checked disabled> $1</li>")
-                .replaceAll("<li>\\[X\\] (.+?)</li>",
-                        "<li><input type='checkbox' checked disabled> $1</li>")
-                .replaceAll("<li>\\[ \\] (.+?)</li>",
-                        "<li><input type='checkbox' disabled> $1</li>");
+    /**
+     * Ключ оформления страницы: при его изменении превью нужно перезагрузить целиком.
+     */
+    public String templateKey() {
+        FontManager fontManager = FontManager.getInstance();
+        return themeManager.getCurrentTheme() + "|"
+                + fontManager.getCurrentFontFamily() + "|"
+                + fontManager.getCurrentFontSize();
     }
 
     private String wrapInHtmlTemplate(String content) {
@@ -233,7 +401,24 @@ th {
 </style>
 </head>
 <body>
+<div id="ng-content">
 ${CONTENT}
+</div>
+<script>
+function ngPatch(start, removeCount, blocks) {
+    var root = document.getElementById('ng-content');
+    for (var i = 0; i < removeCount && root.children[start]; i++) {
+        root.removeChild(root.children[start]);
+    }
+    var ref = root.children[start] || null;
+    for (var j = 0; j < blocks.length; j++) {
+        var div = document.createElement('div');
+        div.className = 'ng-block';
+        div.innerHTML = blocks[j];
+        root.insertBefore(div, ref);
+    }
+}
+</script>
 </body>
 </html>
 """;
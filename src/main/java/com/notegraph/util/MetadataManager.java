@@ -8,12 +8,24 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Менеджер для хранения метаданных (закладки, настройки, preferences) в .notegraph/metadata.json
+ * <p>
+ * Данные хранятся в памяти в готовом к использованию виде: закладки — в множестве,
+ * недавние заметки — в ограниченной очереди. Изменения записываются на диск
+ * не сразу, а одной записью в фоне через {@link #SAVE_DELAY_MS};
+ * {@link #flush()} записывает их немедленно (при закрытии приложения).
  */
 public class MetadataManager {
     private static final Logger logger = LoggerFactory.getLogger(MetadataManager.class);
@@ -21,16 +33,38 @@ public class MetadataManager {
 
     private final Path metadataFile;
     private final Gson gson;
-    private Map<String, Object> metadata;
+
+    /** Ключи metadata.json, о которых менеджер не знает, — сохраняются как есть. */
+    private final Map<String, Object> other = new LinkedHashMap<>();
+
+    private final Set<String> bookmarks = new LinkedHashSet<>();
+    private final Deque<String> recentNotes = new ArrayDeque<>();
+    private final Map<String, Object> settings = new LinkedHashMap<>();
+    private final Map<String, String> preferences = new LinkedHashMap<>();
+    private final Map<String, Integer> openCounts = new HashMap<>();
+
+    private final ScheduledExecutorService saveExecutor;
+    private ScheduledFuture<?> pendingSave;
+    private boolean dirty;
+    private final Object writeLock = new Object();
 
     private static final String KEY_BOOKMARKS = "bookmarks";
     private static final String KEY_SETTINGS = "settings";
     private static final String KEY_RECENT_NOTES = "recent_notes";
     private static final String KEY_PREFERENCES = "preferences";
+    private static final String KEY_OPEN_COUNTS = "open_counts";
+
+    private static final int MAX_RECENT_NOTES = 20;
+    private static final long SAVE_DELAY_MS = 500;
 
     private MetadataManager() {
         this.metadataFile = FileSystemManager.getInstance().getMetadataFile();
         this.gson = new GsonBuilder().setPrettyPrinting().create();
+        this.saveExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metadata-save-thread");
+            t.setDaemon(true);
+            return t;
+        });
         loadMetadata();
     }
 
@@ -49,69 +83,148 @@ public class MetadataManager {
             if (Files.exists(metadataFile)) {
                 String json = Files.readString(metadataFile);
                 Type type = new TypeToken<Map<String, Object>>(){}.getType();
-                metadata = gson.fromJson(json, type);
+                Map<String, Object> metadata = gson.fromJson(json, type);
 
-                if (metadata == null) {
-                    metadata = new HashMap<>();
+                if (metadata != null) {
+                    readMetadata(metadata);
                 }
             } else {
-                metadata = new HashMap<>();
-                initializeDefaultMetadata();
+                scheduleSave();
             }
 
             logger.debug("Метаданные загружены");
-        } catch (IOException e) {
+        } catch (Exception e) {
             logger.error("Ошибка при загрузке метаданных", e);
-            metadata = new HashMap<>();
-            initializeDefaultMetadata();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readMetadata(Map<String, Object> metadata) {
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            Object value = entry.getValue();
+
+            switch (entry.getKey()) {
+                case KEY_BOOKMARKS -> {
+                    if (value instanceof List<?> list) {
+                        list.forEach(item -> bookmarks.add(String.valueOf(item)));
+                    }
+                }
+                case KEY_RECENT_NOTES -> {
+                    if (value instanceof List<?> list) {
+                        list.stream()
+                                .limit(MAX_RECENT_NOTES)
+                                .forEach(item -> recentNotes.addLast(String.valueOf(item)));
+                    }
+                }
+                case KEY_SETTINGS -> {
+                    if (value instanceof Map<?, ?> map) {
+                        settings.putAll((Map<String, Object>) map);
+                    }
+                }
+                case KEY_PREFERENCES -> {
+                    if (value instanceof Map<?, ?> map) {
+                        map.forEach((k, v) -> preferences.put(String.valueOf(k), String.valueOf(v)));
+                    }
+                }
+                case KEY_OPEN_COUNTS -> {
+                    if (value instanceof Map<?, ?> map) {
+                        map.forEach((k, v) -> {
+                            if (v instanceof Number count) {
+                                openCounts.put(String.valueOf(k), count.intValue());
+                            }
+                        });
+                    }
+                }
+                default -> other.put(entry.getKey(), value);
+            }
         }
     }
 
     /**
-     * Сохранить метаданные в файл
+     * Снимок всех метаданных для записи в файл
      */
-    private void saveMetadata() {
-        try {
-            String json = gson.toJson(metadata);
-            Files.writeString(metadataFile, json);
-            logger.debug("Метаданные сохранены");
-        } catch (IOException e) {
-            logger.error("Ошибка при сохранении метаданных", e);
+    private Map<String, Object> snapshot() {
+        Map<String, Object> metadata = new LinkedHashMap<>(other);
+        metadata.put(KEY_BOOKMARKS, new ArrayList<>(bookmarks));
+        metadata.put(KEY_SETTINGS, new LinkedHashMap<>(settings));
+        metadata.put(KEY_RECENT_NOTES, new ArrayList<>(recentNotes));
+        metadata.put(KEY_PREFERENCES, new LinkedHashMap<>(preferences));
+        metadata.put(KEY_OPEN_COUNTS, new TreeMap<>(openCounts));
+        return metadata;
+    }
+
+    /**
+     * Запланировать запись. Несколько изменений подряд записываются один раз.
+     */
+    private synchronized void scheduleSave() {
+        dirty = true;
+        if (pendingSave != null) {
+            return;
         }
+        pendingSave = saveExecutor.schedule(this::saveMetadata, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Инициализация метаданных по умолчанию
+     * Записать несохранённые изменения немедленно
      */
-    private void initializeDefaultMetadata() {
-        metadata.put(KEY_BOOKMARKS, new ArrayList<String>());
-        metadata.put(KEY_SETTINGS, new HashMap<String, Object>());
-        metadata.put(KEY_RECENT_NOTES, new ArrayList<String>());
-        metadata.put(KEY_PREFERENCES, new HashMap<String, String>());
+    public void flush() {
+        synchronized (this) {
+            if (pendingSave != null) {
+                pendingSave.cancel(false);
+            }
+        }
         saveMetadata();
     }
 
     /**
-     * Получить список закладок (пути к файлам относительно vault)
+     * Сохранить метаданные в файл
      */
-    @SuppressWarnings("unchecked")
-    public List<String> getBookmarks() {
-        Object bookmarks = metadata.get(KEY_BOOKMARKS);
-        if (bookmarks instanceof List) {
-            return new ArrayList<>((List<String>) bookmarks);
+    private void saveMetadata() {
+        synchronized (writeLock) {
+            Map<String, Object> metadata;
+            synchronized (this) {
+                // Изменения, сделанные во время записи, запланируют новую запись
+                pendingSave = null;
+                if (!dirty) {
+                    return;
+                }
+                dirty = false;
+                metadata = snapshot();
+            }
+
+            try {
+                String json = gson.toJson(metadata);
+
+                Path temp = metadataFile.resolveSibling(metadataFile.getFileName() + ".tmp");
+                Files.writeString(temp, json);
+                try {
+                    Files.move(temp, metadataFile,
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, metadataFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                logger.debug("Метаданные сохранены");
+            } catch (IOException e) {
+                logger.error("Ошибка при сохранении метаданных", e);
+            }
         }
-        return new ArrayList<>();
+    }
+
+    /**
+     * Получить закладки (пути к файлам относительно vault).
+     * Возвращается копия только для чтения: её можно обходить без блокировки.
+     */
+    public synchronized Set<String> getBookmarks() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(bookmarks));
     }
 
     /**
      * Добавить заметку в закладки
      */
-    public void addBookmark(String relativePath) {
-        List<String> bookmarks = getBookmarks();
-        if (!bookmarks.contains(relativePath)) {
-            bookmarks.add(relativePath);
-            metadata.put(KEY_BOOKMARKS, bookmarks);
-            saveMetadata();
+    public synchronized void addBookmark(String relativePath) {
+        if (bookmarks.add(relativePath)) {
+            scheduleSave();
             logger.info("Добавлена закладка: {}", relativePath);
         }
     }
@@ -119,11 +232,9 @@ public class MetadataManager {
     /**
      * Удалить заметку из закладок
      */
-    public void removeBookmark(String relativePath) {
-        List<String> bookmarks = getBookmarks();
+    public synchronized void removeBookmark(String relativePath) {
         if (bookmarks.remove(relativePath)) {
-            metadata.put(KEY_BOOKMARKS, bookmarks);
-            saveMetadata();
+            scheduleSave();
             logger.info("Удалена закладка: {}", relativePath);
         }
     }
@@ -131,87 +242,177 @@ public class MetadataManager {
     /**
      * Проверить, находится ли заметка в закладках
      */
-    public boolean isBookmarked(String relativePath) {
-        return getBookmarks().contains(relativePath);
+    public synchronized boolean isBookmarked(String relativePath) {
+        return bookmarks.contains(relativePath);
     }
 
     /**
-     * Получить недавние заметки
+     * Получить недавние заметки (последняя открытая — первая)
      */
-    @SuppressWarnings("unchecked")
-    public List<String> getRecentNotes() {
-        Object recent = metadata.get(KEY_RECENT_NOTES);
-        if (recent instanceof List) {
-            return new ArrayList<>((List<String>) recent);
-        }
-        return new ArrayList<>();
+    public synchronized Collection<String> getRecentNotes() {
+        return Collections.unmodifiableList(new ArrayList<>(recentNotes));
     }
 
     /**
      * Добавить заметку в список недавних
      */
-    public void addRecentNote(String relativePath) {
-        List<String> recent = getRecentNotes();
-
-        recent.remove(relativePath);
+    public synchronized void addRecentNote(String relativePath) {
+        if (relativePath.equals(recentNotes.peekFirst())) {
+            return;
+        }
 
-        recent.add(0, relativePath);
+        recentNotes.remove(relativePath);
+        recentNotes.addFirst(relativePath);
 
-        if (recent.size() > 20) {
-            recent = recent.subList(0, 20);
+        while (recentNotes.size() > MAX_RECENT_NOTES) {
+            recentNotes.removeLast();
         }
 
-        metadata.put(KEY_RECENT_NOTES, recent);
-        saveMetadata();
+        scheduleSave();
     }
 
     /**
-     * Получить настройки
+     * Заметка открыта: добавить в недавние и увеличить счётчик открытий
      */
-    @SuppressWarnings("unchecked")
-    public Map<String, Object> getSettings() {
-        Object settings = metadata.get(KEY_SETTINGS);
-        if (settings instanceof Map) {
-            return new HashMap<>((Map<String, Object>) settings);
-        }
-        return new HashMap<>();
+    public synchronized void recordOpen(String relativePath) {
+        openCounts.merge(relativePath, 1, Integer::sum);
+        addRecentNote(relativePath);
+        scheduleSave();
     }
 
     /**
-     * Получить все preferences
+     * Файл или папка перемещены: закладки, недавние и счётчики открытий,
+     * относящиеся к ним (и ко всему, что внутри папки), переходят на новый путь
+     *
+     * @param from старый путь относительно vault
+     * @param to   новый путь относительно vault
      */
-    @SuppressWarnings("unchecked")
-    private Map<String, String> getPreferences() {
-        Object prefs = metadata.get(KEY_PREFERENCES);
-        if (prefs instanceof Map) {
-            return new HashMap<>((Map<String, String>) prefs);
+    public synchronized void remapPaths(Path from, Path to) {
+        boolean changed = false;
+
+        List<String> remappedBookmarks = new ArrayList<>(bookmarks.size());
+        for (String bookmark : bookmarks) {
+            String remapped = remap(bookmark, from, to);
+            changed |= !remapped.equals(bookmark);
+            remappedBookmarks.add(remapped);
+        }
+        if (changed) {
+            bookmarks.clear();
+            bookmarks.addAll(remappedBookmarks);
         }
-        return new HashMap<>();
+
+        List<String> remappedRecent = new ArrayList<>(recentNotes.size());
+        for (String recent : recentNotes) {
+            String remapped = remap(recent, from, to);
+            changed |= !remapped.equals(recent);
+            remappedRecent.add(remapped);
+        }
+        recentNotes.clear();
+        recentNotes.addAll(remappedRecent);
+
+        for (String path : new ArrayList<>(openCounts.keySet())) {
+            String remapped = remap(path, from, to);
+            if (!remapped.equals(path)) {
+                openCounts.merge(remapped, openCounts.remove(path), Integer::sum);
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            scheduleSave();
+            logger.info("Метаданные перенесены: {} -> {}", from, to);
+        }
+    }
+
+    private static String remap(String relativePath, Path from, Path to) {
+        Path path = Paths.get(relativePath);
+        return path.startsWith(from) ? to.resolve(from.relativize(path)).toString() : relativePath;
+    }
+
+    /**
+     * Сколько раз заметка открывалась
+     */
+    public synchronized int getOpenCount(String relativePath) {
+        return openCounts.getOrDefault(relativePath, 0);
+    }
+
+    /**
+     * Получить копию настроек (только для чтения)
+     */
+    public synchronized Map<String, Object> getSettings() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(settings));
     }
 
     /**
      * Получить значение preference
      */
-    public String getPreference(String key, String defaultValue) {
-        Map<String, String> prefs = getPreferences();
-        return prefs.getOrDefault(key, defaultValue);
+    public synchronized String getPreference(String key, String defaultValue) {
+        return preferences.getOrDefault(key, defaultValue);
+    }
+
+    public int getIntPreference(String key, int defaultValue) {
+        String value = getPreference(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return (int) Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public double getDoublePreference(String key, double defaultValue) {
+        String value = getPreference(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public boolean getBooleanPreference(String key, boolean defaultValue) {
+        String value = getPreference(key, null);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
     }
 
     /**
      * Установить значение preference
      */
-    public void setPreference(String key, String value) {
-        Map<String, String> prefs = getPreferences();
-        prefs.put(key, value);
-        metadata.put(KEY_PREFERENCES, prefs);
-        saveMetadata();
+    public synchronized void setPreference(String key, String value) {
+        if (Objects.equals(preferences.put(key, value), value)) {
+            return;
+        }
+        scheduleSave();
         logger.debug("Preference установлен: {} = {}", key, value);
     }
 
+    public void setPreference(String key, int value) {
+        setPreference(key, String.valueOf(value));
+    }
+
+    public void setPreference(String key, double value) {
+        setPreference(key, String.valueOf(value));
+    }
+
+    public void setPreference(String key, boolean value) {
+        setPreference(key, String.valueOf(value));
+    }
+
     /**
      * Получить произвольное значение из метаданных
      */
-    public Object get(String key) {
-        return metadata.get(key);
+    public synchronized Object get(String key) {
+        return switch (key) {
+            case KEY_BOOKMARKS -> getBookmarks();
+            case KEY_RECENT_NOTES -> getRecentNotes();
+            case KEY_SETTINGS -> getSettings();
+            case KEY_PREFERENCES -> Collections.unmodifiableMap(new LinkedHashMap<>(preferences));
+            case KEY_OPEN_COUNTS -> Collections.unmodifiableMap(new HashMap<>(openCounts));
+            default -> other.get(key);
+        };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,321 @@
+package com.notegraph.util;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.notegraph.model.Note;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Временная шкала заметок: даты создания и изменения, упорядоченные по времени.
+ * <p>
+ * Даты берутся из frontmatter, а если их там нет — из атрибутов файла
+ * (NoteParser). Выборки «за период», «последние изменённые» и сортировка по
+ * дате выполняются по индексу, без чтения файлов и их атрибутов.
+ * Индекс сохраняется в .notegraph/timeline.json, поэтому доступен сразу
+ * после запуска, ещё до окончания сканирования vault.
+ */
+public class NoteDateIndex implements VaultIndex {
+    private static final Logger logger = LoggerFactory.getLogger(NoteDateIndex.class);
+    private static NoteDateIndex instance;
+
+    private static final long SAVE_DELAY_MS = 2000;
+
+    public enum Field {
+        CREATED,
+        MODIFIED
+    }
+
+    /** Время (мс) → заметки, отдельно для каждого поля. */
+    private final Map<Field, TreeMap<Long, Set<Path>>> byTime = new EnumMap<>(Field.class);
+    private final Map<Path, long[]> timesByPath = new HashMap<>();
+
+    /** Заметки, встреченные при сканировании; остальные после него удаляются. */
+    private Set<Path> seenDuringScan = new HashSet<>();
+
+    private final Path vaultPath;
+    private final Path timelineFile;
+    private final Gson gson = new Gson();
+
+    private final ScheduledExecutorService saveExecutor;
+    private ScheduledFuture<?> pendingSave;
+    private boolean dirty;
+    private final Object writeLock = new Object();
+
+    private NoteDateIndex() {
+        for (Field field : Field.values()) {
+            byTime.put(field, new TreeMap<>());
+        }
+        this.vaultPath = FileSystemManager.getInstance().getVaultPath();
+        this.timelineFile = FileSystemManager.getInstance().getMetadataPath().resolve("timeline.json");
+        this.saveExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "timeline-save-thread");
+            t.setDaemon(true);
+            return t;
+        });
+        load();
+    }
+
+    public static synchronized NoteDateIndex getInstance() {
+        if (instance == null) {
+            instance = new NoteDateIndex();
+        }
+        return instance;
+    }
+
+    @Override
+    public synchronized void noteIndexed(Note note) {
+        Path path = note.getPath();
+        if (path == null) {
+            return;
+        }
+        if (seenDuringScan != null) {
+            seenDuringScan.add(path);
+        }
+
+        long[] times = new long[Field.values().length];
+        times[Field.CREATED.ordinal()] = epochMillis(note.getCreated());
+        times[Field.MODIFIED.ordinal()] = epochMillis(note.getModified());
+        if (Arrays.equals(times, timesByPath.get(path))) {
+            return;
+        }
+
+        removePath(path);
+        put(path, times);
+        scheduleSave();
+    }
+
+    @Override
+    public synchronized void noteRemoved(Path path) {
+        if (timesByPath.containsKey(path)) {
+            removePath(path);
+            scheduleSave();
+        }
+    }
+
+    @Override
+    public synchronized void notesMoved(Map<Path, Path> moves, Function<Path, Note> reader) {
+        List<long[]> times = new ArrayList<>(moves.size());
+        for (Path oldPath : moves.keySet()) {
+            times.add(timesByPath.get(oldPath));
+            removePath(oldPath);
+        }
+        int i = 0;
+        for (Path newPath : moves.values()) {
+            long[] noteTimes = times.get(i++);
+            if (noteTimes != null) {
+                put(newPath, noteTimes);
+            }
+        }
+        scheduleSave();
+    }
+
+    @Override
+    public synchronized void scanCompleted() {
+        // Записи о заметках, удалённых, пока приложение было закрыто
+        for (Path path : new ArrayList<>(timesByPath.keySet())) {
+            if (!seenDuringScan.contains(path)) {
+                removePath(path);
+                dirty = true;
+            }
+        }
+        seenDuringScan = null;
+        scheduleSave();
+    }
+
+    /**
+     * Заметки, у которых дата попадает в диапазон дней
+     *
+     * @param from первый день (включительно) или null — без ограничения
+     * @param to   последний день (включительно) или null — без ограничения
+     */
+    public synchronized List<Path> find(Field field, LocalDate from, LocalDate to) {
+        List<Path> result = new ArrayList<>();
+        for (Set<Path> paths : range(field, from, to).values()) {
+            result.addAll(paths);
+        }
+        return result;
+    }
+
+    /**
+     * Сколько заметок попадает в диапазон (без построения списка)
+     */
+    public synchronized int count(Field field, LocalDate from, LocalDate to) {
+        int count = 0;
+        for (Set<Path> paths : range(field, from, to).values()) {
+            count += paths.size();
+        }
+        return count;
+    }
+
+    /**
+     * Последние заметки по дате, от новых к старым
+     */
+    public synchronized List<Path> recent(Field field, int limit) {
+        List<Path> result = new ArrayList<>(Math.min(limit, timesByPath.size()));
+        for (Set<Path> paths : byTime.get(field).descendingMap().values()) {
+            for (Path path : paths) {
+                if (result.size() >= limit) {
+                    return result;
+                }
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Число заметок по дням диапазона (для временной шкалы), от новых дней к старым
+     */
+    public synchronized NavigableMap<LocalDate, Integer> countByDay(Field field, LocalDate from, LocalDate to) {
+        TreeMap<LocalDate, Integer> result = new TreeMap<>(Comparator.reverseOrder());
+        for (Map.Entry<Long, Set<Path>> entry : range(field, from, to).entrySet()) {
+            result.merge(toDate(entry.getKey()), entry.getValue().size(), Integer::sum);
+        }
+        return result;
+    }
+
+    /**
+     * Дата заметки из индекса (мс) или null, если заметка ещё не проиндексирована
+     */
+    public synchronized Long getTime(Path path, Field field) {
+        long[] times = timesByPath.get(path);
+        return times != null ? times[field.ordinal()] : null;
+    }
+
+    public synchronized int size() {
+        return timesByPath.size();
+    }
+
+    private SortedMap<Long, Set<Path>> range(Field field, LocalDate from, LocalDate to) {
+        long fromMillis = from != null ? startOfDay(from) : Long.MIN_VALUE;
+        long toMillis = to != null ? startOfDay(to.plusDays(1)) : Long.MAX_VALUE;
+        if (fromMillis >= toMillis) {
+            return Collections.emptySortedMap();
+        }
+        return byTime.get(field).subMap(fromMillis, toMillis);
+    }
+
+    private void put(Path path, long[] times) {
+        timesByPath.put(path, times);
+        for (Field field : Field.values()) {
+            byTime.get(field).computeIfAbsent(times[field.ordinal()], k -> new HashSet<>()).add(path);
+        }
+    }
+
+    private void removePath(Path path) {
+        long[] times = timesByPath.remove(path);
+        if (times == null) {
+            return;
+        }
+        for (Field field : Field.values()) {
+            TreeMap<Long, Set<Path>> index = byTime.get(field);
+            Set<Path> paths = index.get(times[field.ordinal()]);
+            if (paths != null) {
+                paths.remove(path);
+                if (paths.isEmpty()) {
+                    index.remove(times[field.ordinal()]);
+                }
+            }
+        }
+    }
+
+    private static long epochMillis(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+    }
+
+    private static long startOfDay(LocalDate date) {
+        return date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDate toDate(long millis) {
+        return Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private void load() {
+        try {
+            if (!Files.exists(timelineFile)) {
+                return;
+            }
+            Type type = new TypeToken<Map<String, long[]>>() {}.getType();
+            Map<String, long[]> data = gson.fromJson(Files.readString(timelineFile), type);
+            if (data == null) {
+                return;
+            }
+            for (Map.Entry<String, long[]> entry : data.entrySet()) {
+                if (entry.getValue() != null && entry.getValue().length == Field.values().length) {
+                    put(vaultPath.resolve(entry.getKey()), entry.getValue());
+                }
+            }
+            logger.debug("Временная шкала загружена: {} заметок", timesByPath.size());
+        } catch (Exception e) {
+            logger.error("Ошибка загрузки временной шкалы", e);
+        }
+    }
+
+    /**
+     * Запланировать запись; изменения при сканировании и серии сохранений
+     * записываются одним разом
+     */
+    private synchronized void scheduleSave() {
+        dirty = true;
+        if (pendingSave != null) {
+            return;
+        }
+        pendingSave = saveExecutor.schedule(this::save, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Записать несохранённые изменения немедленно
+     */
+    public void flush() {
+        synchronized (this) {
+            if (pendingSave != null) {
+                pendingSave.cancel(false);
+            }
+        }
+        save();
+    }
+
+    private void save() {
+        synchronized (writeLock) {
+            Map<String, long[]> data = new TreeMap<>();
+            synchronized (this) {
+                pendingSave = null;
+                if (!dirty) {
+                    return;
+                }
+                dirty = false;
+                timesByPath.forEach((path, times) -> data.put(vaultPath.relativize(path).toString(), times));
+            }
+
+            try {
+                Files.createDirectories(timelineFile.getParent());
+                Path temp = timelineFile.resolveSibling(timelineFile.getFileName() + ".tmp");
+                Files.writeString(temp, gson.toJson(data));
+                try {
+                    Files.move(temp, timelineFile,
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, timelineFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                logger.error("Ошибка сохранения временной шкалы", e);
+            }
+        }
+    }
+}
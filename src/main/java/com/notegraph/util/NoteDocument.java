@@ -0,0 +1,429 @@
+package com.notegraph.util;
+
+import com.notegraph.model.Note;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Текст заметки, открытой в редакторе, со ссылками, тегами и заголовками.
+ * <p>
+ * Текст хранится таблицей фрагментов (piece table): исходный текст не копируется,
+ * вставленный дописывается в отдельный буфер, а правка меняет только список
+ * фрагментов. Поверх текста ведётся список строк с элементами каждой строки.
+ * При правке заново разбираются только затронутые строки, поэтому стоимость
+ * нажатия клавиши зависит от длины строки, а не от размера заметки.
+ * <p>
+ * В отличие от {@link Note#extractOutgoingLinks()}, ссылка ищется в пределах
+ * одной строки.
+ */
+public class NoteDocument {
+
+    private static final Pattern HEADING_PATTERN = Pattern.compile("(#{1,6})[ \\t]+(.*?)[ \\t#]*");
+
+    /** Когда фрагментов становится больше, текст собирается в один буфер. */
+    private static final int MAX_PIECES = 512;
+
+    public enum ElementType {
+        LINK, TAG, HEADING
+    }
+
+    /**
+     * Ссылка, тег или заголовок и их место в тексте
+     */
+    public static final class Element {
+        public final ElementType type;
+        /** Название заметки, тег без # или текст заголовка. */
+        public final String value;
+        public final int start;
+        public final int length;
+        /** Уровень заголовка; для ссылок и тегов — 0. */
+        public final int level;
+
+        private Element(Token token, int lineStart) {
+            this.type = token.type;
+            this.value = token.value;
+            this.start = lineStart + token.column;
+            this.length = token.length;
+            this.level = token.level;
+        }
+
+        public int getEnd() {
+            return start + length;
+        }
+    }
+
+    /**
+     * Элемент строки; позиция отсчитывается от начала строки,
+     * поэтому правки выше по тексту его не меняют
+     */
+    private static final class Token {
+        final ElementType type;
+        final String value;
+        final int column;
+        final int length;
+        final int level;
+
+        Token(ElementType type, String value, int column, int length, int level) {
+            this.type = type;
+            this.value = value;
+            this.column = column;
+            this.length = length;
+            this.level = level;
+        }
+    }
+
+    /**
+     * Строка: длина вместе с переводом строки и её элементы
+     */
+    private static final class Line {
+        final int length;
+        final List<Token> tokens;
+
+        Line(int length, List<Token> tokens) {
+            this.length = length;
+            this.tokens = tokens;
+        }
+    }
+
+    private static final class Piece {
+        final boolean added;
+        final int start;
+        int length;
+
+        Piece(boolean added, int start, int length) {
+            this.added = added;
+            this.start = start;
+            this.length = length;
+        }
+    }
+
+    private String original;
+    private final StringBuilder added = new StringBuilder();
+    private final List<Piece> pieces = new ArrayList<>();
+    private int length;
+
+    /** Строки документа; последняя — без перевода строки (возможно, пустая). */
+    private final List<Line> lines = new ArrayList<>();
+    /** Последняя найденная строка и её начало: правки обычно идут рядом. */
+    private int cursorLine;
+    private int cursorStart;
+
+    private final Map<String, Integer> linkCounts = new LinkedHashMap<>();
+    private final Map<String, Integer> tagCounts = new HashMap<>();
+
+    public NoteDocument(String text) {
+        original = text != null ? text : "";
+        length = original.length();
+        if (length > 0) {
+            pieces.add(new Piece(false, 0, length));
+        }
+        for (String line : splitLines(original)) {
+            lines.add(addCounts(tokenize(line)));
+        }
+    }
+
+    /**
+     * Заменить текст в [start, end) на text (вставка — при start == end)
+     */
+    public void replace(int start, int end, String text) {
+        if (start < 0 || end < start || end > length) {
+            throw new IndexOutOfBoundsException("[" + start + ", " + end + ") of " + length);
+        }
+        if (text == null) {
+            text = "";
+        }
+        if (start == end && text.isEmpty()) {
+            return;
+        }
+
+        int first = lineIndex(start);
+        int firstStart = cursorStart;
+        int last = lineIndex(end);
+        int lastEnd = cursorStart + lines.get(last).length;
+        boolean lastIsFinal = last == lines.size() - 1;
+
+        String region = substring(firstStart, start) + text + substring(end, lastEnd);
+
+        replacePieces(start, end, text);
+        length += text.length() - (end - start);
+
+        List<String> regionLines = splitLines(region);
+        if (!lastIsFinal) {
+            // Строка last заканчивалась переводом строки, за ним идёт следующая строка
+            regionLines.remove(regionLines.size() - 1);
+        }
+
+        for (int i = first; i <= last; i++) {
+            removeCounts(lines.get(i));
+        }
+        List<Line> replaced = lines.subList(first, last + 1);
+        if (replaced.size() == regionLines.size()) {
+            for (int i = 0; i < regionLines.size(); i++) {
+                replaced.set(i, addCounts(tokenize(regionLines.get(i))));
+            }
+        } else {
+            replaced.clear();
+            List<Line> inserted = new ArrayList<>(regionLines.size());
+            for (String line : regionLines) {
+                inserted.add(addCounts(tokenize(line)));
+            }
+            lines.addAll(first, inserted);
+        }
+
+        cursorLine = first;
+        cursorStart = firstStart;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public char charAt(int offset) {
+        if (offset < 0 || offset >= length) {
+            throw new IndexOutOfBoundsException(offset + " of " + length);
+        }
+        int pos = 0;
+        for (Piece piece : pieces) {
+            if (offset < pos + piece.length) {
+                return buffer(piece).charAt(piece.start + offset - pos);
+            }
+            pos += piece.length;
+        }
+        throw new IllegalStateException();
+    }
+
+    public String substring(int from, int to) {
+        if (from < 0 || to < from || to > length) {
+            throw new IndexOutOfBoundsException("[" + from + ", " + to + ") of " + length);
+        }
+        StringBuilder sb = new StringBuilder(to - from);
+        int pos = 0;
+        for (Piece piece : pieces) {
+            int pieceEnd = pos + piece.length;
+            if (pieceEnd > from) {
+                int begin = Math.max(from, pos) - pos;
+                int end = Math.min(to, pieceEnd) - pos;
+                sb.append(buffer(piece), piece.start + begin, piece.start + end);
+            }
+            if (pieceEnd >= to) {
+                break;
+            }
+            pos = pieceEnd;
+        }
+        return sb.toString();
+    }
+
+    public String getText() {
+        return substring(0, length);
+    }
+
+    public int getLineCount() {
+        return lines.size();
+    }
+
+    /**
+     * Начало строки, в которой находится offset
+     */
+    public int lineStart(int offset) {
+        lineIndex(offset);
+        return cursorStart;
+    }
+
+    /**
+     * Конец строки, в которой находится offset (без перевода строки)
+     */
+    public int lineEnd(int offset) {
+        int line = lineIndex(offset);
+        int end = cursorStart + lines.get(line).length;
+        return line < lines.size() - 1 ? end - 1 : end;
+    }
+
+    /**
+     * Названия заметок, на которые есть ссылки, без повторов
+     */
+    public List<String> getLinks() {
+        return new ArrayList<>(linkCounts.keySet());
+    }
+
+    /**
+     * Теги без #
+     */
+    public Set<String> getTags() {
+        return new HashSet<>(tagCounts.keySet());
+    }
+
+    /**
+     * Все элементы по порядку в тексте. Обходит все строки —
+     * для оглавления и подобного, не для вызова на каждое нажатие.
+     */
+    public List<Element> getElements() {
+        return collect(null);
+    }
+
+    public List<Element> getHeadings() {
+        return collect(ElementType.HEADING);
+    }
+
+    private List<Element> collect(ElementType type) {
+        List<Element> elements = new ArrayList<>();
+        int lineStart = 0;
+        for (Line line : lines) {
+            for (Token token : line.tokens) {
+                if (type == null || token.type == type) {
+                    elements.add(new Element(token, lineStart));
+                }
+            }
+            lineStart += line.length;
+        }
+        return elements;
+    }
+
+    /**
+     * Номер строки, в которой находится offset; cursorStart — её начало
+     */
+    private int lineIndex(int offset) {
+        while (cursorLine > 0 && offset < cursorStart) {
+            cursorLine--;
+            cursorStart -= lines.get(cursorLine).length;
+        }
+        while (cursorLine < lines.size() - 1 && offset >= cursorStart + lines.get(cursorLine).length) {
+            cursorStart += lines.get(cursorLine).length;
+            cursorLine++;
+        }
+        return cursorLine;
+    }
+
+    private void replacePieces(int start, int end, String text) {
+        int from = splitPiece(start);
+        int to = splitPiece(end);
+        pieces.subList(from, to).clear();
+
+        if (!text.isEmpty()) {
+            Piece previous = from > 0 ? pieces.get(from - 1) : null;
+            if (previous != null && previous.added && previous.start + previous.length == added.length()) {
+                // Набор подряд продолжает предыдущую вставку
+                previous.length += text.length();
+            } else {
+                pieces.add(from, new Piece(true, added.length(), text.length()));
+            }
+            added.append(text);
+        }
+
+        if (pieces.size() > MAX_PIECES) {
+            original = getText();
+            added.setLength(0);
+            pieces.clear();
+            if (length > 0) {
+                pieces.add(new Piece(false, 0, length));
+            }
+        }
+    }
+
+    /**
+     * Разрезать фрагмент так, чтобы offset был началом фрагмента
+     *
+     * @return номер фрагмента, начинающегося с offset
+     */
+    private int splitPiece(int offset) {
+        int pos = 0;
+        for (int i = 0; i < pieces.size(); i++) {
+            Piece piece = pieces.get(i);
+            if (offset == pos) {
+                return i;
+            }
+            if (offset < pos + piece.length) {
+                int head = offset - pos;
+                pieces.add(i + 1, new Piece(piece.added, piece.start + head, piece.length - head));
+                piece.length = head;
+                return i + 1;
+            }
+            pos += piece.length;
+        }
+        return pieces.size();
+    }
+
+    private CharSequence buffer(Piece piece) {
+        return piece.added ? added : original;
+    }
+
+    private Line addCounts(Line line) {
+        for (Token token : line.tokens) {
+            if (token.type == ElementType.LINK) {
+                linkCounts.merge(token.value, 1, Integer::sum);
+            } else if (token.type == ElementType.TAG) {
+                tagCounts.merge(token.value, 1, Integer::sum);
+            }
+        }
+        return line;
+    }
+
+    private void removeCounts(Line line) {
+        for (Token token : line.tokens) {
+            if (token.type == ElementType.LINK) {
+                decrement(linkCounts, token.value);
+            } else if (token.type == ElementType.TAG) {
+                decrement(tagCounts, token.value);
+            }
+        }
+    }
+
+    private static void decrement(Map<String, Integer> counts, String key) {
+        counts.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * Разбор одной строки (с переводом строки в конце или без)
+     */
+    private static Line tokenize(String line) {
+        int end = line.length();
+        if (end > 0 && line.charAt(end - 1) == '\n') {
+            end--;
+        }
+        if (end > 0 && line.charAt(end - 1) == '\r') {
+            end--;
+        }
+        String text = line.substring(0, end);
+
+        List<Token> tokens = new ArrayList<>(0);
+
+        Matcher heading = HEADING_PATTERN.matcher(text);
+        if (heading.matches() && heading.end(2) > heading.start(2)) {
+            tokens.add(new Token(ElementType.HEADING, heading.group(2), heading.start(2),
+                    heading.end(2) - heading.start(2), heading.group(1).length()));
+        }
+
+        Matcher tag = Note.TAG_PATTERN.matcher(text);
+        while (tag.find()) {
+            tokens.add(new Token(ElementType.TAG, tag.group(1), tag.start(), tag.end() - tag.start(), 0));
+        }
+
+        Matcher link = Note.LINK_PATTERN.matcher(text);
+        while (link.find()) {
+            tokens.add(new Token(ElementType.LINK, Note.linkTarget(link.group(1)),
+                    link.start(), link.end() - link.start(), 0));
+        }
+
+        if (tokens.size() > 1) {
+            tokens.sort(Comparator.comparingInt(token -> token.column));
+        }
+        return new Line(line.length(), tokens.isEmpty() ? List.of() : tokens);
+    }
+
+    /**
+     * Строки вместе с переводами строк; после последнего перевода строки
+     * всегда есть ещё одна строка (возможно, пустая)
+     */
+    private static List<String> splitLines(String text) {
+        List<String> result = new ArrayList<>();
+        int start = 0;
+        int newline;
+        while ((newline = text.indexOf('\n', start)) >= 0) {
+            result.add(text.substring(start, newline + 1));
+            start = newline + 1;
+        }
+        result.add(text.substring(start));
+        return result;
+    }
+}
@@ -0,0 +1,640 @@
+package com.notegraph.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Локальная история версий заметок в .notegraph/history.
+ * <p>
+ * Версия — текст заметки без frontmatter. Версии хранятся по хешу содержимого
+ * (objects/ab/cdef…), поэтому одинаковый текст хранится один раз. Очередная
+ * версия записывается как разница с предыдущей: куски строк, скопированные
+ * из предыдущей версии, и вставленный текст; объекты сжимаются deflate.
+ * Длина цепочки разниц ограничена, поэтому восстановление любой версии —
+ * несколько небольших чтений.
+ * <p>
+ * Для каждой заметки ведётся журнал версий (logs/ab/cdef….log, по хешу пути):
+ * время, хеш, источник. Старые версии прореживаются: за последний час хранятся
+ * все (но не больше {@value #MAX_RECENT_VERSIONS}), за сутки — последняя за каждые
+ * 10 минут, за месяц — последняя за день, дальше — последняя за неделю.
+ * Объекты, на которые больше не ссылается ни один журнал, удаляются.
+ * Запись выполняется в отдельном потоке, сохранение заметки её не ждёт.
+ */
+public class NoteHistory {
+    private static final Logger logger = LoggerFactory.getLogger(NoteHistory.class);
+    private static NoteHistory instance;
+
+    /** Через сколько разниц подряд версия снова записывается целиком. */
+    private static final int MAX_CHAIN = 20;
+    /**
+     * Предел только для версий за последний час: автосохранение пишет версию
+     * каждые несколько секунд, а дневные и недельные версии вытеснять нельзя.
+     */
+    static final int MAX_RECENT_VERSIONS = 200;
+    private static final long KEEP_ALL_MS = Duration.ofHours(1).toMillis();
+    private static final long KEEP_FREQUENT_MS = Duration.ofDays(1).toMillis();
+    private static final long FREQUENT_MS = Duration.ofMinutes(10).toMillis();
+    private static final long KEEP_DAILY_MS = Duration.ofDays(30).toMillis();
+    private static final long DAY_MS = Duration.ofDays(1).toMillis();
+    private static final long WEEK_MS = Duration.ofDays(7).toMillis();
+    /** После скольких удалённых из журналов версий собирать неиспользуемые объекты. */
+    private static final int GC_THRESHOLD = 500;
+    /** Сколько совпадающих строк предыдущей версии проверять для каждой строки. */
+    private static final int MAX_CANDIDATES = 8;
+
+    private static final byte FULL = 0;
+    private static final byte DELTA = 1;
+    private static final byte OP_COPY = 0;
+    private static final byte OP_INSERT = 1;
+
+    /**
+     * Откуда взялась версия
+     */
+    public enum Source {
+        /** Сохранение в приложении. */
+        SAVE,
+        /** Изменение файла вне приложения (или текст до первого сохранения). */
+        EXTERNAL
+    }
+
+    /**
+     * Версия заметки
+     */
+    public static class Version {
+        public final long time;
+        public final String hash;
+        public final Source source;
+
+        Version(long time, String hash, Source source) {
+            this.time = time;
+            this.hash = hash;
+            this.source = source;
+        }
+    }
+
+    private final Path vaultPath;
+    private final Path objectsDir;
+    private final Path logsDir;
+    private final ExecutorService executor;
+
+    /** Заметки, для которых уже известно, что журнал есть. */
+    private final Set<Path> tracked = Collections.synchronizedSet(new HashSet<>());
+
+    /** Последняя версия заметки: хеш и текст, чтобы не восстанавливать её для разницы. */
+    private final Map<Path, String[]> lastVersions = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, String[]> eldest) {
+            return size() > 64;
+        }
+    };
+
+    private int prunedSinceGc;
+
+    private NoteHistory() {
+        FileSystemManager fsManager = FileSystemManager.getInstance();
+        this.vaultPath = fsManager.getVaultPath();
+        Path historyDir = fsManager.getMetadataPath().resolve("history");
+        this.objectsDir = historyDir.resolve("objects");
+        this.logsDir = historyDir.resolve("logs");
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "history-thread");
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        });
+    }
+
+    public static synchronized NoteHistory getInstance() {
+        if (instance == null) {
+            instance = new NoteHistory();
+        }
+        return instance;
+    }
+
+    /**
+     * Заметка сохраняется приложением. Вызывается до записи файла: если истории
+     * у заметки ещё нет, сначала запоминается текст, который сейчас на диске.
+     */
+    public void recordSave(Path path, String body) {
+        if (tracked.add(path) && !Files.exists(logFile(path)) && Files.exists(path)) {
+            try {
+                String previous = NoteParser.parseNote(path).getBodyContent();
+                executor.execute(() -> append(path, previous, Source.EXTERNAL));
+            } catch (IOException e) {
+                logger.warn("Не удалось прочитать заметку до сохранения: {}", path);
+            }
+        }
+        executor.execute(() -> append(path, body, Source.SAVE));
+    }
+
+    /**
+     * Файл заметки изменён вне приложения: запомнить его текст (в фоне)
+     */
+    public void recordExternal(Path path) {
+        executor.execute(() -> {
+            try {
+                if (Files.exists(path)) {
+                    append(path, NoteParser.parseNote(path).getBodyContent(), Source.EXTERNAL);
+                }
+            } catch (IOException e) {
+                logger.error("Ошибка чтения заметки для истории: {}", path, e);
+            }
+        });
+    }
+
+    /**
+     * Заметки перемещены или переименованы: история переходит на новый путь
+     */
+    public void pathsMoved(Map<Path, Path> moves) {
+        Map<Path, Path> copy = new LinkedHashMap<>(moves);
+        executor.execute(() -> {
+            for (Map.Entry<Path, Path> move : copy.entrySet()) {
+                Path from = logFile(move.getKey());
+                Path to = logFile(move.getValue());
+                try {
+                    if (Files.exists(from) && !Files.exists(to)) {
+                        Files.createDirectories(to.getParent());
+                        List<String> lines = new ArrayList<>(Files.readAllLines(from, StandardCharsets.UTF_8));
+                        lines.set(0, "# " + relative(move.getValue()));
+                        writeAtomically(to, String.join("\n", lines) + "\n");
+                        Files.delete(from);
+                    }
+                } catch (IOException e) {
+                    logger.error("Ошибка переноса истории: {} -> {}", move.getKey(), move.getValue(), e);
+                }
+                tracked.remove(move.getKey());
+                synchronized (lastVersions) {
+                    String[] last = lastVersions.remove(move.getKey());
+                    if (last != null) {
+                        lastVersions.put(move.getValue(), last);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Версии заметки, от новых к старым
+     */
+    public List<Version> getVersions(Path path) {
+        List<Version> versions = readLog(logFile(path));
+        Collections.reverse(versions);
+        return versions;
+    }
+
+    /**
+     * Текст версии
+     */
+    public String read(String hash) throws IOException {
+        Deque<Delta> deltas = new ArrayDeque<>();
+        String current = hash;
+        while (true) {
+            Object object = readObject(current);
+            if (object instanceof String text) {
+                String result = text;
+                while (!deltas.isEmpty()) {
+                    result = deltas.pop().apply(result);
+                }
+                return result;
+            }
+            Delta delta = (Delta) object;
+            deltas.push(delta);
+            current = delta.base;
+        }
+    }
+
+    /**
+     * Дождаться записи всех версий (при закрытии приложения)
+     */
+    public void flush() {
+        try {
+            executor.submit(() -> {
+            }).get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            logger.warn("История версий записана не полностью", e);
+        }
+    }
+
+    private void append(Path path, String body, Source source) {
+        String text = body != null ? body : "";
+        String hash = ContentHash.of(text);
+        Path log = logFile(path);
+
+        try {
+            String[] last;
+            synchronized (lastVersions) {
+                last = lastVersions.get(path);
+            }
+            if (last == null) {
+                List<Version> versions = readLog(log);
+                if (!versions.isEmpty()) {
+                    String lastHash = versions.get(versions.size() - 1).hash;
+                    last = new String[]{lastHash, read(lastHash)};
+                }
+            }
+            if (last != null && last[0].equals(hash)) {
+                return;
+            }
+
+            writeObject(hash, text, last);
+
+            if (!Files.exists(log)) {
+                Files.createDirectories(log.getParent());
+                Files.writeString(log, "# " + relative(path) + "\n", StandardCharsets.UTF_8);
+            }
+            Files.writeString(log, System.currentTimeMillis() + " " + hash + " " + source + "\n",
+                    StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+            synchronized (lastVersions) {
+                lastVersions.put(path, new String[]{hash, text});
+            }
+            tracked.add(path);
+
+            prune(path, log);
+        } catch (IOException e) {
+            logger.error("Ошибка записи версии: {}", path, e);
+        }
+    }
+
+    /**
+     * Прореживание журнала заметки по правилам хранения
+     */
+    private void prune(Path path, Path log) throws IOException {
+        List<Version> versions = readLog(log);
+        List<Version> kept = retain(versions, System.currentTimeMillis());
+
+        int removed = versions.size() - kept.size();
+        if (removed == 0) {
+            return;
+        }
+
+        StringBuilder content = new StringBuilder("# ").append(relative(path)).append('\n');
+        for (Version version : kept) {
+            content.append(version.time).append(' ').append(version.hash).append(' ')
+                    .append(version.source).append('\n');
+        }
+        writeAtomically(log, content.toString());
+
+        prunedSinceGc += removed;
+        if (prunedSinceGc >= GC_THRESHOLD) {
+            prunedSinceGc = 0;
+            collectGarbage();
+        }
+    }
+
+    /**
+     * Версии, которые остаются после прореживания (от старых к новым)
+     */
+    static List<Version> retain(List<Version> versions, long now) {
+        // Идём от новых к старым: в каждом интервале остаётся самая новая версия
+        List<Version> kept = new ArrayList<>();
+        Set<Long> frequent = new HashSet<>();
+        Set<Long> daily = new HashSet<>();
+        Set<Long> weekly = new HashSet<>();
+        int recent = 0;
+        for (int i = versions.size() - 1; i >= 0; i--) {
+            Version version = versions.get(i);
+            long age = now - version.time;
+            boolean keep;
+            if (i == versions.size() - 1) {
+                keep = true;
+            } else if (age < KEEP_ALL_MS) {
+                keep = recent < MAX_RECENT_VERSIONS;
+            } else if (age < KEEP_FREQUENT_MS) {
+                keep = frequent.add(version.time / FREQUENT_MS);
+            } else if (age < KEEP_DAILY_MS) {
+                keep = daily.add(version.time / DAY_MS);
+            } else {
+                keep = weekly.add(version.time / WEEK_MS);
+            }
+            if (keep) {
+                kept.add(version);
+                if (age < KEEP_ALL_MS) {
+                    recent++;
+                }
+            }
+        }
+        Collections.reverse(kept);
+        return kept;
+    }
+
+    /**
+     * Удалить объекты, на которые не ссылается ни один журнал
+     * (с учётом объектов, от которых отсчитываются разницы)
+     */
+    private void collectGarbage() {
+        long start = System.currentTimeMillis();
+        Set<String> live = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+
+        try (Stream<Path> logs = Files.walk(logsDir)) {
+            logs.filter(Files::isRegularFile).forEach(log -> {
+                for (Version version : readLog(log)) {
+                    pending.add(version.hash);
+                }
+            });
+        } catch (IOException e) {
+            logger.error("Ошибка обхода журналов истории", e);
+            return;
+        }
+
+        while (!pending.isEmpty()) {
+            String hash = pending.pop();
+            if (!live.add(hash)) {
+                continue;
+            }
+            try {
+                String base = readBase(hash);
+                if (base != null) {
+                    pending.add(base);
+                }
+            } catch (IOException e) {
+                logger.warn("Повреждённый объект истории: {}", hash);
+            }
+        }
+
+        int deleted = 0;
+        try (Stream<Path> objects = Files.walk(objectsDir)) {
+            for (Path object : (Iterable<Path>) objects.filter(Files::isRegularFile)::iterator) {
+                String hash = object.getParent().getFileName().toString() + object.getFileName();
+                if (!live.contains(hash)) {
+                    Files.deleteIfExists(object);
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Ошибка очистки объектов истории", e);
+        }
+
+        logger.info("История: удалено {} неиспользуемых объектов за {} мс",
+                deleted, System.currentTimeMillis() - start);
+    }
+
+    private List<Version> readLog(Path log) {
+        List<Version> versions = new ArrayList<>();
+        if (!Files.exists(log)) {
+            return versions;
+        }
+        try {
+            for (String line : Files.readAllLines(log, StandardCharsets.UTF_8)) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(" ");
+                if (parts.length == 3) {
+                    versions.add(new Version(Long.parseLong(parts[0]), parts[1], Source.valueOf(parts[2])));
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Ошибка чтения журнала истории: {}", log, e);
+        }
+        return versions;
+    }
+
+    /**
+     * Записать объект версии, если такого ещё нет: целиком или разницей с предыдущей
+     *
+     * @param last хеш и текст предыдущей версии или null
+     */
+    private void writeObject(String hash, String text, String[] last) throws IOException {
+        Path file = objectFile(hash);
+        if (Files.exists(file)) {
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            int depth = last != null ? chainDepth(last[0]) + 1 : 0;
+            List<Object> ops = last != null && depth <= MAX_CHAIN ? diff(last[1], text) : null;
+            // Разница, почти целиком состоящая из вставок, не выгоднее полного текста
+            if (ops != null && insertedLength(ops) < text.length() / 2) {
+                out.writeByte(DELTA);
+                out.writeUTF(last[0]);
+                out.writeInt(depth);
+                out.writeInt(ops.size());
+                for (Object op : ops) {
+                    if (op instanceof int[] copy) {
+                        out.writeByte(OP_COPY);
+                        out.writeInt(copy[0]);
+                        out.writeInt(copy[1]);
+                    } else {
+                        out.writeByte(OP_INSERT);
+                        writeString(out, (String) op);
+                    }
+                }
+            } else {
+                out.writeByte(FULL);
+                writeString(out, text);
+            }
+        }
+
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, bytes.toByteArray());
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Текст (String) или разница (Delta) из объекта
+     */
+    private Object readObject(String hash) throws IOException {
+        try (DataInputStream in = openObject(hash)) {
+            if (in.readByte() == FULL) {
+                return readString(in);
+            }
+            Delta delta = new Delta(in.readUTF());
+            in.readInt();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                if (in.readByte() == OP_COPY) {
+                    delta.ops.add(new int[]{in.readInt(), in.readInt()});
+                } else {
+                    delta.ops.add(readString(in));
+                }
+            }
+            return delta;
+        }
+    }
+
+    /**
+     * Хеш базовой версии разницы или null для полного текста
+     */
+    private String readBase(String hash) throws IOException {
+        try (DataInputStream in = openObject(hash)) {
+            return in.readByte() == FULL ? null : in.readUTF();
+        }
+    }
+
+    private int chainDepth(String hash) throws IOException {
+        try (DataInputStream in = openObject(hash)) {
+            if (in.readByte() == FULL) {
+                return 0;
+            }
+            in.readUTF();
+            return in.readInt();
+        }
+    }
+
+    private DataInputStream openObject(String hash) throws IOException {
+        return new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(Files.newInputStream(objectFile(hash)))));
+    }
+
+    /**
+     * Разница: операции «скопировать строки предыдущей версии» (int[]{начало, число})
+     * и «вставить текст» (String)
+     */
+    private static class Delta {
+        final String base;
+        final List<Object> ops = new ArrayList<>();
+
+        Delta(String base) {
+            this.base = base;
+        }
+
+        String apply(String baseText) {
+            return patch(baseText, ops);
+        }
+    }
+
+    /**
+     * Применить операции разницы к тексту базовой версии
+     */
+    static String patch(String base, List<Object> ops) {
+        List<String> lines = splitLines(base);
+        StringBuilder result = new StringBuilder();
+        for (Object op : ops) {
+            if (op instanceof int[] copy) {
+                for (int i = copy[0]; i < copy[0] + copy[1]; i++) {
+                    result.append(lines.get(i));
+                }
+            } else {
+                result.append((String) op);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Разница по строкам: для каждой строки новой версии ищется самый длинный
+     * совпадающий кусок предыдущей версии, начинающийся с такой же строки
+     */
+    static List<Object> diff(String base, String text) {
+        List<String> baseLines = splitLines(base);
+        List<String> lines = splitLines(text);
+
+        Map<String, List<Integer>> positions = new HashMap<>();
+        for (int i = 0; i < baseLines.size(); i++) {
+            List<Integer> list = positions.computeIfAbsent(baseLines.get(i), k -> new ArrayList<>());
+            if (list.size() < MAX_CANDIDATES) {
+                list.add(i);
+            }
+        }
+
+        List<Object> ops = new ArrayList<>();
+        StringBuilder insert = new StringBuilder();
+        int i = 0;
+        while (i < lines.size()) {
+            int bestStart = -1;
+            int bestLength = 0;
+            for (int start : positions.getOrDefault(lines.get(i), Collections.emptyList())) {
+                int length = 0;
+                while (start + length < baseLines.size() && i + length < lines.size()
+                        && baseLines.get(start + length).equals(lines.get(i + length))) {
+                    length++;
+                }
+                if (length > bestLength) {
+                    bestStart = start;
+                    bestLength = length;
+                }
+            }
+
+            if (bestLength == 0) {
+                insert.append(lines.get(i++));
+                continue;
+            }
+            if (insert.length() > 0) {
+                ops.add(insert.toString());
+                insert.setLength(0);
+            }
+            ops.add(new int[]{bestStart, bestLength});
+            i += bestLength;
+        }
+        if (insert.length() > 0) {
+            ops.add(insert.toString());
+        }
+        return ops;
+    }
+
+    private static int insertedLength(List<Object> ops) {
+        int length = 0;
+        for (Object op : ops) {
+            if (op instanceof String text) {
+                length += text.length();
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Строки вместе с переводами строк: склеив их, получаем исходный текст
+     */
+    private static List<String> splitLines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            end = end < 0 ? text.length() : end + 1;
+            lines.add(text.substring(start, end));
+            start = end;
+        }
+        return lines;
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeAtomically(Path file, String content) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, content, StandardCharsets.UTF_8);
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Path objectFile(String hash) {
+        return objectsDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+    }
+
+    private Path logFile(Path path) {
+        String hash = ContentHash.of(relative(path));
+        return logsDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2) + ".log");
+    }
+
+    private String relative(Path path) {
+        return vaultPath.relativize(path).toString().replace('\\', '/');
+    }
+}
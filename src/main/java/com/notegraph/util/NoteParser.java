@@ -7,7 +7,10 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
@@ -21,7 +24,7 @@ public class NoteParser {
     private static final Logger logger = LoggerFactory.getLogger(NoteParser.class);
     
     private static final Pattern FRONTMATTER_PATTERN = Pattern.compile(
-        "^---\\s*\\n(.*?)\\n---\\s*\\n(.*)$",
+        "^---\\s*\\n(.*?)\\n---[ \\t]*\\r?\\n(?:[ \\t]*\\r?\\n)?(.*)$",
         Pattern.DOTALL
     );
 
@@ -34,9 +37,12 @@ public class NoteParser {
         }
         
         Note note = new Note(path);
+        // Даты берутся из frontmatter, а если их там нет — из атрибутов файла
+        note.setCreated(null);
+        note.setModified(null);
         String content = Files.readString(path);
-        note.setContent(content);
 
+        // Полный текст файла в заметке не хранится — только тело и frontmatter
         Matcher matcher = FRONTMATTER_PATTERN.matcher(content);
         
         if (matcher.matches()) {
@@ -45,6 +51,7 @@ public class NoteParser {
             
             note.setFrontmatter(parseFrontmatter(frontmatterStr));
             note.setBodyContent(bodyContent);
+            note.setBodyLineOffset(countLines(content, matcher.start(2)));
 
             extractMetadataFromFrontmatter(note);
         } else {
@@ -54,16 +61,34 @@ public class NoteParser {
 
         note.extractOutgoingLinks();
 
-        if (note.getCreated() == null) {
-            note.setCreated(FileSystemManager.getInstance().getCreated(path));
-        }
-        if (note.getModified() == null) {
-            note.setModified(FileSystemManager.getInstance().getLastModified(path));
+        if (note.getCreated() == null || note.getModified() == null) {
+            // Оба времени — одним обращением к атрибутам файла
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            if (note.getCreated() == null) {
+                note.setCreated(toLocalDateTime(attrs.creationTime()));
+            }
+            if (note.getModified() == null) {
+                note.setModified(toLocalDateTime(attrs.lastModifiedTime()));
+            }
         }
         
         return note;
     }
     
+    private static int countLines(String text, int end) {
+        int lines = 0;
+        for (int i = 0; i < end; i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private static LocalDateTime toLocalDateTime(FileTime time) {
+        return LocalDateTime.ofInstant(time.toInstant(), ZoneId.systemDefault());
+    }
+
     /**
      * Записать заметку в файл
      */
@@ -74,7 +99,8 @@ public class NoteParser {
         String content = generateFrontmatter(note.getFrontmatter()) + 
                         "\n\n" + 
                         note.getBodyContent();
-        
+
+        NoteHistory.getInstance().recordSave(note.getPath(), note.getBodyContent());
         Files.writeString(note.getPath(), content);
         logger.debug("Заметка сохранена: {}", note.getPath());
     }
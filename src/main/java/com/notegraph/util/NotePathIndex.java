@@ -0,0 +1,296 @@
+package com.notegraph.util;
+
+import com.notegraph.model.Note;
+import com.notegraph.model.NoteSummary;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Индекс путей и названий заметок.
+ * <p>
+ * Каждой заметке выдаётся целочисленный id, который не меняется, пока заметка
+ * лежит по тому же пути. Id удалённых заметок выдаются новым заметкам, поэтому
+ * хранить id дольше одного запроса нельзя.
+ * Поиск по названию и по папке (префиксу пути) — без чтения файлов.
+ * Для каждой заметки хранится {@link NoteSummary} — из него строятся списки заметок.
+ */
+public class NotePathIndex implements VaultIndex {
+    private static NotePathIndex instance;
+
+    private final Map<Path, Integer> idsByPath = new HashMap<>();
+    private final List<Path> pathsById = new ArrayList<>();
+    private final List<String> titlesById = new ArrayList<>();
+    private final List<NoteSummary> summariesById = new ArrayList<>();
+    /** Название → id заметок с этим названием в порядке добавления. */
+    private final Map<String, List<Integer>> idsByTitle = new HashMap<>();
+    /** Освободившиеся id. */
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    /** Путь относительно vault (через "/") → id, для выборки по папке. */
+    private final TreeMap<String, Integer> idsByRelativePath = new TreeMap<>();
+    private final Path vaultPath = FileSystemManager.getInstance().getVaultPath();
+
+    private volatile boolean ready;
+
+    private NotePathIndex() {
+    }
+
+    public static synchronized NotePathIndex getInstance() {
+        if (instance == null) {
+            instance = new NotePathIndex();
+        }
+        return instance;
+    }
+
+    @Override
+    public synchronized void noteIndexed(Note note) {
+        Path path = note.getPath();
+        String title = note.getTitle();
+        NoteSummary summary = NoteSummary.of(note);
+
+        Integer id = idsByPath.get(path);
+        if (id == null) {
+            if (freeIds.isEmpty()) {
+                id = pathsById.size();
+                pathsById.add(path);
+                titlesById.add(title);
+                summariesById.add(summary);
+            } else {
+                id = freeIds.pop();
+                pathsById.set(id, path);
+                titlesById.set(id, title);
+                summariesById.set(id, summary);
+            }
+            idsByPath.put(path, id);
+            idsByRelativePath.put(relative(path), id);
+        } else {
+            summariesById.set(id, summary);
+            String oldTitle = titlesById.get(id);
+            if (Objects.equals(oldTitle, title)) {
+                return;
+            }
+            removeTitle(oldTitle, id);
+            titlesById.set(id, title);
+        }
+
+        if (title != null) {
+            idsByTitle.computeIfAbsent(title, t -> new ArrayList<>(1)).add(id);
+        }
+    }
+
+    @Override
+    public synchronized void noteRemoved(Path path) {
+        Integer id = idsByPath.remove(path);
+        if (id == null) {
+            return;
+        }
+
+        removeTitle(titlesById.get(id), id);
+        idsByRelativePath.remove(relative(path));
+        pathsById.set(id, null);
+        titlesById.set(id, null);
+        summariesById.set(id, null);
+        freeIds.push(id);
+    }
+
+    /**
+     * Id заметок сохраняются: меняются только пути, поэтому индексы,
+     * работающие с id, перемещения не замечают
+     */
+    @Override
+    public synchronized void notesMoved(Map<Path, Path> moves, Function<Path, Note> reader) {
+        List<Integer> ids = new ArrayList<>(moves.size());
+        for (Path oldPath : moves.keySet()) {
+            Integer id = idsByPath.remove(oldPath);
+            ids.add(id);
+            if (id != null) {
+                idsByRelativePath.remove(relative(oldPath));
+            }
+        }
+
+        int i = 0;
+        for (Path newPath : moves.values()) {
+            Integer id = ids.get(i++);
+            if (id == null) {
+                continue;
+            }
+            idsByPath.put(newPath, id);
+            idsByRelativePath.put(relative(newPath), id);
+            pathsById.set(id, newPath);
+
+            NoteSummary old = summariesById.get(id);
+            summariesById.set(id, new NoteSummary(newPath, old.getTitle(), old.getCreated(),
+                    old.getModified(), old.getTagCount(), old.getLinkCount()));
+        }
+    }
+
+    @Override
+    public void scanCompleted() {
+        ready = true;
+    }
+
+    /**
+     * Первичное сканирование завершено и индексу можно доверять
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Заметка с названием; если таких несколько — добавленная раньше остальных
+     */
+    public synchronized Optional<Path> findByTitle(String title) {
+        List<Integer> ids = idsByTitle.get(title);
+        return ids != null ? Optional.of(pathsById.get(ids.get(0))) : Optional.empty();
+    }
+
+    public synchronized String titleOf(Path path) {
+        Integer id = idsByPath.get(path);
+        return id != null ? titlesById.get(id) : null;
+    }
+
+    /**
+     * Id заметки или -1, если заметка не проиндексирована
+     */
+    public synchronized int idOf(Path path) {
+        return idsByPath.getOrDefault(path, -1);
+    }
+
+    /**
+     * Путь по id или null, если заметка удалена
+     */
+    public synchronized Path pathOf(int id) {
+        return id >= 0 && id < pathsById.size() ? pathsById.get(id) : null;
+    }
+
+    /**
+     * Сведения о заметке или null, если заметка не проиндексирована
+     */
+    public synchronized NoteSummary summaryOf(Path path) {
+        Integer id = idsByPath.get(path);
+        return id != null ? summariesById.get(id) : null;
+    }
+
+    /**
+     * Сведения обо всех заметках в порядке путей
+     */
+    public synchronized List<NoteSummary> getSummaries() {
+        List<NoteSummary> summaries = new ArrayList<>(idsByRelativePath.size());
+        for (int id : idsByRelativePath.values()) {
+            summaries.add(summariesById.get(id));
+        }
+        return summaries;
+    }
+
+    /**
+     * Сведения о заметках, лежащих непосредственно в папке
+     */
+    public synchronized List<NoteSummary> getSummariesIn(Path folder) {
+        String prefix = folder.equals(vaultPath) ? "" : relative(folder) + "/";
+        List<NoteSummary> summaries = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : underPrefix(prefix).entrySet()) {
+            if (entry.getKey().indexOf('/', prefix.length()) < 0) {
+                summaries.add(summariesById.get(entry.getValue()));
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Пути заметок в папке и всех вложенных папках
+     */
+    public synchronized List<Path> pathsUnder(Path folder) {
+        String prefix = folder.equals(vaultPath) ? "" : relative(folder) + "/";
+        List<Path> paths = new ArrayList<>();
+        for (int id : underPrefix(prefix).values()) {
+            paths.add(pathsById.get(id));
+        }
+        return paths;
+    }
+
+    public synchronized int size() {
+        return idsByPath.size();
+    }
+
+    /**
+     * Id всех заметок, по возрастанию
+     */
+    public synchronized int[] allIds() {
+        return idsByPath.values().stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    /**
+     * Id заметок, путь которых (относительно vault) начинается с префикса, по возрастанию
+     */
+    public synchronized int[] idsUnder(String relativePrefix) {
+        return underPrefix(relativePrefix).values().stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    public synchronized int countUnder(String relativePrefix) {
+        return underPrefix(relativePrefix).size();
+    }
+
+    /**
+     * Id заметок по путям, по возрастанию; неизвестные пути пропускаются
+     */
+    public synchronized int[] idsOf(Collection<Path> paths) {
+        return paths.stream()
+                .map(idsByPath::get)
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    /**
+     * Id заметок по названиям (всех заметок с каждым названием), по возрастанию;
+     * неизвестные названия пропускаются
+     */
+    public synchronized int[] idsOfTitles(Collection<String> titles) {
+        return titles.stream()
+                .map(idsByTitle::get)
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .mapToInt(Integer::intValue)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    public synchronized List<String> getTitles() {
+        List<String> titles = new ArrayList<>(idsByPath.size());
+        for (String title : titlesById) {
+            if (title != null) {
+                titles.add(title);
+            }
+        }
+        return titles;
+    }
+
+    private SortedMap<String, Integer> underPrefix(String relativePrefix) {
+        String prefix = relativePrefix.replace('\\', '/');
+        return prefix.isEmpty()
+                ? idsByRelativePath
+                : idsByRelativePath.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    private String relative(Path path) {
+        return vaultPath.relativize(path).toString().replace('\\', '/');
+    }
+
+    /**
+     * Убрать название заметки из поиска. Если есть другая заметка с тем же
+     * названием, поиск переходит на неё.
+     */
+    private void removeTitle(String title, int id) {
+        if (title == null) {
+            return;
+        }
+        List<Integer> ids = idsByTitle.get(title);
+        if (ids != null && ids.remove(Integer.valueOf(id)) && ids.isEmpty()) {
+            idsByTitle.remove(title);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.notegraph.util;
+
+import com.notegraph.model.Note;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Поиск похожих заметок и возможных дубликатов (MinHash + LSH).
+ * <p>
+ * Текст заметки разбивается на шинглы — тройки соседних слов. Для множества
+ * шинглов считается MinHash-подпись; доля совпадающих позиций двух подписей
+ * оценивает коэффициент Жаккара. Подпись делится на полосы, заметки с одинаковой
+ * полосой попадают в одну корзину. Похожие ищутся только среди соседей по корзинам,
+ * поэтому изменение заметки обновляет только её корзины, без попарного сравнения.
+ * <p>
+ * Корзины хранят целочисленные id заметок, а не пути. Id выдаются индексом сами
+ * и переиспользуются после удаления: индексы получают события из разных потоков,
+ * поэтому на id {@link NotePathIndex} здесь полагаться нельзя.
+ */
+public class SimilarityIndex implements VaultIndex {
+    private static SimilarityIndex instance;
+
+    /**
+     * 32 полосы по 2 строки: вероятность попасть в общую корзину — 0.73 при
+     * сходстве 0.2 и 0.95 при 0.3, этого хватает для порога похожих заметок.
+     */
+    private static final int BANDS = 32;
+    private static final int ROWS = 2;
+    private static final int SIGNATURE_SIZE = BANDS * ROWS;
+    private static final int SHINGLE_SIZE = 3;
+
+    /** Минимальная оценка сходства для «похожих заметок». */
+    private static final double RELATED_THRESHOLD = 0.2;
+    /** Минимальная оценка сходства для «возможных дубликатов». */
+    private static final double DUPLICATE_THRESHOLD = 0.8;
+
+    private static final long[] SEEDS = new long[SIGNATURE_SIZE];
+
+    static {
+        Random random = new Random(0x5EEDL);
+        for (int i = 0; i < SEEDS.length; i++) {
+            SEEDS[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Похожая заметка и оценка сходства (0..1)
+     */
+    public static class Match {
+        public final Path path;
+        public final double similarity;
+
+        Match(Path path, double similarity) {
+            this.path = path;
+            this.similarity = similarity;
+        }
+    }
+
+    private final Map<Path, Integer> idsByPath = new HashMap<>();
+    private final List<Path> pathsById = new ArrayList<>();
+    private final List<int[]> signaturesById = new ArrayList<>();
+    /** Освободившиеся id. */
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    /** Ключ полосы → id заметок корзины по возрастанию. */
+    private final Map<Long, int[]> buckets = new HashMap<>();
+
+    private SimilarityIndex() {
+    }
+
+    public static synchronized SimilarityIndex getInstance() {
+        if (instance == null) {
+            instance = new SimilarityIndex();
+        }
+        return instance;
+    }
+
+    @Override
+    public void noteIndexed(Note note) {
+        if (note.getPath() == null) {
+            return;
+        }
+        // Подпись считается без блокировки: это самая дорогая часть
+        int[] signature = signature(note.getBodyContent());
+
+        synchronized (this) {
+            int[] old = signatureOf(note.getPath());
+            if (old != null && Arrays.equals(old, signature)) {
+                return;
+            }
+            removePath(note.getPath());
+            if (signature == null) {
+                return;
+            }
+
+            addPath(note.getPath(), signature);
+        }
+    }
+
+    @Override
+    public synchronized void noteRemoved(Path path) {
+        removePath(path);
+    }
+
+    @Override
+    public synchronized void notesMoved(Map<Path, Path> moves, Function<Path, Note> reader) {
+        List<int[]> moved = new ArrayList<>(moves.size());
+        for (Path oldPath : moves.keySet()) {
+            moved.add(signatureOf(oldPath));
+            removePath(oldPath);
+        }
+        int i = 0;
+        for (Path newPath : moves.values()) {
+            int[] signature = moved.get(i++);
+            if (signature != null) {
+                addPath(newPath, signature);
+            }
+        }
+    }
+
+    /**
+     * Заметки, похожие на указанную, по убыванию сходства
+     */
+    public List<Match> findRelated(Path path, int limit) {
+        return find(path, RELATED_THRESHOLD, limit);
+    }
+
+    /**
+     * Заметки, почти совпадающие с указанной
+     */
+    public List<Match> findDuplicates(Path path, int limit) {
+        return find(path, DUPLICATE_THRESHOLD, limit);
+    }
+
+    private synchronized List<Match> find(Path path, double threshold, int limit) {
+        Integer id = idsByPath.get(path);
+        if (id == null) {
+            return new ArrayList<>();
+        }
+        int[] signature = signaturesById.get(id);
+
+        BitSet candidates = new BitSet(pathsById.size());
+        for (int band = 0; band < BANDS; band++) {
+            int[] bucket = buckets.get(bandKey(signature, band));
+            if (bucket != null) {
+                for (int member : bucket) {
+                    candidates.set(member);
+                }
+            }
+        }
+        candidates.clear(id);
+
+        List<Match> matches = new ArrayList<>();
+        for (int candidate = candidates.nextSetBit(0); candidate >= 0;
+             candidate = candidates.nextSetBit(candidate + 1)) {
+            double similarity = similarity(signature, signaturesById.get(candidate));
+            if (similarity >= threshold) {
+                matches.add(new Match(pathsById.get(candidate), similarity));
+            }
+        }
+
+        matches.sort(Comparator.comparingDouble((Match m) -> m.similarity).reversed());
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    private int[] signatureOf(Path path) {
+        Integer id = idsByPath.get(path);
+        return id != null ? signaturesById.get(id) : null;
+    }
+
+    private void addPath(Path path, int[] signature) {
+        int id;
+        if (freeIds.isEmpty()) {
+            id = pathsById.size();
+            pathsById.add(path);
+            signaturesById.add(signature);
+        } else {
+            id = freeIds.pop();
+            pathsById.set(id, path);
+            signaturesById.set(id, signature);
+        }
+        idsByPath.put(path, id);
+
+        for (int band = 0; band < BANDS; band++) {
+            buckets.merge(bandKey(signature, band), new int[]{id}, SimilarityIndex::insert);
+        }
+    }
+
+    private void removePath(Path path) {
+        Integer id = idsByPath.remove(path);
+        if (id == null) {
+            return;
+        }
+        int[] signature = signaturesById.get(id);
+        pathsById.set(id, null);
+        signaturesById.set(id, null);
+        freeIds.push(id);
+
+        for (int band = 0; band < BANDS; band++) {
+            buckets.computeIfPresent(bandKey(signature, band), (key, bucket) -> remove(bucket, id));
+        }
+    }
+
+    /**
+     * Корзина с добавленным id (added — массив из одного id)
+     */
+    private static int[] insert(int[] bucket, int[] added) {
+        int id = added[0];
+        int index = Arrays.binarySearch(bucket, id);
+        if (index >= 0) {
+            return bucket;
+        }
+        index = -index - 1;
+        int[] result = new int[bucket.length + 1];
+        System.arraycopy(bucket, 0, result, 0, index);
+        result[index] = id;
+        System.arraycopy(bucket, index, result, index + 1, bucket.length - index);
+        return result;
+    }
+
+    /**
+     * Корзина без id или null, если корзина опустела
+     */
+    private static int[] remove(int[] bucket, int id) {
+        int index = Arrays.binarySearch(bucket, id);
+        if (index < 0) {
+            return bucket;
+        }
+        if (bucket.length == 1) {
+            return null;
+        }
+        int[] result = new int[bucket.length - 1];
+        System.arraycopy(bucket, 0, result, 0, index);
+        System.arraycopy(bucket, index + 1, result, index, bucket.length - index - 1);
+        return result;
+    }
+
+    private static double similarity(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            if (a[i] == b[i]) {
+                same++;
+            }
+        }
+        return (double) same / SIGNATURE_SIZE;
+    }
+
+    /**
+     * Ключ корзины: номер полосы и значения её строк
+     */
+    private static long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int row = 0; row < ROWS; row++) {
+            key = key * 0x9E3779B97F4A7C15L + signature[band * ROWS + row];
+        }
+        return key;
+    }
+
+    /**
+     * MinHash-подпись текста или null, если слов слишком мало для сравнения
+     */
+    private static int[] signature(String text) {
+        long[] shingles = shingles(text);
+        if (shingles.length == 0) {
+            return null;
+        }
+
+        int[] signature = new int[SIGNATURE_SIZE];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                int hash = (int) (mix(shingle ^ SEEDS[i]) >>> 33);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Хеши различных шинглов: троек соседних слов (или всего текста, если слов меньше)
+     */
+    private static long[] shingles(String text) {
+        if (text == null) {
+            return new long[0];
+        }
+
+        List<String> words = new ArrayList<>();
+        for (String word : TrigramIndex.normalize(text).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        if (words.isEmpty()) {
+            return new long[0];
+        }
+
+        int size = Math.min(SHINGLE_SIZE, words.size());
+        Set<Long> result = new HashSet<>();
+        for (int i = 0; i + size <= words.size(); i++) {
+            long hash = 1125899906842597L;
+            for (int j = i; j < i + size; j++) {
+                hash = 31 * hash + words.get(j).hashCode();
+                hash = mix(hash);
+            }
+            result.add(hash);
+        }
+        return result.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Финальное перемешивание MurmurHash3
+     */
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
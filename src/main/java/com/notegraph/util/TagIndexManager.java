@@ -7,25 +7,84 @@ import com.notegraph.model.Note;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
+/**
+ * Индекс тегов.
+ * <p>
+ * Вложенные теги ({@code proj/alpha/infra}) хранятся в дереве по частям пути.
+ * В каждом узле поддерживается число заметок во всём его поддереве, поэтому
+ * счётчики для панели тегов и запросы вида {@code proj/**} не перебирают все теги.
+ */
 public class TagIndexManager {
 
     private static TagIndexManager instance;
 
-    private final Map<String, Set<String>> tagIndex = new HashMap<>();
+    private static final String SUBTREE_SUFFIX = "/**";
+
+    /** Тег → заметки с этим тегом (сохраняется в tags.json). */
+    private final Map<String, Set<String>> tagIndex = new TreeMap<>();
+
+    /** Заметка → её теги, чтобы обновление не перебирало весь индекс. */
+    private final Map<String, Set<String>> tagsByNote = new HashMap<>();
+
+    private TagNode root = new TagNode(null, "");
+
+    /**
+     * Узел дерева тегов
+     */
+    private static class TagNode {
+        final TagNode parent;
+        final String tag;
+        final TreeMap<String, TagNode> children = new TreeMap<>();
+
+        /** Заметки поддерева → сколькими тегами поддерева они отмечены. */
+        final Map<String, Integer> subtreeNotes = new HashMap<>();
+
+        TagNode(TagNode parent, String tag) {
+            this.parent = parent;
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Узел дерева тегов для отображения: полный тег, последняя часть и число заметок
+     */
+    public static class TagTreeNode {
+        public final String tag;
+        public final String name;
+        /** Заметки с этим тегом или любым вложенным. */
+        public final int noteCount;
+        public final List<TagTreeNode> children;
+
+        TagTreeNode(String tag, String name, int noteCount, List<TagTreeNode> children) {
+            this.tag = tag;
+            this.name = name;
+            this.noteCount = noteCount;
+            this.children = children;
+        }
+    }
 
     private final Gson gson =
             new GsonBuilder().setPrettyPrinting().create();
 
-    private final Path tagFile =
-            FileSystemManager.getInstance()
-                    .getVaultPath()
-                    .resolve(".notegraph/tags.json");
+    private final Path tagFile;
 
     private TagIndexManager() {
+        this(FileSystemManager.getInstance()
+                .getVaultPath()
+                .resolve(".notegraph/tags.json"));
+    }
+
+    /**
+     * Индекс с отдельным файлом (для тестов)
+     */
+    TagIndexManager(Path tagFile) {
+        this.tagFile = tagFile;
         load();
     }
 
@@ -38,35 +97,162 @@ public class TagIndexManager {
         return instance;
     }
 
-    public void updateNoteTags(Note note) {
+    public synchronized void updateNoteTags(Note note) {
 
-        removeNote(note.getTitle());
+        if (applyNoteTags(note)) {
+            save();
+        }
+    }
 
-        for (String tag : note.getTags()) {
+    public synchronized void removeNote(String title) {
 
-            tagIndex.computeIfAbsent(
-                    tag,
-                    k -> new HashSet<>()
-            ).add(note.getTitle());
-        }
+        removeFromIndex(title);
 
         save();
     }
 
-    public void removeNote(String title) {
+    /**
+     * Применить изменения нескольких заметок разом; tags.json записывается один раз
+     *
+     * @param removedTitles удалённые заметки
+     * @param updatedNotes  заметки с изменёнными тегами
+     */
+    public synchronized void commitBatch(Collection<String> removedTitles, Collection<Note> updatedNotes) {
+        boolean changed = false;
+
+        for (String title : removedTitles) {
+            changed |= tagsByNote.containsKey(title);
+            removeFromIndex(title);
+        }
+        for (Note note : updatedNotes) {
+            changed |= applyNoteTags(note);
+        }
+
+        if (changed) {
+            save();
+        }
+    }
+
+    private boolean applyNoteTags(Note note) {
+
+        if (tagsOf(note.getTitle()).equals(note.getTags())) {
+            // Теги не изменились — файл индекса не переписываем
+            return false;
+        }
+
+        removeFromIndex(note.getTitle());
 
-        for (Set<String> notes : tagIndex.values()) {
-            notes.remove(title);
+        for (String tag : note.getTags()) {
+            addToIndex(tag, note.getTitle());
         }
 
-        tagIndex.entrySet().removeIf(
-                e -> e.getValue().isEmpty()
+        return true;
+    }
+
+    private void addToIndex(String tag, String title) {
+
+        Set<String> notes = tagIndex.computeIfAbsent(
+                tag,
+                k -> new HashSet<>()
         );
 
-        save();
+        if (!notes.add(title)) {
+            return;
+        }
+
+        tagsByNote.computeIfAbsent(title, k -> new HashSet<>()).add(tag);
+
+        TagNode node = root;
+        root.subtreeNotes.merge(title, 1, Integer::sum);
+
+        for (String part : splitTag(tag)) {
+            TagNode parent = node;
+            node = node.children.computeIfAbsent(
+                    part,
+                    k -> new TagNode(parent, parent == root ? k : parent.tag + "/" + k)
+            );
+            node.subtreeNotes.merge(title, 1, Integer::sum);
+        }
+    }
+
+    private void removeFromIndex(String title) {
+
+        Set<String> tags = tagsByNote.remove(title);
+
+        if (tags == null) {
+            return;
+        }
+
+        for (String tag : tags) {
+
+            Set<String> notes = tagIndex.get(tag);
+            if (notes != null) {
+                notes.remove(title);
+                if (notes.isEmpty()) {
+                    tagIndex.remove(tag);
+                }
+            }
+
+            TagNode node = findNode(splitTag(tag));
+            if (node == null) {
+                continue;
+            }
+
+            // Поднимаемся к корню, удаляя опустевшие узлы
+            for (TagNode current = node; current != null; current = current.parent) {
+                current.subtreeNotes.computeIfPresent(title, (k, count) -> count > 1 ? count - 1 : null);
+
+                if (current.parent != null && current.subtreeNotes.isEmpty()) {
+                    current.parent.children.values().remove(current);
+                }
+            }
+        }
+    }
+
+    private Set<String> tagsOf(String title) {
+        return tagsByNote.getOrDefault(title, Collections.emptySet());
+    }
+
+    private TagNode findNode(List<String> parts) {
+
+        TagNode node = root;
+
+        for (String part : parts) {
+            node = node.children.get(part);
+            if (node == null) {
+                return null;
+            }
+        }
+
+        return node;
+    }
+
+    private static List<String> splitTag(String tag) {
+
+        List<String> parts = new ArrayList<>();
+
+        for (String part : tag.split("/")) {
+            if (!part.isEmpty()) {
+                parts.add(part);
+            }
+        }
+
+        return parts;
     }
 
-    public Set<String> getNotesByTag(String tag) {
+    /**
+     * Заметки с тегом. Тег вида {@code proj/**} — заметки с тегом proj
+     * или любым вложенным в него.
+     */
+    public synchronized Set<String> getNotesByTag(String tag) {
+
+        if (tag.endsWith(SUBTREE_SUFFIX)) {
+            TagNode node = findNode(splitTag(tag.substring(0, tag.length() - SUBTREE_SUFFIX.length())));
+            return node != null
+                    ? new HashSet<>(node.subtreeNotes.keySet())
+                    : new HashSet<>();
+        }
+
         return new HashSet<>(
                 tagIndex.getOrDefault(
                         tag,
@@ -75,8 +261,46 @@ public class TagIndexManager {
         );
     }
 
-    public Set<String> getAllTags() {
-        return tagIndex.keySet();
+    /**
+     * Число заметок с тегом (с учётом {@code /**}) без копирования списка
+     */
+    public synchronized int countNotesByTag(String tag) {
+
+        if (tag.endsWith(SUBTREE_SUFFIX)) {
+            TagNode node = findNode(splitTag(tag.substring(0, tag.length() - SUBTREE_SUFFIX.length())));
+            return node != null ? node.subtreeNotes.size() : 0;
+        }
+
+        return tagIndex.getOrDefault(tag, Collections.emptySet()).size();
+    }
+
+    /**
+     * Все теги по алфавиту
+     */
+    public synchronized Set<String> getAllTags() {
+        return new TreeSet<>(tagIndex.keySet());
+    }
+
+    /**
+     * Снимок дерева тегов со счётчиками заметок
+     */
+    public synchronized List<TagTreeNode> getTagTree() {
+        return snapshot(root).children;
+    }
+
+    private static TagTreeNode snapshot(TagNode node) {
+
+        List<TagTreeNode> children = new ArrayList<>(node.children.size());
+
+        for (Map.Entry<String, TagNode> entry : node.children.entrySet()) {
+            children.add(snapshot(entry.getValue()));
+        }
+
+        String name = node.parent == null
+                ? ""
+                : node.tag.substring(node.tag.lastIndexOf('/') + 1);
+
+        return new TagTreeNode(node.tag, name, node.subtreeNotes.size(), children);
     }
 
     private void save() {
@@ -85,11 +309,20 @@ public class TagIndexManager {
 
             Files.createDirectories(tagFile.getParent());
 
+            Path temp = tagFile.resolveSibling(tagFile.getFileName() + ".tmp");
+
             Files.writeString(
-                    tagFile,
+                    temp,
                     gson.toJson(tagIndex)
             );
 
+            try {
+                Files.move(temp, tagFile,
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, tagFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -109,27 +342,31 @@ public class TagIndexManager {
                             type
                     );
             if (data != null) {
-                tagIndex.putAll(data);
+                data.forEach((tag, notes) -> notes.forEach(title -> addToIndex(tag, title)));
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    public void renameNote(
+    public synchronized void renameNote(
             String oldTitle,
             String newTitle
     ) {
-        for (Set<String> notes : tagIndex.values()) {
-            if (notes.remove(oldTitle)) {
-                notes.add(newTitle);
-            }
+        Set<String> tags = new HashSet<>(tagsOf(oldTitle));
+
+        removeFromIndex(oldTitle);
+
+        for (String tag : tags) {
+            addToIndex(tag, newTitle);
         }
         save();
     }
 
-    public void clear() {
+    public synchronized void clear() {
         tagIndex.clear();
+        tagsByNote.clear();
+        root = new TagNode(null, "");
         save();
     }
 }
\ No newline at end of file
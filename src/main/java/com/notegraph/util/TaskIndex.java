@@ -0,0 +1,277 @@
+package com.notegraph.util;
+
+import com.notegraph.model.Note;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Индекс задач ("- [ ] ..." / "- [x] ...") по всему vault.
+ * <p>
+ * Задачи заметки пересобираются при каждом её изменении, поэтому список
+ * открытых задач строится из памяти, без чтения файлов.
+ */
+public class TaskIndex implements VaultIndex {
+    private static TaskIndex instance;
+
+    private static final Pattern TASK_PATTERN =
+            Pattern.compile("^(\\s*(?:[-*+]|\\d+[.)])\\s+\\[)([ xX])(\\]\\s+)(.*)$");
+    private static final Pattern TAG_PATTERN =
+            Pattern.compile("#([\\p{L}\\p{N}_-]+(?:/[\\p{L}\\p{N}_-]+)*)");
+    private static final Pattern DATE_PATTERN =
+            Pattern.compile("\\b(\\d{4}-\\d{2}-\\d{2})\\b");
+
+    /**
+     * Задача: заметка, строка тела заметки (с 0), состояние, теги и даты из текста
+     */
+    public static class Task {
+        public final Path path;
+        public final String noteTitle;
+        public final int line;
+        public final String text;
+        public final boolean done;
+        public final Set<String> tags;
+        public final List<LocalDate> dates;
+
+        /** Позиция символа состояния (' ' или 'x') в строке. */
+        final int stateColumn;
+
+        Task(Path path, String noteTitle, int line, int stateColumn, String text, boolean done,
+             Set<String> tags, List<LocalDate> dates) {
+            this.path = path;
+            this.noteTitle = noteTitle;
+            this.line = line;
+            this.stateColumn = stateColumn;
+            this.text = text;
+            this.done = done;
+            this.tags = tags;
+            this.dates = dates;
+        }
+
+        /**
+         * Первая дата в тексте задачи (обычно срок) или null
+         */
+        public LocalDate getDate() {
+            return dates.isEmpty() ? null : dates.get(0);
+        }
+
+        /**
+         * Та же задача в противоположном состоянии (после переключения)
+         */
+        public Task toggled() {
+            return new Task(path, noteTitle, line, stateColumn, text, !done, tags, dates);
+        }
+
+        Task movedTo(Path newPath) {
+            return new Task(newPath, noteTitle, line, stateColumn, text, done, tags, dates);
+        }
+    }
+
+    private static final Comparator<Task> ORDER = Comparator
+            .comparing(Task::getDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(t -> t.noteTitle, String.CASE_INSENSITIVE_ORDER)
+            .thenComparingInt(t -> t.line);
+
+    private final Map<Path, List<Task>> tasksByPath = new HashMap<>();
+    private int openCount;
+
+    private TaskIndex() {
+    }
+
+    public static synchronized TaskIndex getInstance() {
+        if (instance == null) {
+            instance = new TaskIndex();
+        }
+        return instance;
+    }
+
+    @Override
+    public void noteIndexed(Note note) {
+        if (note.getPath() == null) {
+            return;
+        }
+        List<Task> tasks = parse(note.getPath(), note.getTitle(), note.getBodyContent());
+
+        synchronized (this) {
+            removePath(note.getPath());
+            if (!tasks.isEmpty()) {
+                tasksByPath.put(note.getPath(), tasks);
+                openCount += countOpen(tasks);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void noteRemoved(Path path) {
+        removePath(path);
+    }
+
+    @Override
+    public synchronized void notesMoved(Map<Path, Path> moves, Function<Path, Note> reader) {
+        List<List<Task>> moved = new ArrayList<>(moves.size());
+        for (Path oldPath : moves.keySet()) {
+            moved.add(tasksByPath.remove(oldPath));
+        }
+        int i = 0;
+        for (Path newPath : moves.values()) {
+            List<Task> tasks = moved.get(i++);
+            if (tasks == null) {
+                continue;
+            }
+            List<Task> remapped = new ArrayList<>(tasks.size());
+            for (Task task : tasks) {
+                remapped.add(task.movedTo(newPath));
+            }
+            tasksByPath.put(newPath, remapped);
+        }
+    }
+
+    /**
+     * Задачи vault: сначала с ближайшей датой, затем по названию заметки и строке
+     *
+     * @param includeDone включать выполненные
+     */
+    public synchronized List<Task> getTasks(boolean includeDone) {
+        List<Task> result = new ArrayList<>(includeDone ? openCount * 2 : openCount);
+        for (List<Task> tasks : tasksByPath.values()) {
+            for (Task task : tasks) {
+                if (includeDone || !task.done) {
+                    result.add(task);
+                }
+            }
+        }
+        result.sort(ORDER);
+        return result;
+    }
+
+    /**
+     * Задачи одной заметки в порядке строк
+     */
+    public synchronized List<Task> getTasks(Path path) {
+        return new ArrayList<>(tasksByPath.getOrDefault(path, Collections.emptyList()));
+    }
+
+    public synchronized int getOpenCount() {
+        return openCount;
+    }
+
+    private void removePath(Path path) {
+        List<Task> old = tasksByPath.remove(path);
+        if (old != null) {
+            openCount -= countOpen(old);
+        }
+    }
+
+    private static int countOpen(List<Task> tasks) {
+        int count = 0;
+        for (Task task : tasks) {
+            if (!task.done) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Позиция символа состояния задачи в тексте заметки или -1,
+     * если строка с тех пор изменилась и задача устарела.
+     */
+    public static int stateOffset(String body, Task task) {
+        int start = 0;
+        for (int i = 0; i < task.line; i++) {
+            start = body.indexOf('\n', start);
+            if (start < 0) {
+                return -1;
+            }
+            start++;
+        }
+        int end = body.indexOf('\n', start);
+        String line = body.substring(start, end < 0 ? body.length() : end);
+
+        Matcher matcher = TASK_PATTERN.matcher(stripCarriageReturn(line));
+        if (!matcher.matches()
+                || matcher.end(1) != task.stateColumn
+                || !matcher.group(4).equals(task.text)
+                || isDone(matcher.group(2).charAt(0)) != task.done) {
+            return -1;
+        }
+        return start + task.stateColumn;
+    }
+
+    /**
+     * Текст заметки с переключённой задачей (меняется один символ её строки)
+     * или null, если задача устарела.
+     */
+    public static String toggle(String body, Task task) {
+        int offset = stateOffset(body, task);
+        if (offset < 0) {
+            return null;
+        }
+        return body.substring(0, offset) + (task.done ? ' ' : 'x') + body.substring(offset + 1);
+    }
+
+    static List<Task> parse(Path path, String title, String body) {
+        List<Task> tasks = new ArrayList<>();
+        if (body == null || body.isEmpty()) {
+            return tasks;
+        }
+
+        String[] lines = body.split("\n", -1);
+        boolean inCode = false;
+        for (int i = 0; i < lines.length; i++) {
+            String line = stripCarriageReturn(lines[i]);
+            String trimmed = line.trim();
+            if (trimmed.startsWith("```") || trimmed.startsWith("~~~")) {
+                inCode = !inCode;
+                continue;
+            }
+            if (inCode || trimmed.length() < 5) {
+                continue;
+            }
+
+            Matcher matcher = TASK_PATTERN.matcher(line);
+            if (!matcher.matches()) {
+                continue;
+            }
+            String text = matcher.group(4);
+            tasks.add(new Task(path, title, i, matcher.end(1), text,
+                    isDone(matcher.group(2).charAt(0)), tagsOf(text), datesOf(text)));
+        }
+        return tasks;
+    }
+
+    private static boolean isDone(char state) {
+        return state != ' ';
+    }
+
+    private static Set<String> tagsOf(String text) {
+        Set<String> tags = new LinkedHashSet<>();
+        Matcher matcher = TAG_PATTERN.matcher(text);
+        while (matcher.find()) {
+            tags.add(matcher.group(1));
+        }
+        return tags.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(tags);
+    }
+
+    private static List<LocalDate> datesOf(String text) {
+        List<LocalDate> dates = new ArrayList<>();
+        Matcher matcher = DATE_PATTERN.matcher(text);
+        while (matcher.find()) {
+            try {
+                dates.add(LocalDate.parse(matcher.group(1)));
+            } catch (DateTimeParseException e) {
+                // Похоже на дату, но не дата (2026-13-45) — пропускаем
+            }
+        }
+        return dates.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(dates);
+    }
+
+    private static String stripCarriageReturn(String line) {
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+    }
+}
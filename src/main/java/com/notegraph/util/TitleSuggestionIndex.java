@@ -0,0 +1,536 @@
+package com.notegraph.util;
+
+import com.notegraph.model.Note;
+
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Индекс подсказок по названиям заметок (автодополнение [[ и быстрое открытие).
+ * <p>
+ * Нормализованные названия и псевдонимы (aliases из frontmatter) хранятся
+ * в сжатом префиксном дереве. У каждой заметки есть вес (сколько раз её
+ * открывали), у каждого узла — максимальный вес в поддереве, поэтому лучшие
+ * совпадения по префиксу находятся без обхода всего поддерева.
+ * Если совпадений по префиксу мало, добавляются нечёткие — с расстоянием
+ * редактирования до 2.
+ */
+public class TitleSuggestionIndex implements VaultIndex {
+    private static TitleSuggestionIndex instance;
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    /**
+     * Найденная заметка
+     */
+    public static class Suggestion {
+        public final String title;
+        public final Path path;
+
+        Suggestion(String title, Path path) {
+            this.title = title;
+            this.path = path;
+        }
+
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
+
+    /**
+     * Заметка в индексе. Один ключ может вести к нескольким заметкам
+     * с одинаковым названием, одна заметка — иметь несколько ключей.
+     */
+    private static final class Target {
+        Path path;
+        final String title;
+        final List<String> keys;
+        int weight;
+
+        Target(Path path, String title, List<String> keys, int weight) {
+            this.path = path;
+            this.title = title;
+            this.keys = keys;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Node {
+        /** Метка ребра от родителя. */
+        String label;
+        /** Дети, отсортированные по первому символу метки. */
+        Node[] children = NO_CHILDREN;
+        /** Заметки, ключ которых заканчивается в этом узле. */
+        List<Target> targets;
+        int maxWeight;
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+
+    private final Node root = new Node("");
+    private final Map<Path, Target> targetsByPath = new HashMap<>();
+    /** Сколько раз открывали заметку — начальный вес. */
+    private final ToIntFunction<Path> openCounts;
+
+    private TitleSuggestionIndex() {
+        Path vaultPath = FileSystemManager.getInstance().getVaultPath();
+        MetadataManager metadataManager = MetadataManager.getInstance();
+        this.openCounts = path -> metadataManager.getOpenCount(vaultPath.relativize(path).toString());
+    }
+
+    TitleSuggestionIndex(ToIntFunction<Path> openCounts) {
+        this.openCounts = openCounts;
+    }
+
+    public static synchronized TitleSuggestionIndex getInstance() {
+        if (instance == null) {
+            instance = new TitleSuggestionIndex();
+        }
+        return instance;
+    }
+
+    /**
+     * Ключ поиска: NFKC, нижний регистр, ё = е
+     */
+    public static String normalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .replace('ё', 'е')
+                .trim();
+    }
+
+    @Override
+    public synchronized void noteIndexed(Note note) {
+        Path path = note.getPath();
+        String title = note.getTitle();
+        if (path == null || title == null || title.isBlank()) {
+            return;
+        }
+
+        List<String> keys = new ArrayList<>();
+        keys.add(normalize(title));
+        for (String alias : aliasesOf(note)) {
+            String key = normalize(alias);
+            if (!key.isEmpty() && !keys.contains(key)) {
+                keys.add(key);
+            }
+        }
+
+        Target old = targetsByPath.get(path);
+        if (old != null && old.title.equals(title) && old.keys.equals(keys)) {
+            return;
+        }
+
+        int weight = old != null ? old.weight : openCounts.applyAsInt(path);
+        if (old != null) {
+            removeTarget(old);
+        }
+
+        Target target = new Target(path, title, keys, weight);
+        targetsByPath.put(path, target);
+        for (String key : keys) {
+            insert(key, target);
+        }
+    }
+
+    @Override
+    public synchronized void noteRemoved(Path path) {
+        Target target = targetsByPath.remove(path);
+        if (target != null) {
+            removeTarget(target);
+        }
+    }
+
+    @Override
+    public synchronized void notesMoved(Map<Path, Path> moves, Function<Path, Note> reader) {
+        List<Target> moved = new ArrayList<>(moves.size());
+        for (Path oldPath : moves.keySet()) {
+            moved.add(targetsByPath.remove(oldPath));
+        }
+        int i = 0;
+        for (Path newPath : moves.values()) {
+            Target target = moved.get(i++);
+            if (target != null) {
+                // Цель остаётся в тех же узлах дерева — меняется только путь
+                target.path = newPath;
+                targetsByPath.put(newPath, target);
+            }
+        }
+    }
+
+    /**
+     * Заметку открыли: поднять её в подсказках
+     */
+    public synchronized void noteOpened(Path path) {
+        Target target = targetsByPath.get(path);
+        if (target == null) {
+            return;
+        }
+        target.weight++;
+        for (String key : target.keys) {
+            updateWeights(key);
+        }
+    }
+
+    public synchronized int size() {
+        return targetsByPath.size();
+    }
+
+    /**
+     * Подсказки для введённого текста: сначала совпадения по префиксу
+     * (по убыванию веса), затем нечёткие.
+     */
+    public synchronized List<Suggestion> suggest(String query, int limit) {
+        String key = normalize(query == null ? "" : query);
+
+        List<Suggestion> result = new ArrayList<>(limit);
+        Set<Path> seen = new HashSet<>();
+
+        Node start = findPrefixNode(key);
+        if (start != null) {
+            collectBest(List.of(new Match(start, 0)), limit, result, seen);
+        }
+
+        int maxDistance = maxDistance(key.length());
+        if (result.size() < limit && maxDistance > 0) {
+            List<Match> fuzzy = new ArrayList<>();
+            int[] row = new int[key.length() + 1];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = i;
+            }
+            for (Node child : root.children) {
+                fuzzyMatch(child, key, row, maxDistance, fuzzy);
+            }
+            collectBest(fuzzy, limit, result, seen);
+        }
+
+        return result;
+    }
+
+    /**
+     * Допустимое число опечаток зависит от длины запроса
+     */
+    private static int maxDistance(int length) {
+        if (length <= 2) {
+            return 0;
+        }
+        return length <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Узел, поддерево которого содержит все ключи с данным префиксом
+     */
+    private Node findPrefixNode(String prefix) {
+        Node node = root;
+        int i = 0;
+
+        while (i < prefix.length()) {
+            Node child = child(node, prefix.charAt(i));
+            if (child == null) {
+                return null;
+            }
+
+            int common = commonPrefix(child.label, prefix, i);
+            if (i + common == prefix.length()) {
+                return child;
+            }
+            if (common < child.label.length()) {
+                return null;
+            }
+
+            node = child;
+            i += common;
+        }
+        return node;
+    }
+
+    /**
+     * Нечёткое совпадение префикса: строка DP расстояния Левенштейна
+     * пересчитывается по символам метки, ветки без шансов отсекаются.
+     */
+    private void fuzzyMatch(Node node, String query, int[] previousRow, int maxDistance, List<Match> result) {
+        int[] row = previousRow;
+
+        for (int c = 0; c < node.label.length(); c++) {
+            char ch = node.label.charAt(c);
+            int[] next = new int[row.length];
+            next[0] = row[0] + 1;
+            int rowMin = next[0];
+
+            for (int i = 1; i < row.length; i++) {
+                int cost = query.charAt(i - 1) == ch ? 0 : 1;
+                next[i] = Math.min(Math.min(next[i - 1] + 1, row[i] + 1), row[i - 1] + cost);
+                rowMin = Math.min(rowMin, next[i]);
+            }
+
+            if (next[next.length - 1] <= maxDistance) {
+                // Запрос совпал с началом ключа: подходит всё поддерево
+                result.add(new Match(node, next[next.length - 1]));
+                return;
+            }
+            if (rowMin > maxDistance) {
+                return;
+            }
+            row = next;
+        }
+
+        for (Node child : node.children) {
+            fuzzyMatch(child, query, row, maxDistance, result);
+        }
+    }
+
+    private record Match(Node node, int distance) {
+    }
+
+    /**
+     * Поиск лучших заметок в нескольких поддеревьях сразу: очередь с приоритетом
+     * по (расстояние, вес). Узел раскрывается, только когда его максимальный
+     * вес может попасть в результат.
+     */
+    private void collectBest(List<Match> matches, int limit, List<Suggestion> result, Set<Path> seen) {
+        record Entry(Object item, int distance, int weight, long order) {
+        }
+
+        PriorityQueue<Entry> queue = new PriorityQueue<>(Comparator
+                .comparingInt(Entry::distance)
+                .thenComparing(Comparator.comparingInt(Entry::weight).reversed())
+                .thenComparingLong(Entry::order));
+        long order = 0;
+
+        for (Match match : matches) {
+            queue.add(new Entry(match.node(), match.distance(), match.node().maxWeight, order++));
+        }
+
+        while (!queue.isEmpty() && result.size() < limit) {
+            Entry entry = queue.poll();
+
+            if (entry.item() instanceof Target target) {
+                if (seen.add(target.path)) {
+                    result.add(new Suggestion(target.title, target.path));
+                }
+                continue;
+            }
+
+            Node node = (Node) entry.item();
+            if (node.targets != null) {
+                for (Target target : node.targets) {
+                    queue.add(new Entry(target, entry.distance(), target.weight, order++));
+                }
+            }
+            for (Node child : node.children) {
+                queue.add(new Entry(child, entry.distance(), child.maxWeight, order++));
+            }
+        }
+    }
+
+    private void insert(String key, Target target) {
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = root;
+        int i = 0;
+
+        while (true) {
+            path.push(node);
+
+            if (i == key.length()) {
+                if (node.targets == null) {
+                    node.targets = new ArrayList<>(1);
+                }
+                node.targets.add(target);
+                break;
+            }
+
+            int index = childIndex(node, key.charAt(i));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(i));
+                leaf.targets = new ArrayList<>(1);
+                leaf.targets.add(target);
+                leaf.maxWeight = target.weight;
+                insertChild(node, -index - 1, leaf);
+                break;
+            }
+
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // Разделить ребро: общий префикс уходит в новый промежуточный узел
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children = new Node[]{child};
+                middle.maxWeight = child.maxWeight;
+                node.children[index] = middle;
+                child = middle;
+            }
+
+            node = child;
+            i += common;
+        }
+
+        while (!path.isEmpty()) {
+            recomputeWeight(path.pop());
+        }
+    }
+
+    private void removeTarget(Target target) {
+        for (String key : target.keys) {
+            remove(key, target);
+        }
+    }
+
+    private void remove(String key, Target target) {
+        List<Node> path = pathTo(key);
+        if (path == null) {
+            return;
+        }
+
+        Node node = path.get(path.size() - 1);
+        if (node.targets != null) {
+            node.targets.remove(target);
+            if (node.targets.isEmpty()) {
+                node.targets = null;
+            }
+        }
+
+        // Убрать опустевшие узлы и склеить узлы с единственным ребёнком
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node current = path.get(i);
+            Node parent = path.get(i - 1);
+
+            if (current.targets == null && current.children.length == 0) {
+                removeChild(parent, current);
+            } else if (current.targets == null && current.children.length == 1) {
+                Node only = current.children[0];
+                current.label = current.label + only.label;
+                current.children = only.children;
+                current.targets = only.targets;
+            }
+        }
+
+        for (int i = path.size() - 1; i >= 0; i--) {
+            recomputeWeight(path.get(i));
+        }
+    }
+
+    private void updateWeights(String key) {
+        List<Node> path = pathTo(key);
+        if (path == null) {
+            return;
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            recomputeWeight(path.get(i));
+        }
+    }
+
+    /**
+     * Узлы от корня до узла, где заканчивается ключ, или null
+     */
+    private List<Node> pathTo(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int i = 0;
+        path.add(node);
+
+        while (i < key.length()) {
+            Node child = child(node, key.charAt(i));
+            if (child == null || !key.startsWith(child.label, i)) {
+                return null;
+            }
+            node = child;
+            i += child.label.length();
+            path.add(node);
+        }
+        return path;
+    }
+
+    private static void recomputeWeight(Node node) {
+        int max = 0;
+        if (node.targets != null) {
+            for (Target target : node.targets) {
+                max = Math.max(max, target.weight);
+            }
+        }
+        for (Node child : node.children) {
+            max = Math.max(max, child.maxWeight);
+        }
+        node.maxWeight = max;
+    }
+
+    private static Node child(Node node, char first) {
+        int index = childIndex(node, first);
+        return index >= 0 ? node.children[index] : null;
+    }
+
+    /**
+     * Двоичный поиск ребёнка по первому символу (как Arrays.binarySearch)
+     */
+    private static int childIndex(Node node, char first) {
+        int low = 0;
+        int high = node.children.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char c = node.children[mid].label.charAt(0);
+            if (c < first) {
+                low = mid + 1;
+            } else if (c > first) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static void insertChild(Node node, int position, Node child) {
+        Node[] children = new Node[node.children.length + 1];
+        System.arraycopy(node.children, 0, children, 0, position);
+        children[position] = child;
+        System.arraycopy(node.children, position, children, position + 1, node.children.length - position);
+        node.children = children;
+    }
+
+    private static void removeChild(Node node, Node child) {
+        int index = childIndex(node, child.label.charAt(0));
+        if (index < 0) {
+            return;
+        }
+        Node[] children = new Node[node.children.length - 1];
+        System.arraycopy(node.children, 0, children, 0, index);
+        System.arraycopy(node.children, index + 1, children, index, children.length - index);
+        node.children = children;
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Псевдонимы из frontmatter: список или строка через запятую
+     */
+    private static List<String> aliasesOf(Note note) {
+        Object aliases = note.getFrontmatter() != null ? note.getFrontmatter().get("aliases") : null;
+        List<String> result = new ArrayList<>();
+
+        if (aliases instanceof Collection<?> list) {
+            for (Object alias : list) {
+                if (alias != null) {
+                    result.add(alias.toString());
+                }
+            }
+        } else if (aliases instanceof String text) {
+            for (String alias : text.replaceAll("^\\[|]$", "").split(",")) {
+                result.add(alias.trim().replaceAll("^[\"']|[\"']$", ""));
+            }
+        }
+        return result;
+    }
+}
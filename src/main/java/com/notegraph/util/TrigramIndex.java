@@ -0,0 +1,415 @@
+package com.notegraph.util;
+
+import com.notegraph.model.Note;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Триграммный индекс для поиска подстрок (в том числе внутри слов) и поиска с опечатками.
+ * <p>
+ * Для каждой триграммы хранится отсортированный список документов, закодированный
+ * разностями в varint. Каждая индексация заметки получает новый номер документа,
+ * старый помечается удалённым, поэтому списки только дописываются в конец.
+ * Когда удалённых документов становится много, индекс уплотняется.
+ * <p>
+ * Индекс даёт кандидатов: заметки, в которых встречаются все триграммы запроса.
+ * Совпадение нужно проверить по самому тексту.
+ */
+public class TrigramIndex implements VaultIndex {
+    private static final Logger logger = LoggerFactory.getLogger(TrigramIndex.class);
+    private static TrigramIndex instance;
+
+    /** Уплотнять, когда удалённых документов больше, чем живых (но не реже этого порога). */
+    private static final int MIN_DEAD_FOR_COMPACTION = 1024;
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    /** Путь по номеру документа; null — документ удалён. */
+    private final List<Path> paths = new ArrayList<>();
+    private final Map<Path, Integer> docsByPath = new HashMap<>();
+    /** Хеш проиндексированного текста: повторное сохранение без изменений не трогает индекс. */
+    private final Map<Path, String> textHashes = new HashMap<>();
+    private int deadDocs;
+
+    /**
+     * Список документов одной триграммы
+     */
+    private static final class Postings {
+        byte[] data = new byte[4];
+        int length;
+        int count;
+        int last;
+
+        void append(int doc) {
+            int delta = count == 0 ? doc : doc - last;
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+            }
+            while ((delta & ~0x7F) != 0) {
+                data[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            data[length++] = (byte) delta;
+            last = doc;
+            count++;
+        }
+
+        int[] decode() {
+            int[] docs = new int[count];
+            int position = 0;
+            int doc = 0;
+            for (int i = 0; i < count; i++) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                doc = i == 0 ? delta : doc + delta;
+                docs[i] = doc;
+            }
+            return docs;
+        }
+    }
+
+    TrigramIndex() {
+    }
+
+    public static synchronized TrigramIndex getInstance() {
+        if (instance == null) {
+            instance = new TrigramIndex();
+        }
+        return instance;
+    }
+
+    @Override
+    public synchronized void noteIndexed(Note note) {
+        Path path = note.getPath();
+        if (path == null) {
+            return;
+        }
+
+        String text = indexedText(note);
+        String hash = ContentHash.of(text);
+        if (hash.equals(textHashes.get(path)) && docsByPath.containsKey(path)) {
+            return;
+        }
+
+        removeDoc(path);
+
+        int doc = paths.size();
+        paths.add(path);
+        docsByPath.put(path, doc);
+        textHashes.put(path, hash);
+
+        for (long trigram : trigrams(text)) {
+            postings.computeIfAbsent(trigram, k -> new Postings()).append(doc);
+        }
+
+        compactIfNeeded();
+    }
+
+    @Override
+    public synchronized void noteRemoved(Path path) {
+        removeDoc(path);
+        textHashes.remove(path);
+        compactIfNeeded();
+    }
+
+    @Override
+    public synchronized void notesMoved(Map<Path, Path> moves, Function<Path, Note> reader) {
+        List<Integer> docs = new ArrayList<>(moves.size());
+        List<String> hashes = new ArrayList<>(moves.size());
+        for (Path oldPath : moves.keySet()) {
+            docs.add(docsByPath.remove(oldPath));
+            hashes.add(textHashes.remove(oldPath));
+        }
+        int i = 0;
+        for (Path newPath : moves.values()) {
+            Integer doc = docs.get(i);
+            String hash = hashes.get(i++);
+            if (doc != null) {
+                paths.set(doc, newPath);
+                docsByPath.put(newPath, doc);
+            }
+            if (hash != null) {
+                textHashes.put(newPath, hash);
+            }
+        }
+    }
+
+    /**
+     * Заметки, которые могут содержать подстроку.
+     *
+     * @return кандидаты или null, если запрос короче триграммы и сузить поиск нельзя
+     */
+    public synchronized List<Path> findCandidates(String query) {
+        long[] queryTrigrams = trigrams(normalize(query));
+        if (queryTrigrams.length == 0) {
+            return null;
+        }
+
+        List<Postings> lists = new ArrayList<>(queryTrigrams.length);
+        for (long trigram : queryTrigrams) {
+            Postings list = postings.get(trigram);
+            if (list == null) {
+                return new ArrayList<>();
+            }
+            lists.add(list);
+        }
+
+        // Пересечение начинается с самого короткого списка
+        lists.sort(Comparator.comparingInt(list -> list.count));
+        int[] docs = lists.get(0).decode();
+        int size = docs.length;
+        for (int i = 1; i < lists.size() && size > 0; i++) {
+            size = intersect(docs, size, lists.get(i).decode());
+        }
+
+        return livePaths(docs, size);
+    }
+
+    /**
+     * Верхняя оценка числа кандидатов для подстроки без пересечения списков:
+     * длина самого короткого списка триграмм запроса
+     *
+     * @return оценка или -1, если запрос короче триграммы
+     */
+    public synchronized int estimateCandidates(String query) {
+        long[] queryTrigrams = trigrams(normalize(query));
+        if (queryTrigrams.length == 0) {
+            return -1;
+        }
+
+        int min = Integer.MAX_VALUE;
+        for (long trigram : queryTrigrams) {
+            Postings list = postings.get(trigram);
+            if (list == null) {
+                return 0;
+            }
+            min = Math.min(min, list.count);
+        }
+        return min;
+    }
+
+    /**
+     * Заметки, которые могут содержать подстроку с не более чем maxEdits опечатками.
+     * Такая подстрока сохраняет хотя бы (триграмм запроса − 3·maxEdits) триграмм,
+     * поэтому оценка работает с 6 символов для одной правки и с 9 — для двух.
+     *
+     * @return кандидаты или null, если запрос слишком короткий и сузить поиск нельзя
+     */
+    public synchronized List<Path> findApproximateCandidates(String query, int maxEdits) {
+        long[] queryTrigrams = trigrams(normalize(query));
+        int required = queryTrigrams.length - 3 * maxEdits;
+        if (required <= 0) {
+            return null;
+        }
+
+        int[] hits = new int[paths.size()];
+        int[] matched = new int[paths.size()];
+        int size = 0;
+
+        for (long trigram : queryTrigrams) {
+            Postings list = postings.get(trigram);
+            if (list == null) {
+                continue;
+            }
+            for (int doc : list.decode()) {
+                if (++hits[doc] == required) {
+                    matched[size++] = doc;
+                }
+            }
+        }
+
+        Arrays.sort(matched, 0, size);
+        return livePaths(matched, size);
+    }
+
+    public synchronized int size() {
+        return docsByPath.size();
+    }
+
+    /**
+     * Нормализация, которая не меняет длину текста: нижний регистр,
+     * ё = е, пробельные символы = пробел
+     */
+    public static String normalize(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            char c = Character.toLowerCase(chars[i]);
+            if (c == 'ё') {
+                c = 'е';
+            } else if (Character.isWhitespace(c)) {
+                c = ' ';
+            }
+            chars[i] = c;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Содержит ли текст подстроку, отличающуюся от образца не более чем на maxEdits
+     * правок (алгоритм Селлерса). Сравнение без учёта регистра и ё/е.
+     */
+    public static boolean containsApproximately(String text, String pattern, int maxEdits) {
+        String t = normalize(text);
+        String p = normalize(pattern);
+        int m = p.length();
+        if (m == 0) {
+            return true;
+        }
+
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int i = 0; i <= m; i++) {
+            previous[i] = i;
+        }
+
+        for (int j = 0; j < t.length(); j++) {
+            current[0] = 0;
+            char c = t.charAt(j);
+            for (int i = 1; i <= m; i++) {
+                int cost = p.charAt(i - 1) == c ? 0 : 1;
+                current[i] = Math.min(Math.min(current[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+            }
+            if (current[m] <= maxEdits) {
+                return true;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return false;
+    }
+
+    /**
+     * Текст заметки для индекса: имя файла, название, frontmatter и тело
+     */
+    private static String indexedText(Note note) {
+        StringBuilder text = new StringBuilder();
+        text.append(note.getPath().getFileName().toString()).append('\n');
+        if (note.getTitle() != null) {
+            text.append(note.getTitle()).append('\n');
+        }
+        if (note.getFrontmatter() != null) {
+            note.getFrontmatter().forEach((key, value) ->
+                    text.append(key).append(": ").append(value).append('\n'));
+        }
+        if (note.getBodyContent() != null) {
+            text.append(note.getBodyContent());
+        }
+        return normalize(text.toString());
+    }
+
+    /**
+     * Различные триграммы текста, отсортированные. Триграмма — три символа в одном long.
+     */
+    private static long[] trigrams(String text) {
+        if (text.length() < 3) {
+            return new long[0];
+        }
+
+        long[] result = new long[text.length() - 2];
+        for (int i = 0; i + 2 < text.length(); i++) {
+            result[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        Arrays.sort(result);
+
+        int size = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (size == 0 || result[size - 1] != result[i]) {
+                result[size++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Оставить в docs[0..size) только номера, которые есть в other; возвращает новый размер
+     */
+    private static int intersect(int[] docs, int size, int[] other) {
+        int result = 0;
+        int j = 0;
+        for (int i = 0; i < size && j < other.length; i++) {
+            while (j < other.length && other[j] < docs[i]) {
+                j++;
+            }
+            if (j < other.length && other[j] == docs[i]) {
+                docs[result++] = docs[i];
+            }
+        }
+        return result;
+    }
+
+    private List<Path> livePaths(int[] docs, int size) {
+        List<Path> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Path path = paths.get(docs[i]);
+            if (path != null) {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    private void removeDoc(Path path) {
+        Integer doc = docsByPath.remove(path);
+        if (doc != null) {
+            paths.set(doc, null);
+            deadDocs++;
+        }
+    }
+
+    /**
+     * Перенумеровать живые документы подряд и выбросить удалённые из всех списков
+     */
+    private void compactIfNeeded() {
+        if (deadDocs < MIN_DEAD_FOR_COMPACTION || deadDocs < docsByPath.size()) {
+            return;
+        }
+
+        int[] remap = new int[paths.size()];
+        List<Path> livePaths = new ArrayList<>(docsByPath.size());
+        for (int doc = 0; doc < paths.size(); doc++) {
+            Path path = paths.get(doc);
+            if (path == null) {
+                remap[doc] = -1;
+            } else {
+                remap[doc] = livePaths.size();
+                docsByPath.put(path, livePaths.size());
+                livePaths.add(path);
+            }
+        }
+
+        Iterator<Map.Entry<Long, Postings>> iterator = postings.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Postings> entry = iterator.next();
+            Postings compacted = new Postings();
+            for (int doc : entry.getValue().decode()) {
+                if (remap[doc] >= 0) {
+                    compacted.append(remap[doc]);
+                }
+            }
+            if (compacted.count == 0) {
+                iterator.remove();
+            } else {
+                compacted.data = Arrays.copyOf(compacted.data, compacted.length);
+                entry.setValue(compacted);
+            }
+        }
+
+        logger.debug("Триграммный индекс уплотнён: удалено документов {}, осталось {}",
+                deadDocs, livePaths.size());
+
+        paths.clear();
+        paths.addAll(livePaths);
+        deadDocs = 0;
+    }
+}
@@ -0,0 +1,50 @@
+package com.notegraph.util;
+
+import com.notegraph.model.Note;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Индекс, который {@link VaultIndexer} держит в актуальном состоянии.
+ * <p>
+ * Методы вызываются из фоновых потоков (сканирование, сохранение, наблюдение
+ * за файлами), поэтому реализации должны быть потокобезопасными.
+ * Переданную заметку нельзя сохранять как есть: её может менять вызывающий код.
+ */
+public interface VaultIndex {
+
+    /**
+     * Заметка добавлена или изменилась
+     */
+    void noteIndexed(Note note);
+
+    /**
+     * Заметка удалена (или перемещена — тогда затем придёт noteIndexed с новым путём)
+     */
+    void noteRemoved(Path path);
+
+    /**
+     * Заметки перемещены вместе с папкой (старый путь → новый); названия и текст
+     * не изменились. По умолчанию заметки удаляются и индексируются заново,
+     * индексы с ключом по пути переопределяют метод и только меняют пути.
+     *
+     * @param reader чтение заметки по новому пути (null, если прочитать не удалось)
+     */
+    default void notesMoved(Map<Path, Path> moves, Function<Path, Note> reader) {
+        for (Map.Entry<Path, Path> move : moves.entrySet()) {
+            noteRemoved(move.getKey());
+            Note note = reader.apply(move.getValue());
+            if (note != null) {
+                noteIndexed(note);
+            }
+        }
+    }
+
+    /**
+     * Первичное сканирование vault завершено
+     */
+    default void scanCompleted() {
+    }
+}
@@ -0,0 +1,256 @@
+package com.notegraph.util;
+
+import com.notegraph.model.Note;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Поддерживает индексы vault ({@link VaultIndex}) в актуальном состоянии.
+ * <p>
+ * При запуске один раз читает все заметки в фоне. Дальше индексы обновляются
+ * точечно: после сохранения, создания, удаления и перемещения заметок
+ * (из NoteServiceImpl) и по событиям FileWatcherService.
+ */
+public class VaultIndexer {
+    private static final Logger logger = LoggerFactory.getLogger(VaultIndexer.class);
+    private static VaultIndexer instance;
+
+    private final FileSystemManager fsManager = FileSystemManager.getInstance();
+    private final CopyOnWriteArrayList<VaultIndex> indexes = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor;
+
+    /** Время изменения файла на момент последней индексации. */
+    private final Map<Path, Long> indexedModified = new ConcurrentHashMap<>();
+
+    /** Заметки, обновлённые во время первичного сканирования, — сканер их пропускает. */
+    private final Set<Path> updatedDuringScan = ConcurrentHashMap.newKeySet();
+
+    private final CountDownLatch scanLatch = new CountDownLatch(1);
+    private volatile boolean scanStarted;
+
+    private VaultIndexer() {
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "vault-indexer-thread");
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        });
+        indexes.add(NotePathIndex.getInstance());
+    }
+
+    public static synchronized VaultIndexer getInstance() {
+        if (instance == null) {
+            instance = new VaultIndexer();
+        }
+        return instance;
+    }
+
+    /**
+     * Подключить индекс. Индексы нужно подключать до {@link #startScan()};
+     * повторное подключение того же индекса ничего не делает.
+     */
+    public void addIndex(VaultIndex index) {
+        indexes.addIfAbsent(index);
+    }
+
+    /**
+     * Запустить первичное сканирование vault (один раз)
+     */
+    public synchronized void startScan() {
+        if (scanStarted) {
+            return;
+        }
+        scanStarted = true;
+        executor.execute(this::scan);
+    }
+
+    /**
+     * Дождаться окончания первичного сканирования
+     */
+    public boolean awaitScan(long timeout, TimeUnit unit) {
+        try {
+            return scanLatch.await(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public boolean isScanComplete() {
+        return scanLatch.getCount() == 0;
+    }
+
+    /**
+     * Заметка создана или сохранена приложением
+     */
+    public void noteUpdated(Note note) {
+        if (note == null || note.getPath() == null) {
+            return;
+        }
+        if (!isScanComplete()) {
+            updatedDuringScan.add(note.getPath());
+        }
+        rememberModified(note.getPath());
+
+        for (VaultIndex index : indexes) {
+            index.noteIndexed(note);
+        }
+    }
+
+    /**
+     * Заметка удалена
+     */
+    public void noteRemoved(Path path) {
+        if (!isScanComplete()) {
+            updatedDuringScan.add(path);
+        }
+        indexedModified.remove(path);
+
+        for (VaultIndex index : indexes) {
+            index.noteRemoved(path);
+        }
+    }
+
+    /**
+     * Заметка перемещена или переименована
+     */
+    public void noteMoved(Path oldPath, Note note) {
+        noteRemoved(oldPath);
+        noteUpdated(note);
+    }
+
+    /**
+     * Папка перемещена или переименована (файлы уже на новом месте).
+     * Заметки поддерева берутся из индекса путей по префиксу; индексы только
+     * меняют пути, файлы не перечитываются.
+     *
+     * @return старый путь заметки → новый
+     */
+    public Map<Path, Path> subtreeMoved(Path from, Path to) {
+        Map<Path, Path> moves = new LinkedHashMap<>();
+
+        if (!isScanComplete()) {
+            // Индекс путей ещё не полон: заметки берутся с диска и перечитываются
+            try (Stream<Path> stream = Files.walk(to)) {
+                stream.filter(fsManager::isNote)
+                        .forEach(path -> moves.put(from.resolve(to.relativize(path)), path));
+            } catch (IOException e) {
+                logger.error("Ошибка обхода перемещённой папки: {}", to, e);
+            }
+            for (Map.Entry<Path, Path> move : moves.entrySet()) {
+                noteRemoved(move.getKey());
+                updatedDuringScan.add(move.getValue());
+                reindex(move.getValue());
+            }
+            return moves;
+        }
+
+        for (Path path : NotePathIndex.getInstance().pathsUnder(from)) {
+            moves.put(path, to.resolve(from.relativize(path)));
+        }
+
+        for (Map.Entry<Path, Path> move : moves.entrySet()) {
+            Long modified = indexedModified.remove(move.getKey());
+            if (modified != null) {
+                indexedModified.put(move.getValue(), modified);
+            }
+        }
+
+        for (VaultIndex index : indexes) {
+            index.notesMoved(moves, path -> {
+                try {
+                    return NoteParser.parseNote(path);
+                } catch (IOException e) {
+                    logger.error("Ошибка чтения перемещённой заметки: {}", path, e);
+                    return null;
+                }
+            });
+        }
+
+        logger.info("Папка перемещена: {} -> {} ({} заметок)", from, to, moves.size());
+        return moves;
+    }
+
+    /**
+     * Перечитать заметку, изменённую вне приложения (в фоне).
+     * Если файл не менялся с последней индексации, ничего не делает.
+     */
+    public void reindex(Path path) {
+        executor.execute(() -> {
+            try {
+                if (!Files.exists(path)) {
+                    noteRemoved(path);
+                    return;
+                }
+
+                long modified = Files.getLastModifiedTime(path).toMillis();
+                Long indexed = indexedModified.get(path);
+                if (indexed != null && indexed == modified) {
+                    return;
+                }
+
+                noteUpdated(NoteParser.parseNote(path));
+            } catch (Exception e) {
+                logger.error("Ошибка индексации заметки: {}", path, e);
+            }
+        });
+    }
+
+    private void scan() {
+        long start = System.currentTimeMillis();
+        int count = 0;
+
+        try {
+            for (Path path : fsManager.getAllNotes()) {
+                if (updatedDuringScan.contains(path)) {
+                    continue;
+                }
+
+                try {
+                    Note note = NoteParser.parseNote(path);
+                    if (updatedDuringScan.contains(path)) {
+                        continue;
+                    }
+
+                    rememberModified(path);
+                    for (VaultIndex index : indexes) {
+                        index.noteIndexed(note);
+                    }
+                    count++;
+                } catch (Exception e) {
+                    logger.error("Ошибка чтения заметки при индексации: {}", path, e);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Ошибка сканирования vault", e);
+        }
+
+        updatedDuringScan.clear();
+        scanLatch.countDown();
+
+        for (VaultIndex index : indexes) {
+            index.scanCompleted();
+        }
+
+        logger.info("Индексация vault завершена: {} заметок за {} мс",
+                count, System.currentTimeMillis() - start);
+    }
+
+    private void rememberModified(Path path) {
+        try {
+            indexedModified.put(path, Files.getLastModifiedTime(path).toMillis());
+        } catch (IOException e) {
+            indexedModified.remove(path);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.notegraph.util.markdown;
+
+import org.commonmark.Extension;
+import org.commonmark.parser.Parser;
+import org.commonmark.renderer.html.HtmlRenderer;
+
+/**
+ * Расширение CommonMark для синтаксиса заметок: wiki-ссылки, теги и списки задач.
+ * <p>
+ * Синтаксис распознаётся на этапе пост-обработки дерева (как в autolink-расширении),
+ * поэтому содержимое блоков и фрагментов кода не затрагивается.
+ */
+public class NoteMarkdownExtension implements Parser.ParserExtension, HtmlRenderer.HtmlRendererExtension {
+
+    private NoteMarkdownExtension() {
+    }
+
+    public static Extension create() {
+        return new NoteMarkdownExtension();
+    }
+
+    @Override
+    public void extend(Parser.Builder parserBuilder) {
+        parserBuilder.postProcessor(new NoteSyntaxPostProcessor());
+    }
+
+    @Override
+    public void extend(HtmlRenderer.Builder rendererBuilder) {
+        rendererBuilder.nodeRendererFactory(NoteSyntaxNodeRenderer::new);
+    }
+}
@@ -0,0 +1,81 @@
+package com.notegraph.util.markdown;
+
+import org.commonmark.node.Node;
+import org.commonmark.renderer.NodeRenderer;
+import org.commonmark.renderer.html.HtmlNodeRendererContext;
+import org.commonmark.renderer.html.HtmlWriter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * HTML-рендеринг узлов {@link WikiLink}, {@link Tag} и {@link TaskListMarker}.
+ * Ссылки и теги вызывают методы JavaBridge (window.javaApp) в превью.
+ */
+class NoteSyntaxNodeRenderer implements NodeRenderer {
+
+    private final HtmlNodeRendererContext context;
+    private final HtmlWriter html;
+
+    NoteSyntaxNodeRenderer(HtmlNodeRendererContext context) {
+        this.context = context;
+        this.html = context.getWriter();
+    }
+
+    @Override
+    public Set<Class<? extends Node>> getNodeTypes() {
+        return Set.of(WikiLink.class, Tag.class, TaskListMarker.class);
+    }
+
+    @Override
+    public void render(Node node) {
+        if (node instanceof WikiLink link) {
+            renderWikiLink(link);
+        } else if (node instanceof Tag tag) {
+            renderTag(tag);
+        } else if (node instanceof TaskListMarker marker) {
+            renderTaskMarker(marker);
+        }
+    }
+
+    private void renderWikiLink(WikiLink link) {
+        Map<String, String> attrs = new LinkedHashMap<>();
+        attrs.put("href", "#");
+        attrs.put("class", "wiki-link");
+        attrs.put("data-note", link.getTarget());
+        attrs.put("onclick", "window.javaApp.openNote(this.getAttribute('data-note')); return false;");
+
+        html.tag("a", context.extendAttributes(link, "a", attrs));
+        for (Node child = link.getFirstChild(); child != null; ) {
+            Node next = child.getNext();
+            context.render(child);
+            child = next;
+        }
+        html.tag("/a");
+    }
+
+    private void renderTag(Tag tag) {
+        Map<String, String> attrs = new LinkedHashMap<>();
+        attrs.put("href", "#");
+        attrs.put("class", "tag");
+        attrs.put("data-tag", tag.getName());
+        attrs.put("onclick", "window.javaApp.openTag(this.getAttribute('data-tag')); return false;");
+
+        html.tag("a", context.extendAttributes(tag, "a", attrs));
+        html.text("#" + tag.getName());
+        html.tag("/a");
+    }
+
+    private void renderTaskMarker(TaskListMarker marker) {
+        Map<String, String> attrs = new LinkedHashMap<>();
+        attrs.put("type", "checkbox");
+        attrs.put("disabled", "");
+        if (marker.isChecked()) {
+            attrs.put("checked", "");
+        }
+
+        html.tag("input", context.extendAttributes(marker, "input", attrs), true);
+        html.raw(" ");
+    }
+}
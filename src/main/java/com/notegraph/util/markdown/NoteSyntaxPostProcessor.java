@@ -0,0 +1,286 @@
+package com.notegraph.util.markdown;
+
+import org.commonmark.node.*;
+import org.commonmark.parser.PostProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Распознаёт wiki-ссылки, теги и маркеры задач в текстовых узлах документа.
+ * <p>
+ * Обрабатываются только узлы {@link Text}: код (inline и блоки), HTML и
+ * содержимое обычных ссылок сюда не попадают.
+ */
+class NoteSyntaxPostProcessor implements PostProcessor {
+
+    private static final Pattern TAG_PATTERN = Pattern.compile("#([\\p{L}\\p{N}_-]+(?:/[\\p{L}\\p{N}_-]+)*)");
+
+    @Override
+    public Node process(Node document) {
+        TextCollector collector = new TextCollector();
+        document.accept(collector);
+
+        for (ListItem item : collector.listItems) {
+            processTaskMarker(item);
+        }
+
+        for (Text text : collector.texts) {
+            if (text.getParent() != null) {
+                processWikiLinks(text);
+            }
+        }
+
+        TextCollector tagCollector = new TextCollector();
+        document.accept(tagCollector);
+
+        for (Text text : tagCollector.texts) {
+            processTags(text);
+        }
+
+        return document;
+    }
+
+    /**
+     * "- [ ] задача" / "- [x] задача" -> маркер задачи + текст
+     */
+    private void processTaskMarker(ListItem item) {
+        if (!(item.getFirstChild() instanceof Paragraph paragraph)) {
+            return;
+        }
+        if (!(paragraph.getFirstChild() instanceof Text text)) {
+            return;
+        }
+
+        String literal = text.getLiteral();
+        if (literal.length() < 4 || literal.charAt(0) != '[' || literal.charAt(2) != ']' || literal.charAt(3) != ' ') {
+            return;
+        }
+
+        char state = literal.charAt(1);
+        if (state != ' ' && state != 'x' && state != 'X') {
+            return;
+        }
+
+        text.setLiteral(literal.substring(4));
+        text.insertBefore(new TaskListMarker(state != ' '));
+    }
+
+    private void processWikiLinks(Text text) {
+        Text current = text;
+
+        while (current != null) {
+            String literal = current.getLiteral();
+            int open = literal.indexOf("[[");
+            if (open < 0) {
+                return;
+            }
+
+            int close = literal.indexOf("]]", open + 2);
+            if (close >= 0) {
+                String inner = literal.substring(open + 2, close);
+                if (inner.isBlank() || inner.indexOf(']') >= 0) {
+                    current = splitAfter(current, close + 2);
+                    continue;
+                }
+
+                WikiLink link = createWikiLink(inner);
+                Text rest = new Text(literal.substring(close + 2));
+
+                current.setLiteral(literal.substring(0, open));
+                current.insertAfter(link);
+                link.insertAfter(rest);
+                unlinkIfEmpty(current);
+
+                current = rest;
+                unlinkIfEmpty(rest);
+                if (rest.getParent() == null) {
+                    return;
+                }
+            } else {
+                current = wrapAcrossNodes(current, open);
+            }
+        }
+    }
+
+    /**
+     * Ссылка, внутри которой есть форматирование: [[Заметка|текст *с выделением*]].
+     * Возвращает текстовый узел с остатком после "]]" или null, если ссылка не закрыта.
+     */
+    private Text wrapAcrossNodes(Text opening, int open) {
+        List<Node> middle = new ArrayList<>();
+        Text closing = null;
+
+        for (Node node = opening.getNext(); node != null; node = node.getNext()) {
+            if (node instanceof Text candidate && candidate.getLiteral().contains("]]")) {
+                closing = candidate;
+                break;
+            }
+            if (node instanceof SoftLineBreak || node instanceof HardLineBreak) {
+                return null;
+            }
+            middle.add(node);
+        }
+
+        if (closing == null) {
+            return null;
+        }
+
+        String literal = opening.getLiteral();
+        String head = literal.substring(open + 2);
+        int closeIndex = closing.getLiteral().indexOf("]]");
+        String tail = closing.getLiteral().substring(0, closeIndex);
+
+        WikiLink link;
+        int pipe = head.indexOf('|');
+        if (pipe >= 0) {
+            link = new WikiLink(head.substring(0, pipe).trim());
+            appendText(link, head.substring(pipe + 1));
+        } else {
+            StringBuilder target = new StringBuilder(head);
+            for (Node node : middle) {
+                appendPlainText(node, target);
+            }
+            target.append(tail);
+            link = new WikiLink(target.toString().trim());
+            appendText(link, head);
+        }
+
+        for (Node node : middle) {
+            node.unlink();
+            link.appendChild(node);
+        }
+        appendText(link, tail);
+
+        opening.setLiteral(literal.substring(0, open));
+        opening.insertAfter(link);
+        unlinkIfEmpty(opening);
+
+        closing.setLiteral(closing.getLiteral().substring(closeIndex + 2));
+        if (closing.getLiteral().isEmpty()) {
+            closing.unlink();
+            return null;
+        }
+        return closing;
+    }
+
+    private void processTags(Text text) {
+        String literal = text.getLiteral();
+        if (literal.indexOf('#') < 0) {
+            return;
+        }
+
+        Matcher matcher = TAG_PATTERN.matcher(literal);
+        Node last = text;
+        int position = 0;
+
+        while (matcher.find()) {
+            int start = matcher.start();
+            if (start > 0 && isWordChar(literal.charAt(start - 1))) {
+                continue;
+            }
+
+            if (start > position) {
+                Text before = new Text(literal.substring(position, start));
+                last.insertAfter(before);
+                last = before;
+            }
+
+            Tag tag = new Tag(matcher.group(1));
+            last.insertAfter(tag);
+            last = tag;
+            position = matcher.end();
+        }
+
+        if (last == text) {
+            return;
+        }
+
+        if (position < literal.length()) {
+            last.insertAfter(new Text(literal.substring(position)));
+        }
+        text.unlink();
+    }
+
+    private WikiLink createWikiLink(String inner) {
+        int pipe = inner.indexOf('|');
+        String target = pipe >= 0 ? inner.substring(0, pipe).trim() : inner.trim();
+        String label = pipe >= 0 ? inner.substring(pipe + 1) : inner;
+
+        WikiLink link = new WikiLink(target);
+        appendText(link, label);
+        return link;
+    }
+
+    private Text splitAfter(Text text, int index) {
+        String literal = text.getLiteral();
+        if (index >= literal.length()) {
+            return null;
+        }
+        Text rest = new Text(literal.substring(index));
+        text.setLiteral(literal.substring(0, index));
+        text.insertAfter(rest);
+        return rest;
+    }
+
+    private void appendText(Node parent, String literal) {
+        if (!literal.isEmpty()) {
+            parent.appendChild(new Text(literal));
+        }
+    }
+
+    private void appendPlainText(Node node, StringBuilder sb) {
+        if (node instanceof Text text) {
+            sb.append(text.getLiteral());
+        } else if (node instanceof Code code) {
+            sb.append(code.getLiteral());
+        }
+        for (Node child = node.getFirstChild(); child != null; child = child.getNext()) {
+            appendPlainText(child, sb);
+        }
+    }
+
+    private void unlinkIfEmpty(Text text) {
+        if (text.getLiteral().isEmpty()) {
+            text.unlink();
+        }
+    }
+
+    private boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '&';
+    }
+
+    /**
+     * Собирает текстовые узлы и элементы списков, пропуская содержимое ссылок.
+     */
+    private static class TextCollector extends AbstractVisitor {
+        final List<Text> texts = new ArrayList<>();
+        final List<ListItem> listItems = new ArrayList<>();
+
+        @Override
+        public void visit(Text text) {
+            texts.add(text);
+        }
+
+        @Override
+        public void visit(ListItem listItem) {
+            listItems.add(listItem);
+            visitChildren(listItem);
+        }
+
+        @Override
+        public void visit(Link link) {
+            // Текст обычной ссылки не разбираем
+        }
+
+        @Override
+        public void visit(CustomNode customNode) {
+            if (customNode instanceof WikiLink) {
+                return;
+            }
+            visitChildren(customNode);
+        }
+    }
+}
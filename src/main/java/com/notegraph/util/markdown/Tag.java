@@ -0,0 +1,22 @@
+package com.notegraph.util.markdown;
+
+import org.commonmark.node.CustomNode;
+
+/**
+ * Узел тега #тег внутри текста заметки.
+ */
+public class Tag extends CustomNode {
+
+    private final String name;
+
+    public Tag(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Имя тега без символа #
+     */
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,19 @@
+package com.notegraph.util.markdown;
+
+import org.commonmark.node.CustomNode;
+
+/**
+ * Маркер задачи "[ ]" / "[x]" в начале элемента списка.
+ */
+public class TaskListMarker extends CustomNode {
+
+    private final boolean checked;
+
+    public TaskListMarker(boolean checked) {
+        this.checked = checked;
+    }
+
+    public boolean isChecked() {
+        return checked;
+    }
+}
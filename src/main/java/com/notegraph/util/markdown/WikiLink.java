@@ -0,0 +1,23 @@
+package com.notegraph.util.markdown;
+
+import org.commonmark.node.CustomNode;
+
+/**
+ * Узел wiki-ссылки [[Заметка]] или [[Заметка|текст]].
+ * Отображаемый текст хранится в дочерних узлах.
+ */
+public class WikiLink extends CustomNode {
+
+    private final String target;
+
+    public WikiLink(String target) {
+        this.target = target;
+    }
+
+    /**
+     * Название заметки, на которую указывает ссылка
+     */
+    public String getTarget() {
+        return target;
+    }
+}
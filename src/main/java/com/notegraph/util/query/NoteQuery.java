@@ -0,0 +1,64 @@
+package com.notegraph.util.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Разобранный поисковый запрос: условия по индексам и слова/фразы для поиска в тексте
+ */
+public class NoteQuery {
+    private final List<QueryPredicate> predicates;
+
+    NoteQuery(List<QueryPredicate> predicates) {
+        this.predicates = Collections.unmodifiableList(predicates);
+    }
+
+    List<QueryPredicate> getPredicates() {
+        return predicates;
+    }
+
+    /**
+     * Есть ли в запросе условия, кроме текста (tag:, path:, linksto:, даты, исключения)
+     */
+    public boolean isStructured() {
+        return predicates.stream().anyMatch(p -> !p.isResidual() || p.negated);
+    }
+
+    public boolean isEmpty() {
+        return predicates.isEmpty();
+    }
+
+    /**
+     * Слова и фразы, которые должны встретиться в заметке (в нижнем регистре)
+     */
+    public List<String> getTextTerms() {
+        return textTerms(false);
+    }
+
+    /**
+     * Слова и фразы, которых в заметке быть не должно (в нижнем регистре)
+     */
+    public List<String> getExcludedTextTerms() {
+        return textTerms(true);
+    }
+
+    private List<String> textTerms(boolean negated) {
+        List<String> terms = new ArrayList<>();
+        for (QueryPredicate predicate : predicates) {
+            if (predicate instanceof QueryPredicate.Text text && predicate.negated == negated) {
+                terms.add(text.getText());
+            }
+        }
+        return terms;
+    }
+
+    @Override
+    public String toString() {
+        List<String> parts = new ArrayList<>();
+        for (QueryPredicate predicate : predicates) {
+            parts.add((predicate.negated ? "-" : "") + predicate);
+        }
+        return String.join(" ", parts);
+    }
+}
@@ -0,0 +1,172 @@
+package com.notegraph.util.query;
+
+import com.notegraph.util.NoteDateIndex;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Разбор поискового запроса.
+ * <p>
+ * Поддерживается:
+ * <pre>
+ * tag:project            заметки с тегом (можно #project)
+ * tag:proj/**            заметки с тегом proj или вложенным (proj/alpha, proj/alpha/infra)
+ * path:work/             заметки в папке (префикс пути относительно vault)
+ * linksto:"Roadmap"      заметки со ссылкой на указанную
+ * modified:>2026-01-01   дата изменения: >, >=, <, <=, точный день или диапазон a..b
+ * created:2026-01-01..2026-02-01
+ * modified:week          относительный период: today, yesterday, week, month, year, 7d
+ * "release notes"        фраза; слово без кавычек — подстрока
+ * -tag:draft             исключение (для любого условия)
+ * </pre>
+ * Непонятные условия (неизвестный ключ, неверная дата) ищутся как текст.
+ */
+public final class QueryParser {
+
+    private QueryParser() {
+    }
+
+    public static NoteQuery parse(String query) {
+        List<QueryPredicate> predicates = new ArrayList<>();
+        for (String token : tokenize(query)) {
+            QueryPredicate predicate = parseToken(token);
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+        return new NoteQuery(predicates);
+    }
+
+    private static QueryPredicate parseToken(String token) {
+        boolean negated = token.length() > 1 && token.startsWith("-");
+        String body = negated ? token.substring(1) : token;
+
+        int colon = body.indexOf(':');
+        if (colon > 0 && !body.startsWith("\"")) {
+            String key = body.substring(0, colon).toLowerCase(Locale.ROOT);
+            String value = unquote(body.substring(colon + 1));
+
+            if (!value.isEmpty()) {
+                QueryPredicate predicate = switch (key) {
+                    case "tag" -> new QueryPredicate.Tag(value.startsWith("#") ? value.substring(1) : value, negated);
+                    case "path" -> new QueryPredicate.PathPrefix(value, negated);
+                    case "linksto" -> new QueryPredicate.LinksTo(value, negated);
+                    case "modified" -> parseDate(NoteDateIndex.Field.MODIFIED, value, negated);
+                    case "created" -> parseDate(NoteDateIndex.Field.CREATED, value, negated);
+                    default -> null;
+                };
+                if (predicate != null) {
+                    return predicate;
+                }
+            }
+        }
+
+        String text = unquote(body).toLowerCase();
+        return text.isEmpty() ? null : new QueryPredicate.Text(text, negated);
+    }
+
+    /**
+     * @return условие или null, если дата записана неверно
+     */
+    private static QueryPredicate parseDate(NoteDateIndex.Field field, String value, boolean negated) {
+        LocalDate[] period = relativePeriod(value.toLowerCase(Locale.ROOT));
+        if (period != null) {
+            return new QueryPredicate.DateRange(field, period[0], period[1], negated);
+        }
+
+        try {
+            LocalDate from = null;
+            LocalDate to = null;
+
+            if (value.contains("..")) {
+                String[] parts = value.split("\\.\\.", 2);
+                from = parts[0].isEmpty() ? null : LocalDate.parse(parts[0]);
+                to = parts[1].isEmpty() ? null : LocalDate.parse(parts[1]);
+            } else if (value.startsWith(">=")) {
+                from = LocalDate.parse(value.substring(2));
+            } else if (value.startsWith("<=")) {
+                to = LocalDate.parse(value.substring(2));
+            } else if (value.startsWith(">")) {
+                from = LocalDate.parse(value.substring(1)).plusDays(1);
+            } else if (value.startsWith("<")) {
+                to = LocalDate.parse(value.substring(1)).minusDays(1);
+            } else {
+                from = LocalDate.parse(value.startsWith("=") ? value.substring(1) : value);
+                to = from;
+            }
+
+            return new QueryPredicate.DateRange(field, from, to, negated);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Относительный период [начало, конец] или null, если это не ключевое слово
+     */
+    private static LocalDate[] relativePeriod(String value) {
+        LocalDate today = LocalDate.now();
+        LocalDate from = switch (value) {
+            case "today" -> today;
+            case "yesterday" -> today.minusDays(1);
+            case "week" -> today.with(DayOfWeek.MONDAY);
+            case "month" -> today.withDayOfMonth(1);
+            case "year" -> today.withDayOfYear(1);
+            default -> null;
+        };
+        if (from != null) {
+            return new LocalDate[]{from, value.equals("yesterday") ? from : today};
+        }
+
+        // Последние N дней, включая сегодня: 7d
+        if (value.matches("\\d{1,5}d")) {
+            int days = Integer.parseInt(value.substring(0, value.length() - 1));
+            return new LocalDate[]{today.minusDays(Math.max(days - 1, 0)), today};
+        }
+        return null;
+    }
+
+    /**
+     * Разбить запрос по пробелам; текст в кавычках — одна часть
+     */
+    private static List<String> tokenize(String query) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                current.append(c);
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (!current.isEmpty()) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                }
+            } else {
+                current.append(c);
+            }
+        }
+        if (!current.isEmpty()) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private static String unquote(String value) {
+        String result = value;
+        if (result.startsWith("\"")) {
+            result = result.substring(1);
+        }
+        if (result.endsWith("\"")) {
+            result = result.substring(0, result.length() - 1);
+        }
+        return result.trim();
+    }
+}
@@ -0,0 +1,125 @@
+package com.notegraph.util.query;
+
+import com.notegraph.util.NotePathIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Выполнение запроса по индексам.
+ * <p>
+ * Условия упорядочиваются по оценке числа подходящих заметок: первым
+ * вычисляется самое избирательное, остальные пересекаются с его результатом
+ * (слиянием отсортированных массивов id). Если кандидатов осталось мало,
+ * текстовые условия по индексу не вычисляются — их всё равно нужно проверять
+ * по содержимому файлов. Исключения вычитаются в конце.
+ */
+public class QueryPlanner {
+    private static final Logger logger = LoggerFactory.getLogger(QueryPlanner.class);
+
+    /** Сколько кандидатов дешевле проверить по файлам, чем сужать триграммным индексом. */
+    private static final int RESIDUAL_THRESHOLD = 32;
+
+    private final NotePathIndex pathIndex = NotePathIndex.getInstance();
+
+    /**
+     * Заметки, удовлетворяющие всем индексным условиям запроса.
+     * Текстовые условия для них нужно проверить отдельно (см. {@link NoteQuery#getTextTerms()}).
+     */
+    public List<Path> execute(NoteQuery query) {
+        List<QueryPredicate> included = new ArrayList<>();
+        List<QueryPredicate> excluded = new ArrayList<>();
+        for (QueryPredicate predicate : query.getPredicates()) {
+            if (!predicate.negated) {
+                included.add(predicate);
+            } else if (!predicate.isResidual()) {
+                excluded.add(predicate);
+            }
+        }
+
+        // Оценка считается один раз на условие, а не при каждом сравнении
+        Map<QueryPredicate, Integer> estimates = new IdentityHashMap<>();
+        for (QueryPredicate predicate : included) {
+            estimates.put(predicate, predicate.estimate());
+        }
+        included.sort(Comparator.comparingInt(estimates::get));
+
+        int[] ids = null;
+        List<String> plan = new ArrayList<>();
+        for (QueryPredicate predicate : included) {
+            if (ids != null && ids.length == 0) {
+                break;
+            }
+            if (ids != null && predicate.isResidual() && ids.length <= RESIDUAL_THRESHOLD) {
+                plan.add(predicate + " (проверка по файлам)");
+                continue;
+            }
+            int[] matched = predicate.evaluate();
+            ids = ids == null ? matched : intersect(ids, matched);
+            plan.add(predicate + " → " + ids.length);
+        }
+
+        if (ids == null) {
+            ids = pathIndex.allIds();
+        }
+        for (QueryPredicate predicate : excluded) {
+            if (ids.length == 0) {
+                break;
+            }
+            ids = subtract(ids, predicate.evaluate());
+            plan.add("-" + predicate + " → " + ids.length);
+        }
+
+        logger.debug("План запроса: {}", String.join(", ", plan));
+
+        List<Path> paths = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Path path = pathIndex.pathOf(id);
+            if (path != null) {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    static int[] subtract(int[] a, int[] b) {
+        int[] result = new int[a.length];
+        int size = 0;
+        int j = 0;
+        for (int value : a) {
+            while (j < b.length && b[j] < value) {
+                j++;
+            }
+            if (j >= b.length || b[j] != value) {
+                result[size++] = value;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
@@ -0,0 +1,230 @@
+package com.notegraph.util.query;
+
+import com.notegraph.util.LinkIndexManager;
+import com.notegraph.util.NoteDateIndex;
+import com.notegraph.util.NotePathIndex;
+import com.notegraph.util.TagIndexManager;
+import com.notegraph.util.TrigramIndex;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Условие запроса, которое вычисляется по индексу.
+ * Результат — отсортированный массив id заметок из {@link NotePathIndex}.
+ */
+abstract class QueryPredicate {
+    /** Оценка, если размер результата заранее неизвестен. */
+    static final int UNKNOWN = Integer.MAX_VALUE;
+
+    final boolean negated;
+
+    QueryPredicate(boolean negated) {
+        this.negated = negated;
+    }
+
+    /**
+     * Примерное число заметок, удовлетворяющих условию (дешевле, чем evaluate)
+     */
+    abstract int estimate();
+
+    /**
+     * Id заметок, удовлетворяющих условию, по возрастанию
+     */
+    abstract int[] evaluate();
+
+    /**
+     * Условие по тексту проверяется по содержимому файла; индекс даёт только кандидатов
+     */
+    boolean isResidual() {
+        return false;
+    }
+
+    static NotePathIndex pathIndex() {
+        return NotePathIndex.getInstance();
+    }
+
+    /**
+     * tag:имя — заметки с тегом; tag:имя/** — с тегом или вложенным в него
+     */
+    static class Tag extends QueryPredicate {
+        private final String tag;
+        private Collection<String> titles;
+
+        Tag(String tag, boolean negated) {
+            super(negated);
+            this.tag = tag;
+        }
+
+        private Collection<String> titles() {
+            if (titles == null) {
+                titles = TagIndexManager.getInstance().getNotesByTag(tag);
+            }
+            return titles;
+        }
+
+        @Override
+        int estimate() {
+            return titles != null ? titles.size() : TagIndexManager.getInstance().countNotesByTag(tag);
+        }
+
+        @Override
+        int[] evaluate() {
+            return pathIndex().idsOfTitles(titles());
+        }
+
+        @Override
+        public String toString() {
+            return "tag:" + tag;
+        }
+    }
+
+    /**
+     * linksto:название — заметки, которые ссылаются на указанную
+     */
+    static class LinksTo extends QueryPredicate {
+        private final String title;
+        private Collection<String> backlinks;
+
+        LinksTo(String title, boolean negated) {
+            super(negated);
+            this.title = title;
+        }
+
+        private Collection<String> backlinks() {
+            if (backlinks == null) {
+                backlinks = LinkIndexManager.getInstance().getBacklinks(title);
+            }
+            return backlinks;
+        }
+
+        @Override
+        int estimate() {
+            return backlinks().size();
+        }
+
+        @Override
+        int[] evaluate() {
+            return pathIndex().idsOfTitles(backlinks());
+        }
+
+        @Override
+        public String toString() {
+            return "linksto:" + title;
+        }
+    }
+
+    /**
+     * path:папка/ — заметки, путь которых начинается с префикса
+     */
+    static class PathPrefix extends QueryPredicate {
+        private final String prefix;
+
+        PathPrefix(String prefix, boolean negated) {
+            super(negated);
+            this.prefix = prefix;
+        }
+
+        @Override
+        int estimate() {
+            return pathIndex().countUnder(prefix);
+        }
+
+        @Override
+        int[] evaluate() {
+            return pathIndex().idsUnder(prefix);
+        }
+
+        @Override
+        public String toString() {
+            return "path:" + prefix;
+        }
+    }
+
+    /**
+     * created: / modified: — дата в диапазоне
+     */
+    static class DateRange extends QueryPredicate {
+        private final NoteDateIndex.Field field;
+        private final LocalDate from;
+        private final LocalDate to;
+
+        DateRange(NoteDateIndex.Field field, LocalDate from, LocalDate to, boolean negated) {
+            super(negated);
+            this.field = field;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        int estimate() {
+            return NoteDateIndex.getInstance().count(field, from, to);
+        }
+
+        @Override
+        int[] evaluate() {
+            return pathIndex().idsOf(NoteDateIndex.getInstance().find(field, from, to));
+        }
+
+        @Override
+        public String toString() {
+            return field.name().toLowerCase() + ":" + (from != null ? from : "") + ".." + (to != null ? to : "");
+        }
+    }
+
+    /**
+     * Слово или фраза: кандидаты из триграммного индекса, точная проверка — по файлу
+     */
+    static class Text extends QueryPredicate {
+        private final String text;
+        private List<Path> candidates;
+        private boolean resolved;
+
+        Text(String text, boolean negated) {
+            super(negated);
+            this.text = text;
+        }
+
+        String getText() {
+            return text;
+        }
+
+        private List<Path> candidates() {
+            if (!resolved) {
+                candidates = TrigramIndex.getInstance().findCandidates(text);
+                resolved = true;
+            }
+            return candidates;
+        }
+
+        /**
+         * Оценка по длине самого короткого списка триграмм: пересечение списков
+         * выполняется только в evaluate, если планировщику нужен результат
+         */
+        @Override
+        int estimate() {
+            if (resolved) {
+                return candidates != null ? candidates.size() : UNKNOWN;
+            }
+            int estimate = TrigramIndex.getInstance().estimateCandidates(text);
+            return estimate >= 0 ? estimate : UNKNOWN;
+        }
+
+        @Override
+        int[] evaluate() {
+            return candidates() != null ? pathIndex().idsOf(candidates()) : pathIndex().allIds();
+        }
+
+        @Override
+        boolean isResidual() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "\"" + text + "\"";
+        }
+    }
+}
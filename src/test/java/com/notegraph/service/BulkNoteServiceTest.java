@@ -0,0 +1,52 @@
+package com.notegraph.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BulkNoteServiceTest {
+
+    @Test
+    void removesTagWithLeadingSpace() {
+        assertEquals("text #b\n", BulkNoteService.retag("text #a #b\n", Set.of(), Set.of("a")));
+        assertEquals("#b text\n", BulkNoteService.retag("#a #b text\n", Set.of(), Set.of("a")));
+    }
+
+    @Test
+    void keepsNestedAndLongerTags() {
+        String body = "#a/b #ab #b/a a#a\n";
+
+        assertEquals(body, BulkNoteService.retag(body, Set.of(), Set.of("a")));
+    }
+
+    @Test
+    void removesEveryOccurrence() {
+        assertEquals("x\ny\n", BulkNoteService.retag("x #a\ny #a\n", Set.of(), Set.of("a")));
+    }
+
+    @Test
+    void appendsMissingTagsOnNewLine() {
+        Set<String> tags = new LinkedHashSet<>(List.of("x", "y"));
+
+        assertEquals("body\n\n#x #y\n", BulkNoteService.retag("body", tags, Set.of()));
+        assertEquals("body\n#x #y\n", BulkNoteService.retag("body\n", tags, Set.of()));
+        assertEquals("#x #y\n", BulkNoteService.retag("", tags, Set.of()));
+        assertEquals("#x #y\n", BulkNoteService.retag(null, tags, Set.of()));
+    }
+
+    @Test
+    void doesNotAddPresentTag() {
+        String body = "text #x\n";
+
+        assertEquals(body, BulkNoteService.retag(body, Set.of("x"), Set.of()));
+    }
+
+    @Test
+    void renamesTag() {
+        assertEquals("text\n#new\n", BulkNoteService.retag("text #old\n", Set.of("new"), Set.of("old")));
+    }
+}
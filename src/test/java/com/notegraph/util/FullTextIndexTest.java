@@ -0,0 +1,90 @@
+package com.notegraph.util;
+
+import com.notegraph.model.Note;
+import com.notegraph.model.SearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FullTextIndexTest {
+
+    @Test
+    void requiresAllQueryTerms() {
+        FullTextIndex index = new FullTextIndex(title -> 0);
+        index.noteIndexed(note("a", "apple banana"));
+        index.noteIndexed(note("b", "apple cherry"));
+
+        assertEquals(List.of(path("a")), paths(index.search("apple banana ", 10)));
+        assertEquals(2, index.search("apple ", 10).size());
+        assertEquals(List.of(), index.search("banana cherry ", 10));
+    }
+
+    @Test
+    void expandsOnlyTheUnfinishedLastTerm() {
+        FullTextIndex index = new FullTextIndex(title -> 0);
+        index.noteIndexed(note("a", "banana split"));
+
+        assertEquals(List.of(path("a")), paths(index.search("ban", 10)));
+        assertEquals(List.of(), index.search("ban ", 10));
+    }
+
+    @Test
+    void ranksTitleAndFrequentTermsHigher() {
+        FullTextIndex index = new FullTextIndex(title -> 0);
+        index.noteIndexed(note("other", "one mention of kiwi among many other words here"));
+        index.noteIndexed(note("kiwi", "kiwi"));
+        index.noteIndexed(note("often", "kiwi kiwi kiwi and more words"));
+
+        assertEquals(List.of(path("kiwi"), path("often"), path("other")), paths(index.search("kiwi ", 10)));
+        assertEquals(List.of(path("kiwi")), paths(index.search("kiwi ", 1)));
+    }
+
+    @Test
+    void buildsSnippetFromIndexedText() {
+        FullTextIndex index = new FullTextIndex(title -> 0);
+        Note note = note("a", "first line\nsecond apple line");
+        note.setBodyLineOffset(4);
+        index.noteIndexed(note);
+
+        SearchResult result = index.search("apple ", 10).get(0);
+
+        assertEquals("first line second apple line", result.getMatchedLine());
+        assertArrayEquals(new int[]{18, 23}, result.getHighlights());
+        assertEquals(6, result.getLineNumber());
+    }
+
+    @Test
+    void forgetsRemovedNotesAndReusesIds() {
+        FullTextIndex index = new FullTextIndex(title -> 0);
+        index.noteIndexed(note("a", "melon"));
+        index.noteRemoved(path("a"));
+        assertTrue(index.search("melon ", 10).isEmpty());
+
+        index.noteIndexed(note("b", "lemon"));
+        index.notesMoved(Map.of(path("b"), path("c")), p -> null);
+
+        assertEquals(List.of(path("c")), paths(index.search("lemon ", 10)));
+        assertTrue(index.search("melon ", 10).isEmpty());
+    }
+
+    private static List<Path> paths(List<SearchResult> results) {
+        return results.stream().map(SearchResult::getNotePath).toList();
+    }
+
+    private static Path path(String name) {
+        return Path.of(name + ".md");
+    }
+
+    private static Note note(String name, String body) {
+        Note note = new Note(path(name));
+        note.setTitle(name);
+        note.setBodyContent(body);
+        return note;
+    }
+}
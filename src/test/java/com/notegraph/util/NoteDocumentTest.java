@@ -0,0 +1,113 @@
+package com.notegraph.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NoteDocumentTest {
+
+    @Test
+    void findsLinksTagsAndHeadings() {
+        NoteDocument doc = new NoteDocument("## Plan ##\nsee [[Roadmap|the map]] #work\n[[Roadmap]] #work/alpha");
+
+        assertEquals(List.of("Roadmap"), doc.getLinks());
+        assertEquals(Set.of("work", "work/alpha"), doc.getTags());
+
+        List<NoteDocument.Element> headings = doc.getHeadings();
+        assertEquals(1, headings.size());
+        assertEquals("Plan", headings.get(0).value);
+        assertEquals(2, headings.get(0).level);
+        assertEquals(3, headings.get(0).start);
+
+        NoteDocument.Element link = doc.getElements().get(1);
+        assertEquals(NoteDocument.ElementType.LINK, link.type);
+        assertEquals("[[Roadmap|the map]]", doc.substring(link.start, link.getEnd()));
+    }
+
+    @Test
+    void updatesCountsOnEdit() {
+        NoteDocument doc = new NoteDocument("[[A]] #x\n[[A]] #y\n");
+
+        // Ссылка остаётся, пока есть хотя бы одно вхождение
+        doc.replace(0, 9, "");
+        assertEquals("[[A]] #y\n", doc.getText());
+        assertEquals(List.of("A"), doc.getLinks());
+        assertEquals(Set.of("y"), doc.getTags());
+
+        doc.replace(2, 3, "B");
+        assertEquals(List.of("B"), doc.getLinks());
+    }
+
+    @Test
+    void splitsAndJoinsLines() {
+        NoteDocument doc = new NoteDocument("one\ntwo");
+        assertEquals(2, doc.getLineCount());
+
+        doc.replace(3, 3, "\n# Mid\n");
+        assertEquals("one\n# Mid\n\ntwo", doc.getText());
+        assertEquals(4, doc.getLineCount());
+        assertEquals("Mid", doc.getHeadings().get(0).value);
+        assertEquals(4, doc.lineStart(6));
+        assertEquals(9, doc.lineEnd(6));
+
+        doc.replace(3, 10, "");
+        assertEquals("one\ntwo", doc.getText());
+        assertEquals(2, doc.getLineCount());
+        assertEquals(List.of(), doc.getHeadings());
+    }
+
+    @Test
+    void rejectsRangesOutsideText() {
+        NoteDocument doc = new NoteDocument("abc");
+
+        assertThrows(IndexOutOfBoundsException.class, () -> doc.replace(2, 4, ""));
+        assertThrows(IndexOutOfBoundsException.class, () -> doc.charAt(3));
+    }
+
+    @Test
+    void matchesFreshParseAfterRandomEdits() {
+        Random random = new Random(42);
+        String[] fragments = {"a", "\n", "[[", "]]", "#", "tag", " ", "# ", "x|y", "\r\n"};
+        StringBuilder expected = new StringBuilder("# Title\n[[Start]] #t\n");
+        NoteDocument doc = new NoteDocument(expected.toString());
+
+        // Больше MAX_PIECES правок, чтобы фрагменты хотя бы раз собрались в один буфер
+        for (int i = 0; i < 2000; i++) {
+            int start = random.nextInt(expected.length() + 1);
+            int end = Math.min(expected.length(), start + random.nextInt(4));
+            String text = random.nextInt(3) == 0 ? "" : fragments[random.nextInt(fragments.length)];
+            if (start == end && text.isEmpty()) {
+                continue;
+            }
+
+            expected.replace(start, end, text);
+            doc.replace(start, end, text);
+
+            if (i % 97 == 0) {
+                assertSameAsFresh(expected.toString(), doc);
+            }
+        }
+        assertSameAsFresh(expected.toString(), doc);
+    }
+
+    private static void assertSameAsFresh(String text, NoteDocument doc) {
+        NoteDocument fresh = new NoteDocument(text);
+
+        assertEquals(text, doc.getText());
+        assertEquals(fresh.getLineCount(), doc.getLineCount());
+        assertEquals(Set.copyOf(fresh.getLinks()), Set.copyOf(doc.getLinks()));
+        assertEquals(fresh.getTags(), doc.getTags());
+        assertEquals(describe(fresh.getElements()), describe(doc.getElements()));
+    }
+
+    private static List<String> describe(List<NoteDocument.Element> elements) {
+        return elements.stream()
+                .map(e -> e.type + ":" + e.value + "@" + e.start + "+" + e.length + "/" + e.level)
+                .toList();
+    }
+}
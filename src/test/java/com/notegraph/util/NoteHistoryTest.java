@@ -0,0 +1,137 @@
+package com.notegraph.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NoteHistoryTest {
+
+    private static final long NOW = Duration.ofDays(2000).toMillis();
+
+    @Test
+    void diffRoundTripsSimpleEdits() {
+        assertRoundTrip("", "");
+        assertRoundTrip("", "new\ntext");
+        assertRoundTrip("old\ntext\n", "");
+        assertRoundTrip("a\nb\nc\n", "a\nb\nc\n");
+        assertRoundTrip("a\nb\nc", "a\nB\nc");
+        assertRoundTrip("a\nb\nc\n", "c\nb\na\n");
+        assertRoundTrip("line\r\nline\r\n", "line\r\nother\r\nline\r\n");
+        assertRoundTrip("x\nx\nx\nx\nx\nx\nx\nx\nx\nx\n", "x\nx\ny\nx\nx\nx\nx\nx\nx\nx\nx\n");
+    }
+
+    @Test
+    void diffRoundTripsRandomEdits() {
+        Random random = new Random(7);
+        String[] words = {"alpha\n", "beta\n", "gamma\n", "# heading\n", "\n", "[[link]]\n", "tail"};
+        for (int round = 0; round < 500; round++) {
+            StringBuilder base = new StringBuilder();
+            for (int i = random.nextInt(40); i > 0; i--) {
+                base.append(words[random.nextInt(words.length)]);
+            }
+            StringBuilder text = new StringBuilder(base);
+            for (int edit = random.nextInt(6); edit > 0; edit--) {
+                int start = random.nextInt(text.length() + 1);
+                int end = Math.min(text.length(), start + random.nextInt(10));
+                text.replace(start, end, words[random.nextInt(words.length)]);
+            }
+            assertRoundTrip(base.toString(), text.toString());
+        }
+    }
+
+    @Test
+    void diffCopiesUnchangedLines() {
+        String base = "one\ntwo\nthree\nfour\n";
+        List<Object> ops = NoteHistory.diff(base, "one\ntwo\nTHREE\nfour\n");
+
+        int inserted = ops.stream().filter(op -> op instanceof String).mapToInt(op -> ((String) op).length()).sum();
+        assertEquals("THREE\n".length(), inserted);
+    }
+
+    @Test
+    void keepsEverythingFromLastHour() {
+        List<NoteHistory.Version> versions = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            versions.add(version(NOW - Duration.ofMinutes(50 - i).toMillis()));
+        }
+
+        assertEquals(versions, NoteHistory.retain(versions, NOW));
+    }
+
+    @Test
+    void capsOnlyRecentVersions() {
+        List<NoteHistory.Version> versions = new ArrayList<>();
+        // Старые дневные версии
+        for (int day = 20; day >= 2; day--) {
+            versions.add(version(NOW - Duration.ofDays(day).toMillis()));
+        }
+        // Автосохранение каждые 1.5 секунды в течение получаса
+        for (long ms = Duration.ofMinutes(30).toMillis(); ms > 0; ms -= 1500) {
+            versions.add(version(NOW - ms));
+        }
+
+        List<NoteHistory.Version> kept = NoteHistory.retain(versions, NOW);
+
+        long recent = kept.stream().filter(v -> NOW - v.time < Duration.ofHours(1).toMillis()).count();
+        assertEquals(NoteHistory.MAX_RECENT_VERSIONS, recent);
+        // Самые новые остаются, и ни одна дневная версия не вытеснена
+        assertEquals(versions.get(versions.size() - 1), kept.get(kept.size() - 1));
+        assertTrue(kept.containsAll(versions.subList(0, 19)));
+    }
+
+    @Test
+    void thinsOlderVersionsByInterval() {
+        List<NoteHistory.Version> versions = new ArrayList<>();
+        // Версия раз в час в течение 400 дней
+        for (long ms = Duration.ofDays(400).toMillis(); ms > Duration.ofHours(1).toMillis();
+             ms -= Duration.ofHours(1).toMillis()) {
+            versions.add(version(NOW - ms));
+        }
+        versions.add(version(NOW));
+
+        List<NoteHistory.Version> kept = NoteHistory.retain(versions, NOW);
+
+        assertEquals(versions.get(versions.size() - 1), kept.get(kept.size() - 1));
+        assertTrue(isSortedByTime(kept));
+
+        Map<String, Long> perTier = kept.stream().collect(Collectors.groupingBy(v -> tier(NOW - v.time),
+                Collectors.counting()));
+        // За сутки — не чаще раза в 10 минут (здесь версии раз в час)
+        assertTrue(perTier.get("day") <= 24);
+        // За месяц — не больше одной в день
+        assertTrue(perTier.get("month") <= 30);
+        // Дальше — не больше одной в неделю, и год истории остаётся
+        assertTrue(perTier.get("older") >= 50 && perTier.get("older") <= 54);
+
+        // Повторное прореживание ничего не меняет
+        assertEquals(kept, NoteHistory.retain(kept, NOW));
+    }
+
+    private static void assertRoundTrip(String base, String text) {
+        assertEquals(text, NoteHistory.patch(base, NoteHistory.diff(base, text)));
+    }
+
+    private static NoteHistory.Version version(long time) {
+        return new NoteHistory.Version(time, Long.toHexString(time), NoteHistory.Source.SAVE);
+    }
+
+    private static String tier(long age) {
+        if (age < Duration.ofDays(1).toMillis()) {
+            return "day";
+        }
+        return age < Duration.ofDays(30).toMillis() ? "month" : "older";
+    }
+
+    private static boolean isSortedByTime(List<NoteHistory.Version> versions) {
+        for (int i = 1; i < versions.size(); i++) {
+            if (versions.get(i - 1).time > versions.get(i).time) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,55 @@
+package com.notegraph.util;
+
+import com.notegraph.model.Note;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NoteParserTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void parsesFrontmatterWithLfLineEndings() throws Exception {
+        Note note = parse("---\ntitle: x\ntags: [a, b]\n---\n\nbody\nline 2");
+
+        assertEquals("x", note.getTitle());
+        assertEquals("body\nline 2", note.getBodyContent());
+        assertEquals(5, note.getBodyLineOffset());
+    }
+
+    @Test
+    void parsesFrontmatterWithCrlfLineEndings() throws Exception {
+        Note note = parse("---\r\ntitle: x\r\n---\r\n\r\nbody");
+
+        // Frontmatter не должен попасть в тело: иначе при сохранении он продублируется
+        assertEquals("x", note.getTitle());
+        assertEquals("body", note.getBodyContent());
+        assertEquals(4, note.getBodyLineOffset());
+    }
+
+    @Test
+    void parsesFrontmatterWithoutBlankLineAfterFence() throws Exception {
+        Note note = parse("---\r\ntitle: x\r\n---\r\nbody");
+
+        assertEquals("body", note.getBodyContent());
+    }
+
+    @Test
+    void fileWithoutFrontmatterIsAllBody() throws Exception {
+        Note note = parse("just text\n---\nmore");
+
+        assertEquals("just text\n---\nmore", note.getBodyContent());
+    }
+
+    private Note parse(String content) throws Exception {
+        Path file = dir.resolve("note.md");
+        Files.writeString(file, content);
+        return NoteParser.parseNote(file);
+    }
+}
@@ -0,0 +1,84 @@
+package com.notegraph.util;
+
+import com.notegraph.model.Note;
+import com.notegraph.util.TagIndexManager.TagTreeNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TagIndexManagerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void countsNotesInSubtree() {
+        TagIndexManager index = new TagIndexManager(dir.resolve("tags.json"));
+        index.updateNoteTags(note("a", "proj/alpha", "proj/beta"));
+        index.updateNoteTags(note("b", "proj"));
+        index.updateNoteTags(note("c", "other"));
+
+        assertEquals(1, index.countNotesByTag("proj"));
+        // Заметка с двумя вложенными тегами считается один раз
+        assertEquals(2, index.countNotesByTag("proj/**"));
+        assertEquals(Set.of("a", "b"), index.getNotesByTag("proj/**"));
+        assertEquals(0, index.countNotesByTag("missing/**"));
+
+        TagTreeNode proj = node(index.getTagTree(), "proj");
+        assertEquals(2, proj.noteCount);
+        assertEquals(1, node(proj.children, "proj/alpha").noteCount);
+        assertEquals(1, node(proj.children, "proj/beta").noteCount);
+    }
+
+    @Test
+    void removesEmptyNodesWhenTagsChange() {
+        TagIndexManager index = new TagIndexManager(dir.resolve("tags.json"));
+        index.updateNoteTags(note("a", "proj/alpha"));
+        index.updateNoteTags(note("b", "proj/beta"));
+
+        index.updateNoteTags(note("a"));
+
+        TagTreeNode proj = node(index.getTagTree(), "proj");
+        assertEquals(1, proj.noteCount);
+        assertEquals(List.of("proj/beta"), proj.children.stream().map(n -> n.tag).toList());
+
+        index.removeNote("b");
+
+        assertTrue(index.getTagTree().isEmpty());
+        assertEquals(0, index.countNotesByTag("proj/**"));
+    }
+
+    @Test
+    void rebuildsTreeFromSavedIndex() {
+        Path file = dir.resolve("tags.json");
+        TagIndexManager index = new TagIndexManager(file);
+        index.updateNoteTags(note("a", "proj/alpha"));
+        index.updateNoteTags(note("b", "proj"));
+
+        TagIndexManager reloaded = new TagIndexManager(file);
+
+        assertEquals(2, reloaded.countNotesByTag("proj/**"));
+        assertEquals(1, reloaded.countNotesByTag("proj/alpha"));
+    }
+
+    private static Note note(String title, String... tags) {
+        Note note = new Note(Path.of(title + ".md"));
+        note.setTitle(title);
+        note.setTags(new HashSet<>(List.of(tags)));
+        return note;
+    }
+
+    private static TagTreeNode node(List<TagTreeNode> nodes, String tag) {
+        return nodes.stream()
+                .filter(n -> n.tag.equals(tag))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no tag " + tag));
+    }
+}
@@ -0,0 +1,79 @@
+package com.notegraph.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskIndexTest {
+
+    private static final Path PATH = Path.of("note.md");
+
+    @Test
+    void parsesTasksWithTagsAndDates() {
+        String body = "# Plan\n- [ ] write #docs by 2026-03-01\n  * [x] done item\n1. [X] numbered\ntext";
+
+        List<TaskIndex.Task> tasks = TaskIndex.parse(PATH, "Plan", body);
+
+        assertEquals(3, tasks.size());
+
+        TaskIndex.Task first = tasks.get(0);
+        assertEquals(1, first.line);
+        assertEquals("write #docs by 2026-03-01", first.text);
+        assertFalse(first.done);
+        assertEquals(Set.of("docs"), first.tags);
+        assertEquals(LocalDate.of(2026, 3, 1), first.getDate());
+
+        assertTrue(tasks.get(1).done);
+        assertEquals(2, tasks.get(1).line);
+        assertTrue(tasks.get(2).done);
+    }
+
+    @Test
+    void skipsTasksInCodeBlocks() {
+        String body = "```\n- [ ] not a task\n```\n- [ ] task";
+
+        List<TaskIndex.Task> tasks = TaskIndex.parse(PATH, "t", body);
+
+        assertEquals(1, tasks.size());
+        assertEquals(3, tasks.get(0).line);
+    }
+
+    @Test
+    void skipsInvalidDates() {
+        TaskIndex.Task task = TaskIndex.parse(PATH, "t", "- [ ] due 2026-13-45").get(0);
+
+        assertNull(task.getDate());
+    }
+
+    @Test
+    void togglesOnlyTheStateCharacter() {
+        String body = "intro\r\n- [ ] first\r\n- [x] second\r\n";
+        List<TaskIndex.Task> tasks = TaskIndex.parse(PATH, "t", body);
+
+        String toggled = TaskIndex.toggle(body, tasks.get(0));
+        assertEquals("intro\r\n- [x] first\r\n- [x] second\r\n", toggled);
+
+        String back = TaskIndex.toggle(toggled, tasks.get(0).toggled());
+        assertEquals(body, back);
+
+        assertEquals("intro\r\n- [ ] first\r\n- [ ] second\r\n", TaskIndex.toggle(body, tasks.get(1)));
+    }
+
+    @Test
+    void refusesToToggleStaleTask() {
+        String body = "- [ ] first\n- [ ] second";
+        TaskIndex.Task task = TaskIndex.parse(PATH, "t", body).get(1);
+
+        assertNull(TaskIndex.toggle("- [ ] first\n- [ ] changed", task));
+        assertNull(TaskIndex.toggle("- [ ] first\n- [x] second", task));
+        assertNull(TaskIndex.toggle("- [ ] first", task));
+    }
+}
@@ -0,0 +1,74 @@
+package com.notegraph.util;
+
+import com.notegraph.model.Note;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TitleSuggestionIndexTest {
+
+    @Test
+    void ordersPrefixMatchesByWeight() {
+        Map<Path, Integer> opens = Map.of(path("Project Beta"), 5, path("Progress"), 2);
+        TitleSuggestionIndex index = new TitleSuggestionIndex(path -> opens.getOrDefault(path, 0));
+        index.noteIndexed(note("Project Alpha"));
+        index.noteIndexed(note("Project Beta"));
+        index.noteIndexed(note("Progress"));
+        index.noteIndexed(note("Other"));
+
+        assertEquals(List.of("Project Beta", "Progress", "Project Alpha"), titles(index.suggest("pro", 10)));
+        assertEquals(List.of("Project Beta"), titles(index.suggest("PRO", 1)));
+
+        for (int i = 0; i < 6; i++) {
+            index.noteOpened(path("Project Alpha"));
+        }
+        assertEquals(List.of("Project Alpha", "Project Beta", "Progress"), titles(index.suggest("pro", 10)));
+    }
+
+    @Test
+    void appendsFuzzyMatchesAfterPrefixMatches() {
+        TitleSuggestionIndex index = new TitleSuggestionIndex(path -> 0);
+        index.noteIndexed(note("Project"));
+        index.noteIndexed(note("Progress"));
+
+        assertEquals(List.of("Progress", "Project"), titles(index.suggest("prog", 10)));
+        assertEquals(List.of("Project"), titles(index.suggest("projcet", 10)));
+        // Для коротких запросов опечатки не допускаются
+        assertEquals(List.of(), titles(index.suggest("pz", 10)));
+    }
+
+    @Test
+    void findsAliasesAndForgetsRemovedNotes() {
+        TitleSuggestionIndex index = new TitleSuggestionIndex(path -> 0);
+        // Путь латиницей: кодировка имён файлов зависит от локали окружения
+        Note note = new Note(path("hedgehog"));
+        note.setTitle("Ёжик в тумане");
+        note.getFrontmatter().put("aliases", List.of("hedgehog"));
+        index.noteIndexed(note);
+
+        assertEquals(List.of("Ёжик в тумане"), titles(index.suggest("ежик", 10)));
+        assertEquals(List.of("Ёжик в тумане"), titles(index.suggest("hedge", 10)));
+
+        index.noteRemoved(note.getPath());
+        assertEquals(List.of(), titles(index.suggest("hedge", 10)));
+        assertEquals(0, index.size());
+    }
+
+    private static List<String> titles(List<TitleSuggestionIndex.Suggestion> suggestions) {
+        return suggestions.stream().map(s -> s.title).toList();
+    }
+
+    private static Path path(String title) {
+        return Path.of(title + ".md");
+    }
+
+    private static Note note(String title) {
+        Note note = new Note(path(title));
+        note.setTitle(title);
+        return note;
+    }
+}
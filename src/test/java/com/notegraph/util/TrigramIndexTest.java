@@ -0,0 +1,97 @@
+package com.notegraph.util;
+
+import com.notegraph.model.Note;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrigramIndexTest {
+
+    @Test
+    void findsSubstringsInsideWords() {
+        TrigramIndex index = new TrigramIndex();
+        index.noteIndexed(note("a", "call parseConfig here"));
+        index.noteIndexed(note("b", "nothing to see"));
+
+        assertEquals(List.of(path("a")), index.findCandidates("Config"));
+        assertEquals(List.of(), index.findCandidates("xyzzy"));
+        // Короче триграммы индекс не сужает поиск
+        assertNull(index.findCandidates("co"));
+    }
+
+    @Test
+    void keepsPostingsAcrossLargeGapsAndCompaction() {
+        TrigramIndex index = new TrigramIndex();
+        index.noteIndexed(note("a", "unique shared"));
+        for (int i = 0; i < 500; i++) {
+            index.noteIndexed(note("b", "shared v" + i + "x"));
+        }
+        // Разность номеров больше 127 — несколько байт varint
+        index.noteIndexed(note("c", "unique shared"));
+        assertEquals(List.of(path("a"), path("c")), index.findCandidates("unique"));
+
+        // Больше MIN_DEAD_FOR_COMPACTION удалённых документов: номера перенумеровываются
+        for (int i = 500; i < 1100; i++) {
+            index.noteIndexed(note("b", "shared v" + i + "x"));
+        }
+        index.noteIndexed(note("d", "unique"));
+
+        assertEquals(List.of(path("a"), path("c"), path("d")), index.findCandidates("unique"));
+        assertEquals(Set.of(path("a"), path("b"), path("c")), Set.copyOf(index.findCandidates("shared")));
+        assertEquals(List.of(path("b")), index.findCandidates("v1099x"));
+        assertEquals(List.of(), index.findCandidates("v5x"));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void requiresEnoughTrigramsForApproximateSearch() {
+        TrigramIndex index = new TrigramIndex();
+        index.noteIndexed(note("a", "hello world"));
+        index.noteIndexed(note("b", "goodbye"));
+
+        // 3 триграммы − 3·1 правку: граница не работает
+        assertNull(index.findApproximateCandidates("hello", 1));
+        assertEquals(List.of(path("a")), index.findApproximateCandidates("hellp world", 1));
+
+        assertNull(index.findApproximateCandidates("abcdefgh", 2));
+        assertEquals(List.of(), index.findApproximateCandidates("abcdefghi", 2));
+        assertEquals(List.of(path("a")), index.findApproximateCandidates("hellp wrld", 2));
+    }
+
+    @Test
+    void dropsRemovedAndFollowsMovedNotes() {
+        TrigramIndex index = new TrigramIndex();
+        index.noteIndexed(note("a", "alpha"));
+        index.noteIndexed(note("b", "alpha"));
+
+        index.noteRemoved(path("a"));
+        index.notesMoved(Map.of(path("b"), path("c")), p -> null);
+
+        assertEquals(List.of(path("c")), index.findCandidates("alpha"));
+    }
+
+    @Test
+    void matchesWithTypos() {
+        assertTrue(TrigramIndex.containsApproximately("The Quick brown", "quikc", 2));
+        assertTrue(TrigramIndex.containsApproximately("Ёлка", "елка", 0));
+        assertFalse(TrigramIndex.containsApproximately("hello", "xyz", 1));
+    }
+
+    private static Path path(String name) {
+        return Path.of(name + ".md");
+    }
+
+    private static Note note(String name, String body) {
+        Note note = new Note(path(name));
+        note.setBodyContent(body);
+        return note;
+    }
+}
@@ -0,0 +1,63 @@
+package com.notegraph.util.markdown;
+
+import org.commonmark.Extension;
+import org.commonmark.parser.Parser;
+import org.commonmark.renderer.html.HtmlRenderer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NoteSyntaxPostProcessorTest {
+
+    private static final List<Extension> EXTENSIONS = List.of(NoteMarkdownExtension.create());
+    private static final Parser PARSER = Parser.builder().extensions(EXTENSIONS).build();
+    private static final HtmlRenderer RENDERER = HtmlRenderer.builder().extensions(EXTENSIONS).build();
+
+    @Test
+    void rendersSyntaxInPlainText() {
+        String html = render("- [ ] see [[Road map|the map]] #work/alpha\n- [x] done");
+
+        assertTrue(html.contains("<input type=\"checkbox\" disabled=\"\" /> see "), html);
+        assertTrue(html.contains("<input type=\"checkbox\" disabled=\"\" checked=\"\" /> done"), html);
+        assertTrue(html.contains("class=\"wiki-link\" data-note=\"Road map\""), html);
+        assertTrue(html.contains(">the map</a>"), html);
+        assertTrue(html.contains("class=\"tag\" data-tag=\"work/alpha\""), html);
+    }
+
+    @Test
+    void keepsSyntaxLiteralInCodeSpans() {
+        String html = render("- `[ ] [[Note]] #tag` outside #real");
+
+        assertEquals(1, count(html, "class=\"tag\""), html);
+        assertTrue(html.contains("<code>[ ] [[Note]] #tag</code>"), html);
+        assertFalse(html.contains("wiki-link"), html);
+        assertFalse(html.contains("checkbox"), html);
+    }
+
+    @Test
+    void keepsSyntaxLiteralInFencedBlocks() {
+        String html = render("```\n- [ ] [[Note]] #tag\n```\n\n[[Other]]");
+
+        assertTrue(html.contains("<pre><code>- [ ] [[Note]] #tag\n</code></pre>"), html);
+        assertEquals(1, count(html, "wiki-link"), html);
+        assertTrue(html.contains("data-note=\"Other\""), html);
+        assertFalse(html.contains("class=\"tag\""), html);
+        assertFalse(html.contains("checkbox"), html);
+    }
+
+    private static String render(String markdown) {
+        return RENDERER.render(PARSER.parse(markdown));
+    }
+
+    private static int count(String text, String fragment) {
+        int count = 0;
+        for (int i = text.indexOf(fragment); i >= 0; i = text.indexOf(fragment, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
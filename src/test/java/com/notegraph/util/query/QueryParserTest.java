@@ -0,0 +1,69 @@
+package com.notegraph.util.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryParserTest {
+
+    @Test
+    void parsesIndexConditions() {
+        NoteQuery query = QueryParser.parse("tag:#proj/** path:work/ linksto:\"Road map\"");
+
+        assertEquals("tag:proj/** path:work/ linksto:Road map", query.toString());
+        assertTrue(query.isStructured());
+        assertTrue(query.getTextTerms().isEmpty());
+    }
+
+    @Test
+    void parsesTextAndPhrases() {
+        NoteQuery query = QueryParser.parse("Release \"Notes Draft\" -old");
+
+        assertEquals(List.of("release", "notes draft"), query.getTextTerms());
+        assertEquals(List.of("old"), query.getExcludedTextTerms());
+        // Исключение — уже условие с индексами
+        assertTrue(query.isStructured());
+        assertFalse(QueryParser.parse("release notes").isStructured());
+    }
+
+    @Test
+    void parsesNegatedConditions() {
+        assertEquals("-tag:draft", QueryParser.parse("-tag:draft").toString());
+    }
+
+    @Test
+    void parsesDates() {
+        assertEquals("modified:2026-01-02..", QueryParser.parse("modified:>2026-01-01").toString());
+        assertEquals("modified:2026-01-01..", QueryParser.parse("modified:>=2026-01-01").toString());
+        assertEquals("created:..2025-12-31", QueryParser.parse("created:<2026-01-01").toString());
+        assertEquals("created:2026-01-01..2026-02-01",
+                QueryParser.parse("created:2026-01-01..2026-02-01").toString());
+        assertEquals("created:2026-01-05..2026-01-05", QueryParser.parse("created:2026-01-05").toString());
+    }
+
+    @Test
+    void parsesRelativePeriods() {
+        LocalDate today = LocalDate.now();
+
+        assertEquals("modified:" + today + ".." + today, QueryParser.parse("modified:today").toString());
+        assertEquals("modified:" + today.minusDays(6) + ".." + today, QueryParser.parse("modified:7d").toString());
+    }
+
+    @Test
+    void searchesUnknownConditionsAsText() {
+        assertEquals(List.of("modified:2026-13-45"), QueryParser.parse("modified:2026-13-45").getTextTerms());
+        assertEquals(List.of("foo:bar"), QueryParser.parse("foo:bar").getTextTerms());
+        assertEquals(List.of("tag:"), QueryParser.parse("tag:").getTextTerms());
+    }
+
+    @Test
+    void ignoresEmptyTokens() {
+        assertTrue(QueryParser.parse("   ").isEmpty());
+        assertTrue(QueryParser.parse("\"\"").isEmpty());
+    }
+}
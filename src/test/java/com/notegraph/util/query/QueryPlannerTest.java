@@ -0,0 +1,24 @@
+package com.notegraph.util.query;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class QueryPlannerTest {
+
+    @Test
+    void intersectsSortedIds() {
+        assertArrayEquals(new int[]{3, 7}, QueryPlanner.intersect(new int[]{1, 3, 5, 7}, new int[]{2, 3, 7, 9}));
+        assertArrayEquals(new int[]{}, QueryPlanner.intersect(new int[]{1, 2}, new int[]{3, 4}));
+        assertArrayEquals(new int[]{}, QueryPlanner.intersect(new int[]{}, new int[]{1}));
+        assertArrayEquals(new int[]{1, 2}, QueryPlanner.intersect(new int[]{1, 2}, new int[]{0, 1, 2, 3}));
+    }
+
+    @Test
+    void subtractsSortedIds() {
+        assertArrayEquals(new int[]{1, 5}, QueryPlanner.subtract(new int[]{1, 3, 5, 7}, new int[]{2, 3, 7, 9}));
+        assertArrayEquals(new int[]{1, 2}, QueryPlanner.subtract(new int[]{1, 2}, new int[]{}));
+        assertArrayEquals(new int[]{}, QueryPlanner.subtract(new int[]{1, 2}, new int[]{0, 1, 2, 3}));
+        assertArrayEquals(new int[]{}, QueryPlanner.subtract(new int[]{}, new int[]{1}));
+    }
+}